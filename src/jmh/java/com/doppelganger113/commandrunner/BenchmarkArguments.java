@@ -0,0 +1,27 @@
+package com.doppelganger113.commandrunner;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public final class BenchmarkArguments {
+
+    private BenchmarkArguments() {
+    }
+
+    /**
+     * Job arguments with the given number of entries, cycling through numbers, strings, lists and nested maps.
+     */
+    public static HashMap<String, Object> create(int argumentCount) {
+        HashMap<String, Object> arguments = new HashMap<>();
+        for (int i = 0; i < argumentCount; i++) {
+            switch (i % 4) {
+                case 0 -> arguments.put("number_" + i, i);
+                case 1 -> arguments.put("text_" + i, "value of argument " + i);
+                case 2 -> arguments.put("list_" + i, List.of(i, "item", true));
+                default -> arguments.put("nested_" + i, new HashMap<>(Map.of("id", i, "name", "nested " + i)));
+            }
+        }
+        return arguments;
+    }
+}
@@ -0,0 +1,91 @@
+package com.doppelganger113.commandrunner;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Reads a generated file shaped like {@code hw_200.csv}, large enough that the page cache and not the fixture decides
+ * the throughput. Rows per second are the row count divided by the reported time per operation. Parallel ingestion
+ * uses every available core.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+public class CsvServiceBenchmark {
+
+    @Param({"1000000"})
+    private int rows;
+
+    @Param({"10000"})
+    private int chunkSize;
+
+    private final CsvService csvService = new CsvService();
+    private final int parallelism = Runtime.getRuntime().availableProcessors();
+
+    private Path file;
+
+    @Setup(Level.Trial)
+    public void generateFile() throws IOException {
+        file = Files.createTempFile("persons", ".csv");
+        Random random = new Random(42);
+        try (BufferedWriter writer = Files.newBufferedWriter(file)) {
+            writer.write("\"Index\", \"Height(Inches)\", \"Weight(Pounds)\"\n");
+            for (int i = 1; i <= rows; i++) {
+                writer.write(String.format(Locale.ROOT, "%d, %.2f, %.2f%n",
+                        i, 60 + random.nextDouble() * 15, 90 + random.nextDouble() * 70));
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteFile() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public CsvService.IngestResult ingest(Blackhole blackhole) {
+        return csvService.ingest(file, true, chunkSize, blackhole::consume);
+    }
+
+    @Benchmark
+    public CsvService.IngestResult ingestParallelOrdered(Blackhole blackhole) {
+        return csvService.ingestParallel(file, true, chunkSize, parallelism, true, blackhole::consume);
+    }
+
+    /**
+     * Chunks are consumed on the parsing threads, a Blackhole must not be shared between them.
+     */
+    @Benchmark
+    public long ingestParallelUnordered() {
+        LongAdder weights = new LongAdder();
+        csvService.ingestParallel(file, true, chunkSize, parallelism, false, chunk -> {
+            for (Person person : chunk) {
+                weights.add((long) person.weight());
+            }
+        });
+        return weights.sum();
+    }
+
+    /**
+     * Materializes every row, the memory use of this one grows with the file.
+     */
+    @Benchmark
+    public List<Person> readFile() throws IOException {
+        try (Reader reader = Files.newBufferedReader(file)) {
+            return csvService.readFile(reader);
+        }
+    }
+}
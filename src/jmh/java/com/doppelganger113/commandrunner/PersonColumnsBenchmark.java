@@ -0,0 +1,53 @@
+package com.doppelganger113.commandrunner;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.DoubleSummaryStatistics;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Aggregations over the same rows held as columns and as a list of {@link Person}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class PersonColumnsBenchmark {
+
+    @Param({"10000000"})
+    private int rows;
+
+    private PersonColumns columns;
+    private List<Person> persons;
+
+    @Setup
+    public void setUp() {
+        columns = new PersonColumns(rows);
+        persons = new ArrayList<>(rows);
+        Random random = new Random(42);
+        for (int i = 0; i < rows; i++) {
+            Person person = new Person(i, 60 + random.nextFloat() * 15, 90 + random.nextFloat() * 70);
+            columns.add(person);
+            persons.add(person);
+        }
+    }
+
+    @Benchmark
+    public PersonColumns.Stats columnStats() {
+        return columns.weightStats();
+    }
+
+    @Benchmark
+    public DoubleSummaryStatistics listStats() {
+        return persons.stream().mapToDouble(Person::weight).summaryStatistics();
+    }
+
+    @Benchmark
+    public int[] columnHistogram() {
+        return columns.weightHistogram(90, 160, 70);
+    }
+}
@@ -0,0 +1,56 @@
+package com.doppelganger113.commandrunner.batching.job;
+
+import com.doppelganger113.commandrunner.BenchmarkArguments;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reading the {@code arguments} column of a job, a lazily read job only pays for decoding once its arguments are used.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class JobArgumentsBenchmark {
+
+    @Param({"1", "10", "100"})
+    private int argumentCount;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final ObjectReader reader = objectMapper.readerFor(new TypeReference<HashMap<String, Object>>() {
+    });
+
+    private HashMap<String, Object> arguments;
+    private byte[] column;
+
+    @Setup
+    public void setUp() throws JsonProcessingException {
+        arguments = BenchmarkArguments.create(argumentCount);
+        column = objectMapper.writeValueAsBytes(arguments);
+    }
+
+    @Benchmark
+    public byte[] write() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(arguments);
+    }
+
+    @Benchmark
+    public HashMap<String, Object> readEagerly() {
+        return new JobArguments(reader, column).get();
+    }
+
+    /**
+     * What claims, retries and listings pay for a job whose arguments are never used.
+     */
+    @Benchmark
+    public JobArguments readLazily() {
+        return new JobArguments(reader, column);
+    }
+}
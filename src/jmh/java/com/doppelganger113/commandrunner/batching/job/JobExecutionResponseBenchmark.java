@@ -0,0 +1,40 @@
+package com.doppelganger113.commandrunner.batching.job;
+
+import com.doppelganger113.commandrunner.batching.job.dto.JobExecutionResponse;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class JobExecutionResponseBenchmark {
+
+    @Param({"READY", "COMPLETED"})
+    private JobState state;
+
+    private JobPersistenceService.JobCreationResult created;
+    private JobPersistenceService.JobCreationResult existing;
+
+    @Setup
+    public void setUp() {
+        Job job = new Job();
+        job.setId(1L);
+        job.setName("benchmark");
+        job.setState(state);
+        created = new JobPersistenceService.JobCreationResult(job, true);
+        existing = new JobPersistenceService.JobCreationResult(job, false);
+    }
+
+    @Benchmark
+    public JobExecutionResponse fromCreated() {
+        return JobExecutionResponse.from(created);
+    }
+
+    @Benchmark
+    public JobExecutionResponse fromExisting() {
+        return JobExecutionResponse.from(existing);
+    }
+}
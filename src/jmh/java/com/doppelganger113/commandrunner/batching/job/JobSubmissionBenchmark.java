@@ -0,0 +1,136 @@
+package com.doppelganger113.commandrunner.batching.job;
+
+import com.doppelganger113.commandrunner.CommandrunnerApplication;
+import com.doppelganger113.commandrunner.batching.job.dto.JobExecutionOptions;
+import com.doppelganger113.commandrunner.batching.job.dto.JobExecutionResponse;
+import com.doppelganger113.commandrunner.batching.job.processors.JobProcessor;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Submissions through {@link JobService} against the whole application and a real database. Postgres is started
+ * with Testcontainers unless {@code spring.datasource.url} points at a database already, for example with
+ * {@code -Djmh.args="JobSubmission -jvmArgsAppend -Dspring.datasource.url=jdbc:postgresql://localhost:5432/bench"}.
+ * <p>
+ * Jobs of the same name never run at the same time, so submissions are measured one after another. The sequence
+ * argument is an int as that is what it reads back as from JSON.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(1)
+public class JobSubmissionBenchmark {
+
+    private static final String PROCESSOR_NAME = "benchmark_stub";
+
+    private PostgreSQLContainer<?> postgres;
+    private ConfigurableApplicationContext context;
+    private JobService jobService;
+    private JdbcTemplate jdbcTemplate;
+    private JobDedupeCache jobDedupeCache;
+
+    private final AtomicInteger sequence = new AtomicInteger();
+    private final Map<Integer, CompletableFuture<Void>> pending = new ConcurrentHashMap<>();
+    private JobExecutionOptions completedSubmission;
+
+    /**
+     * Does nothing, the job completes once {@link JobProcessor#after} was called as that happens after the
+     * COMPLETED transition.
+     */
+    private final JobProcessor stubProcessor = new JobProcessor() {
+        @Override
+        public String getName() {
+            return PROCESSOR_NAME;
+        }
+
+        @Override
+        public void execute(HashMap<String, Object> arguments) {
+        }
+
+        @Override
+        public void after(HashMap<String, Object> arguments) {
+            CompletableFuture<Void> completed = pending.remove((Integer) arguments.get("sequence"));
+            if (completed != null) {
+                completed.complete(null);
+            }
+        }
+    };
+
+    @Setup(Level.Trial)
+    public void startApplication() {
+        Map<String, Object> properties = new HashMap<>(Map.of(
+                "spring.main.web-application-type", "none",
+                "spring.docker.compose.enabled", "false",
+                "jobs.schedules.enabled", "false",
+                "logging.level.com.doppelganger113.commandrunner", "warn"
+        ));
+        if (System.getProperty("spring.datasource.url") == null) {
+            postgres = new PostgreSQLContainer<>("postgres:16");
+            postgres.start();
+            properties.put("spring.datasource.url", postgres.getJdbcUrl());
+            properties.put("spring.datasource.username", postgres.getUsername());
+            properties.put("spring.datasource.password", postgres.getPassword());
+        }
+        context = new SpringApplicationBuilder(CommandrunnerApplication.class).properties(properties).run();
+        jobService = context.getBean(JobService.class);
+        jdbcTemplate = context.getBean(JdbcTemplate.class);
+        jobDedupeCache = context.getBean(JobDedupeCache.class);
+        context.getBean(JobExecutor.class).addJobProcessor(stubProcessor);
+    }
+
+    @Setup(Level.Iteration)
+    public void deleteJobs() {
+        jdbcTemplate.update("DELETE FROM jobs");
+        jobDedupeCache.invalidateAll();
+        completedSubmission = options(sequence.incrementAndGet());
+        submitAndAwait(completedSubmission);
+    }
+
+    @TearDown(Level.Trial)
+    public void stopApplication() {
+        context.close();
+        if (postgres != null) {
+            postgres.stop();
+        }
+    }
+
+    /**
+     * A new job from submission until it is stored as COMPLETED.
+     */
+    @Benchmark
+    public JobExecutionResponse submitAndComplete() {
+        return submitAndAwait(options(sequence.incrementAndGet()));
+    }
+
+    /**
+     * Repeated submission of a completed job, answered from the dedupe cache.
+     */
+    @Benchmark
+    public JobExecutionResponse submitCompleted() {
+        return jobService.executeJob(completedSubmission);
+    }
+
+    private JobExecutionResponse submitAndAwait(JobExecutionOptions options) {
+        CompletableFuture<Void> completed = new CompletableFuture<>();
+        pending.put((Integer) options.arguments().get("sequence"), completed);
+        JobExecutionResponse response = jobService.executeJob(options);
+        completed.join();
+        return response;
+    }
+
+    private static JobExecutionOptions options(int sequence) {
+        return new JobExecutionOptions(PROCESSOR_NAME, new HashMap<>(Map.of("sequence", sequence)));
+    }
+}
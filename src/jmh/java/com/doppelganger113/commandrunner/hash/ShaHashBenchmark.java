@@ -0,0 +1,82 @@
+package com.doppelganger113.commandrunner.hash;
+
+import com.doppelganger113.commandrunner.BenchmarkArguments;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class ShaHashBenchmark {
+
+    @Param({"1", "10", "100", "1000"})
+    private int argumentCount;
+
+    private final ShaHash shaHash = new ShaHash();
+    private final StringBasedShaHash stringBasedShaHash = new StringBasedShaHash();
+
+    private HashMap<String, Object> arguments;
+
+    @Setup
+    public void setUp() {
+        arguments = BenchmarkArguments.create(argumentCount);
+    }
+
+    @Benchmark
+    public String streamingHash() {
+        return shaHash.hash(arguments);
+    }
+
+    @Benchmark
+    public String streamingLegacyHash() {
+        return shaHash.hash(arguments, ShaHash.Encoding.LEGACY);
+    }
+
+    @Benchmark
+    public String stringBasedHash() {
+        return stringBasedShaHash.hash(arguments);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public String streamingHashConcurrent() {
+        return shaHash.hash(arguments);
+    }
+
+    /**
+     * Previous implementation, kept as a baseline. It shares one digest and is therefore only measured
+     * single threaded.
+     */
+    static class StringBasedShaHash {
+        private final MessageDigest digest;
+
+        StringBasedShaHash() {
+            try {
+                digest = MessageDigest.getInstance("SHA3-256");
+            } catch (NoSuchAlgorithmException e) {
+                throw new RuntimeException(e);
+            }
+        }
+
+        String hash(HashMap<String, Object> map) {
+            if (map == null || map.isEmpty()) {
+                return "";
+            }
+            var sortedMap = new TreeMap<>(ShaHash.excludeNullValues(map));
+            byte[] hashbytes = digest.digest(sortedMap.toString().getBytes(StandardCharsets.UTF_8));
+            StringBuilder builder = new StringBuilder();
+            for (byte b : hashbytes) {
+                builder.append(String.format("%02x", b));
+            }
+            return builder.toString();
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.doppelganger113.commandrunner.sftp;
+
+import org.apache.sshd.common.file.virtualfs.VirtualFileSystemFactory;
+import org.apache.sshd.server.SshServer;
+import org.apache.sshd.server.keyprovider.SimpleGeneratorHostKeyProvider;
+import org.apache.sshd.sftp.server.SftpSubsystemFactory;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Listing a directory of an in-process SFTP server on a pooled session and on a session opened for the listing.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class SftpSessionBenchmark {
+
+    private SshServer server;
+    private SftpProperties properties;
+    private SftpSessionService service;
+
+    @Setup
+    public void setUp() throws IOException {
+        Path root = Files.createTempDirectory("sftp-benchmark");
+        Files.createDirectories(root.resolve("upload"));
+        for (int i = 0; i < 20; i++) {
+            Files.writeString(root.resolve("upload/" + i + ".csv"), i + ", 65.78, 112.99\n");
+        }
+
+        server = SshServer.setUpDefaultServer();
+        server.setHost("localhost");
+        server.setPort(0);
+        server.setKeyPairProvider(new SimpleGeneratorHostKeyProvider(root.resolve("host.key")));
+        server.setPasswordAuthenticator((username, password, session) -> "foo".equals(username) && "pass".equals(password));
+        server.setSubsystemFactories(List.of(new SftpSubsystemFactory()));
+        server.setFileSystemFactory(new VirtualFileSystemFactory(root));
+        server.start();
+
+        properties = new SftpProperties(
+                "localhost", server.getPort(), "foo", "pass", null, false, Duration.ofSeconds(10), Duration.ofSeconds(30)
+        );
+        service = new SftpSessionService(
+                properties,
+                new SftpPoolProperties(1, 1, Duration.ofSeconds(5), Duration.ofMinutes(5), Duration.ofMinutes(1))
+        );
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        service.close();
+        server.stop(true);
+    }
+
+    @Benchmark
+    public List<String> pooledSession() {
+        return service.getFiles("upload");
+    }
+
+    @Benchmark
+    public Object newSession() throws Exception {
+        try (SftpSession session = new SftpSessionFactory(properties).create(properties.options())) {
+            return session.channel.ls("upload");
+        }
+    }
+}
@@ -0,0 +1,217 @@
+package com.doppelganger113.commandrunner;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Splits a CSV file into byte ranges that start and end on record boundaries so that they can be parsed
+ * independently. Quotes and line feeds are single bytes in UTF-8 that never occur inside a multibyte character, so
+ * boundaries are found on the raw bytes without decoding them. The scan follows the rules of the reader built by
+ * {@link CsvService}: a quote only opens a quoted field at the start of a field, and a record starting with {@code #}
+ * is a comment up to the end of its line.
+ */
+final class CsvFileRanges {
+
+    private static final int SCAN_BUFFER_SIZE = 64 * 1024;
+
+    private static final int LINE_START = 0;
+    private static final int FIELD_START = 1;
+    private static final int UNQUOTED = 2;
+    private static final int COMMENT = 3;
+    private static final int QUOTED = 4;
+    private static final int QUOTE_SEEN = 5;
+    private static final int STATES = 6;
+
+    /**
+     * Next scan state indexed by the current state and the unsigned byte.
+     */
+    private static final byte[][] TRANSITIONS = transitions();
+
+    /**
+     * @param index position of the range in the file, the header can only be in the first one
+     */
+    record Range(int index, long start, long end) {
+    }
+
+    private CsvFileRanges() {
+    }
+
+    /**
+     * Splits the file into at most {@code rangeCount} ranges. Whether a split point lies inside a quoted field, that
+     * may contain line feeds, or inside a comment follows from the scan state there. Each part of the file is scanned
+     * in parallel from every state it could start in, and the state at a split point is then found by following the
+     * parts in order.
+     */
+    static List<Range> split(FileChannel channel, int rangeCount, ExecutorService executor) throws IOException {
+        long size = channel.size();
+        long[] splitPoints = new long[rangeCount + 1];
+        for (int i = 0; i <= rangeCount; i++) {
+            splitPoints[i] = size * i / rangeCount;
+        }
+        List<Future<byte[]>> endStates = new ArrayList<>(rangeCount);
+        for (int i = 0; i < rangeCount; i++) {
+            long from = splitPoints[i];
+            long to = splitPoints[i + 1];
+            endStates.add(executor.submit(() -> scan(channel, from, to)));
+        }
+
+        List<Range> ranges = new ArrayList<>(rangeCount);
+        long start = 0;
+        int state = LINE_START;
+        for (int i = 1; i < rangeCount; i++) {
+            state = await(endStates.get(i - 1))[state];
+            long end = nextRecordStart(channel, splitPoints[i], state, size);
+            if (end > start) {
+                ranges.add(new Range(ranges.size(), start, end));
+                start = end;
+            }
+        }
+        if (size > start) {
+            ranges.add(new Range(ranges.size(), start, size));
+        }
+        return ranges;
+    }
+
+    /**
+     * Reads only the bytes of the range with positional reads, so ranges of one channel can be read concurrently.
+     * Closing it leaves the file channel open.
+     */
+    static ReadableByteChannel open(FileChannel channel, Range range) {
+        return new ReadableByteChannel() {
+            private long position = range.start();
+            private boolean open = true;
+
+            @Override
+            public int read(ByteBuffer dst) throws IOException {
+                if (position >= range.end()) {
+                    return -1;
+                }
+                int length = (int) Math.min(dst.remaining(), range.end() - position);
+                int read = channel.read(dst.slice(dst.position(), length), position);
+                if (read > 0) {
+                    position += read;
+                    dst.position(dst.position() + read);
+                }
+                return read;
+            }
+
+            @Override
+            public boolean isOpen() {
+                return open;
+            }
+
+            @Override
+            public void close() {
+                open = false;
+            }
+        };
+    }
+
+    static <T> T await(Future<T> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted while reading csv file", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException ioException) {
+                throw ioException;
+            }
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException("failed reading csv file", e.getCause());
+        }
+    }
+
+    /**
+     * @return state at {@code to} for every state at {@code from}
+     */
+    private static byte[] scan(FileChannel channel, long from, long to) throws IOException {
+        byte[] states = new byte[STATES];
+        for (int state = 0; state < STATES; state++) {
+            states[state] = (byte) state;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(SCAN_BUFFER_SIZE);
+        long position = from;
+        while (position < to) {
+            buffer.clear().limit((int) Math.min(SCAN_BUFFER_SIZE, to - position));
+            int read = channel.read(buffer, position);
+            if (read < 0) {
+                break;
+            }
+            byte[] bytes = buffer.array();
+            for (int state = 0; state < STATES; state++) {
+                int current = states[state];
+                for (int i = 0; i < read; i++) {
+                    current = TRANSITIONS[current][bytes[i] & 0xFF];
+                }
+                states[state] = (byte) current;
+            }
+            position += read;
+        }
+        return states;
+    }
+
+    /**
+     * Position after the first line feed that ends a record or a comment at or after {@code from}, the end of the file
+     * if there is none.
+     */
+    private static long nextRecordStart(FileChannel channel, long from, int state, long size) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(SCAN_BUFFER_SIZE);
+        long position = from;
+        while (position < size) {
+            buffer.clear();
+            int read = channel.read(buffer, position);
+            if (read < 0) {
+                break;
+            }
+            byte[] bytes = buffer.array();
+            for (int i = 0; i < read; i++) {
+                state = TRANSITIONS[state][bytes[i] & 0xFF];
+                if (bytes[i] == '\n' && state == LINE_START) {
+                    return position + i + 1;
+                }
+            }
+            position += read;
+        }
+        return size;
+    }
+
+    private static byte[][] transitions() {
+        byte[][] transitions = new byte[STATES][256];
+        for (int state = 0; state < STATES; state++) {
+            for (int b = 0; b < 256; b++) {
+                transitions[state][b] = (byte) next(state, b);
+            }
+        }
+        return transitions;
+    }
+
+    private static int next(int state, int b) {
+        if (state == QUOTED) {
+            return b == '"' ? QUOTE_SEEN : QUOTED;
+        }
+        if (b == '\n' || b == '\r') {
+            return LINE_START;
+        }
+        if (state == COMMENT) {
+            return COMMENT;
+        }
+        if (b == '"') {
+            // Quotes inside an unquoted field are kept as they are, after a closing quote one is an escaped quote
+            return state == UNQUOTED ? UNQUOTED : QUOTED;
+        }
+        if (b == ',') {
+            return FIELD_START;
+        }
+        return state == LINE_START && b == '#' ? COMMENT : UNQUOTED;
+    }
+}
@@ -0,0 +1,96 @@
+package com.doppelganger113.commandrunner;
+
+/**
+ * Parses numbers straight from the parser's character buffer, surrounding spaces are ignored.
+ */
+final class CsvNumbers {
+
+    /**
+     * Mantissas below 2^24 and powers of ten up to 10^10 are exact floats, so a single division is correctly rounded.
+     */
+    private static final long FLOAT_FAST_PATH_MANTISSA = 1L << 24;
+    private static final float[] FLOAT_POWERS_OF_TEN = {1e0f, 1e1f, 1e2f, 1e3f, 1e4f, 1e5f, 1e6f, 1e7f, 1e8f, 1e9f, 1e10f};
+
+    private static final int LONG_FAST_PATH_DIGITS = 18;
+
+    private CsvNumbers() {
+    }
+
+    static long parseLong(char[] buf, int offset, int len) {
+        int start = trimStart(buf, offset, offset + len);
+        int end = trimEnd(buf, start, offset + len);
+        int i = start;
+        boolean negative = false;
+        if (i < end && (buf[i] == '-' || buf[i] == '+')) {
+            negative = buf[i] == '-';
+            i++;
+        }
+        if (i == end || end - i > LONG_FAST_PATH_DIGITS) {
+            return Long.parseLong(new String(buf, start, end - start));
+        }
+        long value = 0;
+        for (; i < end; i++) {
+            int digit = buf[i] - '0';
+            if (digit < 0 || digit > 9) {
+                throw new NumberFormatException("For input string: \"" + new String(buf, start, end - start) + "\"");
+            }
+            value = value * 10 + digit;
+        }
+        return negative ? -value : value;
+    }
+
+    /**
+     * Plain decimals such as {@code 65.78} are parsed without allocating, anything else such as exponents or more
+     * than seven significant digits falls back to {@link Float#parseFloat}.
+     */
+    static float parseFloat(char[] buf, int offset, int len) {
+        int start = trimStart(buf, offset, offset + len);
+        int end = trimEnd(buf, start, offset + len);
+        int i = start;
+        boolean negative = false;
+        if (i < end && (buf[i] == '-' || buf[i] == '+')) {
+            negative = buf[i] == '-';
+            i++;
+        }
+        long mantissa = 0;
+        int digits = 0;
+        int scale = 0;
+        boolean fraction = false;
+        for (; i < end; i++) {
+            char c = buf[i];
+            if (c >= '0' && c <= '9') {
+                mantissa = mantissa * 10 + (c - '0');
+                digits++;
+                if (fraction) {
+                    scale++;
+                }
+                if (mantissa >= FLOAT_FAST_PATH_MANTISSA) {
+                    return Float.parseFloat(new String(buf, start, end - start));
+                }
+            } else if (c == '.' && !fraction) {
+                fraction = true;
+            } else {
+                return Float.parseFloat(new String(buf, start, end - start));
+            }
+        }
+        if (digits == 0 || scale >= FLOAT_POWERS_OF_TEN.length) {
+            return Float.parseFloat(new String(buf, start, end - start));
+        }
+        float value = (float) mantissa / FLOAT_POWERS_OF_TEN[scale];
+        return negative ? -value : value;
+    }
+
+    private static int trimStart(char[] buf, int start, int end) {
+        while (start < end && buf[start] == ' ') {
+            start++;
+        }
+        return start;
+    }
+
+    private static int trimEnd(char[] buf, int start, int end) {
+        while (end > start && buf[end - 1] == ' ') {
+            end--;
+        }
+        return end;
+    }
+}
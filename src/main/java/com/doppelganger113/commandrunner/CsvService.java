@@ -2,35 +2,303 @@ package com.doppelganger113.commandrunner;
 
 import de.siegmar.fastcsv.reader.CommentStrategy;
 import de.siegmar.fastcsv.reader.CsvReader;
-import de.siegmar.fastcsv.reader.CsvRecord;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 
 import java.io.IOException;
 import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 @Service
 public class CsvService {
-    private Person mapEntry(CsvRecord record) {
-        return new Person(
-                Long.parseLong(record.getField(0)),
-                Float.parseFloat(record.getField(1)),
-                Float.parseFloat(record.getField(2))
-        );
+
+    /**
+     * Bytes read from a file at once, feeds are several gigabytes so small reads would be dominated by system calls.
+     */
+    public static final int READ_BUFFER_SIZE = 1 << 20;
+
+    /**
+     * Ranges per parsing thread, more ranges than threads keep threads busy when some ranges parse slower.
+     */
+    private static final int RANGES_PER_THREAD = 4;
+
+    /**
+     * Upper bound for the size of a range, ordered ingestion holds the parsed persons of the ranges in flight.
+     */
+    private static final long MAX_RANGE_SIZE = 4L << 20;
+
+    private final Logger log = LoggerFactory.getLogger(CsvService.class);
+
+    /**
+     * @param rows    persons handed to the consumer
+     * @param elapsed time from opening the input until the last chunk was consumed
+     */
+    public record IngestResult(long rows, Duration elapsed) {
+
+        public double rowsPerSecond() {
+            long nanos = elapsed.toNanos();
+            return nanos == 0 ? rows : rows * 1_000_000_000.0 / nanos;
+        }
     }
 
+    /**
+     * Reads the whole input into memory, the first line is a header. Use {@link #ingest} for large inputs.
+     */
     public List<Person> readFile(Reader readable) {
-        try (CsvReader<CsvRecord> reader = CsvReader.builder()
-                .fieldSeparator(',')
-                .commentStrategy(CommentStrategy.SKIP)
-                .ofCsvRecord(readable)) {
+        try (Stream<Person> persons = stream(readable, true)) {
+            return persons.toList();
+        }
+    }
+
+    /**
+     * Persons parsed as the stream is consumed, the stream has to be closed to close the reader.
+     */
+    public Stream<Person> stream(Reader readable, boolean skipHeader) {
+        CsvReader<Person> reader = newReader(readable, PersonCsvHandler.persons(skipHeader));
+        return reader.stream().onClose(() -> {
+            try {
+                reader.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException("failed closing csv file", e);
+            }
+        });
+    }
+
+    /**
+     * Streams the file through a {@link FileChannel} read {@link #READ_BUFFER_SIZE} bytes at a time, see
+     * {@link #ingest(Reader, boolean, int, Consumer)}.
+     */
+    public IngestResult ingest(Path path, boolean skipHeader, int chunkSize, Consumer<List<Person>> chunkConsumer) {
+        try (Reader reader = Channels.newReader(
+                FileChannel.open(path, StandardOpenOption.READ),
+                StandardCharsets.UTF_8.newDecoder(),
+                READ_BUFFER_SIZE
+        )) {
+            return ingest(reader, skipHeader, chunkSize, chunkConsumer);
+        } catch (IOException e) {
+            throw new RuntimeException("failed reading csv file " + path, e);
+        }
+    }
+
+    /**
+     * Hands the persons to the consumer in chunks of at most {@code chunkSize}, memory stays bounded by one chunk as
+     * long as the consumer does not keep them.
+     */
+    public IngestResult ingest(Reader readable, boolean skipHeader, int chunkSize, Consumer<List<Person>> chunkConsumer) {
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("chunkSize must be positive");
+        }
+        long startedAt = System.nanoTime();
+        long rows;
+        try (CsvReader<Person> reader = newReader(readable, PersonCsvHandler.persons(skipHeader))) {
+            rows = forEachChunk(reader, chunkSize, chunkConsumer);
+        } catch (IOException e) {
+            throw new RuntimeException("failed reading csv file", e);
+        }
+        return logResult(rows, startedAt);
+    }
 
-            return reader.stream()
-//                    .skip(1)
-                    .filter(e -> e.getStartingLineNumber() != 1)
-                    .map(this::mapEntry).toList();
+    /**
+     * Reads the file into columns, see {@link #readColumns(Reader, boolean)}.
+     */
+    public PersonColumns readColumns(Path path, boolean skipHeader) {
+        try (Reader reader = Channels.newReader(
+                FileChannel.open(path, StandardOpenOption.READ),
+                StandardCharsets.UTF_8.newDecoder(),
+                READ_BUFFER_SIZE
+        )) {
+            return readColumns(reader, skipHeader);
+        } catch (IOException e) {
+            throw new RuntimeException("failed reading csv file " + path, e);
+        }
+    }
+
+    /**
+     * Reads the whole input into {@link PersonColumns}, fields go straight from the parser into the arrays without
+     * creating a {@link Person} per row.
+     */
+    public PersonColumns readColumns(Reader readable, boolean skipHeader) {
+        long startedAt = System.nanoTime();
+        PersonColumns columns = new PersonColumns();
+        try (CsvReader<Void> reader = newReader(readable, PersonCsvHandler.appendingTo(columns, skipHeader))) {
+            // The handler appends every record to the columns and skips it, so the loop body never runs
+            for (Void ignored : reader) {
+            }
         } catch (IOException e) {
             throw new RuntimeException("failed reading csv file", e);
         }
+        logResult(columns.size(), startedAt);
+        return columns;
+    }
+
+    /**
+     * Parses the file on {@code parallelism} threads, it is split into ranges of whole records that are parsed
+     * independently. Ordered ingestion hands the chunks over in file order from the calling thread, a range's last
+     * chunk may be smaller than {@code chunkSize}. Unordered ingestion hands them over from the parsing threads as
+     * they fill up, so the consumer has to be thread safe.
+     */
+    public IngestResult ingestParallel(
+            Path path,
+            boolean skipHeader,
+            int chunkSize,
+            int parallelism,
+            boolean ordered,
+            Consumer<List<Person>> chunkConsumer
+    ) {
+        long rangeCount;
+        try {
+            rangeCount = Math.max((long) parallelism * RANGES_PER_THREAD, Files.size(path) / MAX_RANGE_SIZE + 1);
+        } catch (IOException e) {
+            throw new RuntimeException("failed reading csv file " + path, e);
+        }
+        return ingestParallel(path, skipHeader, chunkSize, parallelism, (int) rangeCount, ordered, chunkConsumer);
+    }
+
+    IngestResult ingestParallel(
+            Path path,
+            boolean skipHeader,
+            int chunkSize,
+            int parallelism,
+            int rangeCount,
+            boolean ordered,
+            Consumer<List<Person>> chunkConsumer
+    ) {
+        if (chunkSize < 1 || parallelism < 1) {
+            throw new IllegalArgumentException("chunkSize and parallelism must be positive");
+        }
+        long startedAt = System.nanoTime();
+        long rows;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+             ExecutorService executor = new ForkJoinPool(parallelism)) {
+            try {
+                List<CsvFileRanges.Range> ranges = CsvFileRanges.split(channel, rangeCount, executor);
+                rows = ordered
+                        ? ingestOrdered(channel, ranges, skipHeader, chunkSize, parallelism, executor, chunkConsumer)
+                        : ingestUnordered(channel, ranges, skipHeader, chunkSize, executor, chunkConsumer);
+            } catch (IOException | RuntimeException e) {
+                executor.shutdownNow();
+                throw e;
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("failed reading csv file " + path, e);
+        }
+        return logResult(rows, startedAt);
+    }
+
+    /**
+     * At most two ranges per thread are parsed ahead of the one being handed over.
+     */
+    private long ingestOrdered(
+            FileChannel channel,
+            List<CsvFileRanges.Range> ranges,
+            boolean skipHeader,
+            int chunkSize,
+            int parallelism,
+            ExecutorService executor,
+            Consumer<List<Person>> chunkConsumer
+    ) throws IOException {
+        long rows = 0;
+        Deque<Future<List<List<Person>>>> pending = new ArrayDeque<>();
+        Iterator<CsvFileRanges.Range> remaining = ranges.iterator();
+        while (remaining.hasNext() || !pending.isEmpty()) {
+            while (pending.size() < parallelism * 2 && remaining.hasNext()) {
+                CsvFileRanges.Range range = remaining.next();
+                pending.add(executor.submit(() -> {
+                    List<List<Person>> chunks = new ArrayList<>();
+                    parseRange(channel, range, skipHeader, chunkSize, chunks::add);
+                    return chunks;
+                }));
+            }
+            for (List<Person> chunk : CsvFileRanges.await(pending.poll())) {
+                chunkConsumer.accept(chunk);
+                rows += chunk.size();
+            }
+        }
+        return rows;
+    }
+
+    private long ingestUnordered(
+            FileChannel channel,
+            List<CsvFileRanges.Range> ranges,
+            boolean skipHeader,
+            int chunkSize,
+            ExecutorService executor,
+            Consumer<List<Person>> chunkConsumer
+    ) throws IOException {
+        List<Future<Long>> parsed = new ArrayList<>(ranges.size());
+        for (CsvFileRanges.Range range : ranges) {
+            parsed.add(executor.submit(() -> parseRange(channel, range, skipHeader, chunkSize, chunkConsumer)));
+        }
+        long rows = 0;
+        for (Future<Long> rangeRows : parsed) {
+            rows += CsvFileRanges.await(rangeRows);
+        }
+        return rows;
+    }
+
+    private static long parseRange(
+            FileChannel channel,
+            CsvFileRanges.Range range,
+            boolean skipHeader,
+            int chunkSize,
+            Consumer<List<Person>> chunkConsumer
+    ) throws IOException {
+        try (Reader reader = Channels.newReader(
+                CsvFileRanges.open(channel, range),
+                StandardCharsets.UTF_8.newDecoder(),
+                READ_BUFFER_SIZE
+        ); CsvReader<Person> csvReader = newReader(reader, PersonCsvHandler.persons(skipHeader && range.index() == 0))) {
+            return forEachChunk(csvReader, chunkSize, chunkConsumer);
+        }
+    }
+
+    private static long forEachChunk(Iterable<Person> persons, int chunkSize, Consumer<List<Person>> chunkConsumer) {
+        long rows = 0;
+        List<Person> chunk = new ArrayList<>(chunkSize);
+        for (Person person : persons) {
+            chunk.add(person);
+            if (chunk.size() == chunkSize) {
+                chunkConsumer.accept(chunk);
+                rows += chunk.size();
+                chunk = new ArrayList<>(chunkSize);
+            }
+        }
+        if (!chunk.isEmpty()) {
+            chunkConsumer.accept(chunk);
+            rows += chunk.size();
+        }
+        return rows;
+    }
+
+    private IngestResult logResult(long rows, long startedAt) {
+        IngestResult result = new IngestResult(rows, Duration.ofNanos(System.nanoTime() - startedAt));
+        log.info("ingested {} rows in {} ms, {} rows/s",
+                result.rows(), result.elapsed().toMillis(), Math.round(result.rowsPerSecond()));
+        return result;
+    }
+
+    private static <T> CsvReader<T> newReader(Reader readable, PersonCsvHandler<T> handler) {
+        return CsvReader.builder()
+                .fieldSeparator(',')
+                .commentStrategy(CommentStrategy.SKIP)
+                .build(handler, readable);
     }
 }
@@ -0,0 +1,165 @@
+package com.doppelganger113.commandrunner;
+
+import java.util.Arrays;
+
+/**
+ * Persons stored as one primitive array per field, a row takes 16 bytes instead of a {@link Person} object and its
+ * reference. The arrays grow as rows are added.
+ */
+public final class PersonColumns {
+
+    private static final int DEFAULT_CAPACITY = 1024;
+    private static final int MAX_CAPACITY = Integer.MAX_VALUE - 8;
+
+    private long[] index;
+    private float[] height;
+    private float[] weight;
+    private int size;
+
+    /**
+     * @param count number of values that were aggregated, NaN is returned for the others when it is 0
+     */
+    public record Stats(int count, float min, float max, double mean) {
+    }
+
+    public PersonColumns() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public PersonColumns(int initialCapacity) {
+        index = new long[initialCapacity];
+        height = new float[initialCapacity];
+        weight = new float[initialCapacity];
+    }
+
+    public void add(long index, float height, float weight) {
+        if (size == this.index.length) {
+            grow();
+        }
+        this.index[size] = index;
+        this.height[size] = height;
+        this.weight[size] = weight;
+        size++;
+    }
+
+    public void add(Person person) {
+        add(person.index(), person.height(), person.weight());
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public Person get(int row) {
+        if (row < 0 || row >= size) {
+            throw new IndexOutOfBoundsException("row " + row + " of " + size);
+        }
+        return new Person(index[row], height[row], weight[row]);
+    }
+
+    /**
+     * Releases the capacity that was not used, for columns that are kept after they were filled.
+     */
+    public void trimToSize() {
+        index = Arrays.copyOf(index, size);
+        height = Arrays.copyOf(height, size);
+        weight = Arrays.copyOf(weight, size);
+    }
+
+    public Stats heightStats() {
+        return stats(height, size);
+    }
+
+    public Stats weightStats() {
+        return stats(weight, size);
+    }
+
+    /**
+     * @see #histogram(float[], int, float, float, int)
+     */
+    public int[] heightHistogram(float min, float max, int buckets) {
+        return histogram(height, size, min, max, buckets);
+    }
+
+    /**
+     * @see #histogram(float[], int, float, float, int)
+     */
+    public int[] weightHistogram(float min, float max, int buckets) {
+        return histogram(weight, size, min, max, buckets);
+    }
+
+    private void grow() {
+        if (size == MAX_CAPACITY) {
+            throw new IllegalStateException("PersonColumns can not hold more than " + MAX_CAPACITY + " rows");
+        }
+        int capacity = newCapacity(size);
+        index = Arrays.copyOf(index, capacity);
+        height = Arrays.copyOf(height, capacity);
+        weight = Arrays.copyOf(weight, capacity);
+    }
+
+    /**
+     * Grows by half, computed in {@code long} so that large sizes do not overflow.
+     */
+    static int newCapacity(int size) {
+        return (int) Math.min(MAX_CAPACITY, Math.max(DEFAULT_CAPACITY, size + (long) (size >> 1)));
+    }
+
+    /**
+     * Four independent accumulators per aggregate, so consecutive iterations do not wait on each other's result.
+     */
+    private static Stats stats(float[] values, int size) {
+        if (size == 0) {
+            return new Stats(0, Float.NaN, Float.NaN, Double.NaN);
+        }
+        float min0 = Float.POSITIVE_INFINITY, min1 = min0, min2 = min0, min3 = min0;
+        float max0 = Float.NEGATIVE_INFINITY, max1 = max0, max2 = max0, max3 = max0;
+        double sum0 = 0, sum1 = 0, sum2 = 0, sum3 = 0;
+        int i = 0;
+        for (; i + 3 < size; i += 4) {
+            float v0 = values[i], v1 = values[i + 1], v2 = values[i + 2], v3 = values[i + 3];
+            min0 = Math.min(min0, v0);
+            min1 = Math.min(min1, v1);
+            min2 = Math.min(min2, v2);
+            min3 = Math.min(min3, v3);
+            max0 = Math.max(max0, v0);
+            max1 = Math.max(max1, v1);
+            max2 = Math.max(max2, v2);
+            max3 = Math.max(max3, v3);
+            sum0 += v0;
+            sum1 += v1;
+            sum2 += v2;
+            sum3 += v3;
+        }
+        for (; i < size; i++) {
+            min0 = Math.min(min0, values[i]);
+            max0 = Math.max(max0, values[i]);
+            sum0 += values[i];
+        }
+        return new Stats(
+                size,
+                Math.min(Math.min(min0, min1), Math.min(min2, min3)),
+                Math.max(Math.max(max0, max1), Math.max(max2, max3)),
+                (sum0 + sum1 + sum2 + sum3) / size
+        );
+    }
+
+    /**
+     * Counts of values in {@code buckets} equally wide buckets between {@code min} and {@code max}, both inclusive.
+     * Values outside of the range are not counted.
+     */
+    private static int[] histogram(float[] values, int size, float min, float max, int buckets) {
+        if (buckets < 1 || !(max > min)) {
+            throw new IllegalArgumentException("Expected at least one bucket and max above min");
+        }
+        int[] counts = new int[buckets];
+        float scale = buckets / (max - min);
+        for (int i = 0; i < size; i++) {
+            float value = values[i];
+            if (value >= min && value <= max) {
+                counts[Math.min(buckets - 1, (int) ((value - min) * scale))]++;
+            }
+        }
+        return counts;
+    }
+}
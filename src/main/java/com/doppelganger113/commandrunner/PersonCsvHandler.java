@@ -0,0 +1,94 @@
+package com.doppelganger113.commandrunner;
+
+import de.siegmar.fastcsv.reader.AbstractBaseCsvCallbackHandler;
+import de.siegmar.fastcsv.reader.RecordWrapper;
+
+/**
+ * Reads every {@code index, height, weight} record as it is parsed, fields are read into primitives without being
+ * copied into strings first.
+ */
+abstract class PersonCsvHandler<T> extends AbstractBaseCsvCallbackHandler<T> {
+
+    private static final int ALL_FIELDS = 0b111;
+
+    private boolean skipHeader;
+    private int parsedFields;
+    private long index;
+    private float height;
+    private float weight;
+
+    /**
+     * @param skipHeader whether the first record is a header, it is skipped without parsing its fields
+     */
+    PersonCsvHandler(boolean skipHeader) {
+        this.skipHeader = skipHeader;
+    }
+
+    /**
+     * Builds a {@link Person} of every record.
+     */
+    static PersonCsvHandler<Person> persons(boolean skipHeader) {
+        return new PersonCsvHandler<>(skipHeader) {
+            @Override
+            protected Person toRecord(long index, float height, float weight) {
+                return new Person(index, height, weight);
+            }
+        };
+    }
+
+    /**
+     * Appends every record to the columns, the reader does not return any record.
+     */
+    static PersonCsvHandler<Void> appendingTo(PersonColumns columns, boolean skipHeader) {
+        return new PersonCsvHandler<>(skipHeader) {
+            @Override
+            protected Void toRecord(long index, float height, float weight) {
+                columns.add(index, height, weight);
+                return null;
+            }
+        };
+    }
+
+    /**
+     * @return record handed out by the reader, null to skip it
+     */
+    protected abstract T toRecord(long index, float height, float weight);
+
+    @Override
+    protected void handleBegin(long startingLineNumber) {
+        parsedFields = 0;
+    }
+
+    @Override
+    protected void handleField(int fieldIdx, char[] buf, int offset, int len, boolean quoted) {
+        if (skipHeader || len == 0) {
+            // Empty lines are reported as a single empty field, missing fields are rejected by buildRecord
+            return;
+        }
+        switch (fieldIdx) {
+            case 0 -> index = CsvNumbers.parseLong(buf, offset, len);
+            case 1 -> height = CsvNumbers.parseFloat(buf, offset, len);
+            case 2 -> weight = CsvNumbers.parseFloat(buf, offset, len);
+            default -> {
+                return;
+            }
+        }
+        parsedFields |= 1 << fieldIdx;
+    }
+
+    @Override
+    protected RecordWrapper<T> buildRecord() {
+        if (isComment() || isEmptyLine()) {
+            return null;
+        }
+        if (skipHeader) {
+            skipHeader = false;
+            return null;
+        }
+        if (parsedFields != ALL_FIELDS) {
+            throw new IllegalArgumentException("Expected index, height and weight in line " + getStartingLineNumber());
+        }
+        T record = toRecord(index, height, weight);
+        return record == null ? null : wrapRecord(record);
+    }
+}
@@ -1,6 +1,7 @@
 package com.doppelganger113.commandrunner.batching.job;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.Immutable;
 import org.hibernate.annotations.JdbcTypeCode;
 import org.hibernate.type.SqlTypes;
 
@@ -17,10 +18,19 @@ public class Job {
 
     private String name;
 
+    /**
+     * Arguments are never changed once a job is created, so they are not compared when entities are flushed.
+     */
+    @Immutable
     @JdbcTypeCode(SqlTypes.JSON)
-    @Convert(converter = JsonHashMapConverter.class)
     private HashMap<String, Object> arguments;
 
+    /**
+     * Arguments read by {@link JobRowMapper} that are decoded by {@link #getArguments()}.
+     */
+    @Transient
+    private JobArguments encodedArguments;
+
     @Column(name = "arguments_hash")
     private String argumentsHash;
 
@@ -28,7 +38,7 @@ public class Job {
     @Enumerated(EnumType.STRING)
     private JobState state;
 
-    @Column(name = "created_at", insertable = false)
+    @Column(name = "created_at", insertable = false, updatable = false)
     private LocalDateTime createdAt;
 
     @Column(name = "updated_at")
@@ -54,6 +64,21 @@ public class Job {
 
     private String error;
 
+    @Column(name = "progress_done")
+    private Long progressDone;
+
+    @Column(name = "progress_total")
+    private Long progressTotal;
+
+    @Column(name = "timeout_ms")
+    private Long timeoutMs;
+
+    @Column(name = "next_attempt_at")
+    private LocalDateTime nextAttemptAt;
+
+    @Column(name = "fan_out")
+    private Integer fanOut;
+
     public String getName() {
         return name;
     }
@@ -63,11 +88,17 @@ public class Job {
     }
 
     public HashMap<String, Object> getArguments() {
-        return arguments;
+        return encodedArguments == null ? arguments : encodedArguments.get();
     }
 
     public void setArguments(HashMap<String, Object> arguments) {
         this.arguments = arguments;
+        this.encodedArguments = null;
+    }
+
+    void setEncodedArguments(JobArguments encodedArguments) {
+        this.arguments = null;
+        this.encodedArguments = encodedArguments;
     }
 
     public String getArgumentsHash() {
@@ -158,6 +189,46 @@ public class Job {
         this.error = error;
     }
 
+    public Long getProgressDone() {
+        return progressDone;
+    }
+
+    public void setProgressDone(Long progressDone) {
+        this.progressDone = progressDone;
+    }
+
+    public Long getProgressTotal() {
+        return progressTotal;
+    }
+
+    public void setProgressTotal(Long progressTotal) {
+        this.progressTotal = progressTotal;
+    }
+
+    public Long getTimeoutMs() {
+        return timeoutMs;
+    }
+
+    public void setTimeoutMs(Long timeoutMs) {
+        this.timeoutMs = timeoutMs;
+    }
+
+    public LocalDateTime getNextAttemptAt() {
+        return nextAttemptAt;
+    }
+
+    public void setNextAttemptAt(LocalDateTime nextAttemptAt) {
+        this.nextAttemptAt = nextAttemptAt;
+    }
+
+    public Integer getFanOut() {
+        return fanOut;
+    }
+
+    public void setFanOut(Integer fanOut) {
+        this.fanOut = fanOut;
+    }
+
     public LocalDateTime getCompletedAt() {
         return completedAt;
     }
@@ -172,7 +243,7 @@ public class Job {
         Job job = (Job) o;
 
         return Objects.equals(name, job.name)
-                && Objects.equals(arguments, job.arguments)
+                && Objects.equals(getArguments(), job.getArguments())
                 && Objects.equals(argumentsHash, job.argumentsHash)
                 && Objects.equals(retryCount, job.retryCount)
                 && Objects.equals(retryLimit, job.retryLimit)
@@ -185,7 +256,7 @@ public class Job {
         if (o == null || getClass() != o.getClass()) return false;
         Job job = (Job) o;
         return Objects.equals(name, job.name)
-                && Objects.equals(arguments, job.arguments)
+                && Objects.equals(getArguments(), job.getArguments())
                 && Objects.equals(argumentsHash, job.argumentsHash)
                 && state == job.state
                 && Objects.equals(createdAt, job.createdAt)
@@ -196,12 +267,17 @@ public class Job {
                 && Objects.equals(retryCount, job.retryCount)
                 && Objects.equals(retryLimit, job.retryLimit)
                 && Objects.equals(parentJobId, job.parentJobId)
-                && Objects.equals(error, job.error);
+                && Objects.equals(error, job.error)
+                && Objects.equals(progressDone, job.progressDone)
+                && Objects.equals(progressTotal, job.progressTotal)
+                && Objects.equals(timeoutMs, job.timeoutMs)
+                && Objects.equals(nextAttemptAt, job.nextAttemptAt)
+                && Objects.equals(fanOut, job.fanOut);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(name, arguments, argumentsHash, state, createdAt, updatedAt, startedAt, completedAt, durationMs, retryCount, retryLimit, parentJobId, error);
+        return Objects.hash(name, getArguments(), argumentsHash, state, createdAt, updatedAt, startedAt, completedAt, durationMs, retryCount, retryLimit, parentJobId, error, progressDone, progressTotal, timeoutMs, nextAttemptAt, fanOut);
     }
 
     @Override
@@ -209,7 +285,7 @@ public class Job {
         return "Job{" +
                 "id=" + id +
                 ", name='" + name + '\'' +
-                ", arguments=" + arguments +
+                ", arguments=" + getArguments() +
                 ", argumentsHash=" + argumentsHash +
                 ", state=" + state +
                 ", createdAt=" + createdAt +
@@ -221,6 +297,11 @@ public class Job {
                 ", retryLimit=" + retryLimit +
                 ", parentJobId=" + parentJobId +
                 ", error=" + error +
+                ", progressDone=" + progressDone +
+                ", progressTotal=" + progressTotal +
+                ", timeoutMs=" + timeoutMs +
+                ", nextAttemptAt=" + nextAttemptAt +
+                ", fanOut=" + fanOut +
                 '}';
     }
 }
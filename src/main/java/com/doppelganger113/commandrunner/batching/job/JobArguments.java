@@ -1,4 +1,40 @@
 package com.doppelganger113.commandrunner.batching.job;
 
-public class JobArguments {
+import com.fasterxml.jackson.databind.ObjectReader;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.HashMap;
+
+/**
+ * Arguments of a job as read from the {@code arguments} column, they are only decoded once a processor or a response
+ * asks for them so that jobs that are claimed, retried or listed without them never parse their JSON.
+ */
+public final class JobArguments {
+
+    private final ObjectReader reader;
+    private final byte[] json;
+    private volatile HashMap<String, Object> values;
+
+    JobArguments(ObjectReader reader, byte[] json) {
+        this.reader = reader;
+        this.json = json;
+    }
+
+    /**
+     * Decodes the arguments on the first call, jobs are shared between threads by {@link JobDedupeCache} so
+     * concurrent first calls may both decode them.
+     */
+    HashMap<String, Object> get() {
+        HashMap<String, Object> decoded = values;
+        if (decoded == null) {
+            try {
+                decoded = reader.readValue(json);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot read job arguments", e);
+            }
+            values = decoded;
+        }
+        return decoded;
+    }
 }
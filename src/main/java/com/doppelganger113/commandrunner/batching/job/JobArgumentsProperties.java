@@ -0,0 +1,14 @@
+package com.doppelganger113.commandrunner.batching.job;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * @param lazy whether arguments of jobs read through JDBC are kept as raw JSON until they are used, see
+ *             {@link JobArguments}
+ */
+@ConfigurationProperties(prefix = "jobs.arguments")
+public record JobArgumentsProperties(
+        @DefaultValue("true") boolean lazy
+) {
+}
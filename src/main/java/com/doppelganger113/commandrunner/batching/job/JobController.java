@@ -2,28 +2,81 @@ package com.doppelganger113.commandrunner.batching.job;
 
 import com.doppelganger113.commandrunner.batching.job.dto.JobExecutionOptions;
 import com.doppelganger113.commandrunner.batching.job.dto.JobExecutionResponse;
+import com.doppelganger113.commandrunner.batching.job.dto.JobExecutionStats;
+import com.doppelganger113.commandrunner.batching.job.dto.JobGraphOptions;
+import com.doppelganger113.commandrunner.batching.job.dto.JobQuery;
+import com.doppelganger113.commandrunner.batching.job.dto.JobScheduleOptions;
 import com.doppelganger113.commandrunner.batching.job.dto.JobUpdate;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Set;
 
 @RestController
 @RequestMapping("jobs")
 public class JobController {
 
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    private static final String NDJSON = "application/x-ndjson";
+
     private final JobService jobService;
     private final JobRepository jobRepository;
+    private final JobScheduleService jobScheduleService;
 
-    public JobController(JobService jobService, JobRepository jobRepository) {
+    public JobController(JobService jobService, JobRepository jobRepository, JobScheduleService jobScheduleService) {
         this.jobService = jobService;
         this.jobRepository = jobRepository;
+        this.jobScheduleService = jobScheduleService;
     }
 
+    /**
+     * Newest jobs first, when the page is full the {@value #NEXT_CURSOR_HEADER} header holds the cursor of the next
+     * page. The {@code arguments} and {@code error} fields are only filled in when listed in {@code include}.
+     */
     @GetMapping
-    public List<Job> getJobs() {
-        return jobService.findAll();
+    public ResponseEntity<List<Job>> getJobs(
+            @RequestParam(required = false) String name,
+            @RequestParam(required = false) JobState state,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime createdFrom,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime createdTo,
+            @RequestParam(required = false) Long cursor,
+            @RequestParam(defaultValue = "100") int limit,
+            @RequestParam(defaultValue = "") Set<String> include
+    ) {
+        List<Job> jobs = jobService.findAll(new JobQuery(
+                name, state, createdFrom, createdTo, cursor, limit,
+                include.contains("arguments"), include.contains("error")
+        ));
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (jobs.size() == limit) {
+            response.header(NEXT_CURSOR_HEADER, String.valueOf(jobs.getLast().getId()));
+        }
+        return response.body(jobs);
+    }
+
+    @GetMapping(value = "/export", produces = NDJSON)
+    public ResponseEntity<StreamingResponseBody> exportJobs(
+            @RequestParam(required = false) String name,
+            @RequestParam(required = false) JobState state,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime createdFrom,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime createdTo,
+            @RequestParam(defaultValue = "") Set<String> include
+    ) {
+        JobQuery query = new JobQuery(
+                name, state, createdFrom, createdTo, null, 0,
+                include.contains("arguments"), include.contains("error")
+        );
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(NDJSON))
+                .body(outputStream -> jobService.exportJobs(query, outputStream));
     }
 
     @GetMapping("/available")
@@ -31,16 +84,79 @@ public class JobController {
         return jobService.getAvailableJobs();
     }
 
+    @GetMapping("/stats")
+    public JobExecutionStats getExecutionStats() {
+        return jobService.getExecutionStats();
+    }
+
+    @GetMapping("/dedupe-cache")
+    public JobDedupeCache.Stats getDedupeCacheStats() {
+        return jobService.getDedupeCacheStats();
+    }
+
+    @GetMapping("/schedules")
+    public List<JobSchedule> getSchedules() {
+        return jobScheduleService.findAll();
+    }
+
+    /**
+     * Submits a job every cron or fixed rate tick, {@value JobScheduleService#FIRE_TIME_PLACEHOLDER} in the
+     * arguments is replaced with the tick.
+     */
+    @PostMapping("/schedules")
+    public JobSchedule createSchedule(@RequestBody JobScheduleOptions jobScheduleOptions) {
+        return jobScheduleService.createSchedule(jobScheduleOptions);
+    }
+
+    @DeleteMapping("/schedules/{id}")
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    public void deleteSchedule(@PathVariable long id) {
+        jobScheduleService.deleteSchedule(id);
+    }
+
+    /**
+     * Server-sent events for state changes of all jobs, or of the jobs with the given name.
+     */
+    @GetMapping(value = "/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter getJobsEvents(@RequestParam(required = false) String name) {
+        return jobService.subscribeToJobEvents(name);
+    }
+
+    /**
+     * Server-sent events for state changes of the job, starting with its current state and ending once it is done.
+     */
+    @GetMapping(value = "/{id}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter getJobEvents(@PathVariable long id) {
+        return jobService.subscribeToJobEvents(id);
+    }
+
     @GetMapping("/{id}")
     public Job getJob(@PathVariable long id) {
         return jobRepository.findById(id).orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
     }
 
+    /**
+     * Children of a job graph parent in creation order.
+     */
+    @GetMapping("/{id}/children")
+    public List<Job> getChildJobs(@PathVariable long id) {
+        return jobService.findChildJobs(id);
+    }
+
+    /**
+     * Failures of every attempt of the job with their stack traces, oldest first. The job itself only keeps a summary
+     * of the latest failure in {@code error}.
+     */
+    @GetMapping("/{id}/errors")
+    public List<JobError> getJobErrors(@PathVariable long id) {
+        return jobService.findJobErrors(id);
+    }
+
     @PatchMapping("/{id}")
     @ResponseStatus(HttpStatus.NO_CONTENT)
     public void updateJob(@PathVariable long id, @RequestBody JobUpdate jobUpdate) {
         if (jobUpdate.stop()) {
-            jobRepository.setJobToStop(id);
+            jobService.stopJob(id);
         }
     }
 
@@ -48,4 +164,14 @@ public class JobController {
     public JobExecutionResponse execute(@RequestBody JobExecutionOptions jobExecutionOptions) {
         return jobService.executeJob(jobExecutionOptions);
     }
+
+    @PostMapping("/graph")
+    public JobExecutionResponse executeGraph(@RequestBody JobGraphOptions jobGraphOptions) {
+        return jobService.executeJobGraph(jobGraphOptions);
+    }
+
+    @PostMapping("/batch")
+    public List<JobExecutionResponse> executeBatch(@RequestBody List<JobExecutionOptions> jobExecutionOptions) {
+        return jobService.executeJobs(jobExecutionOptions);
+    }
 }
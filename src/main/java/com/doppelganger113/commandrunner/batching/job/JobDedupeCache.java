@@ -0,0 +1,205 @@
+package com.doppelganger113.commandrunner.batching.job;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Answers repeated job submissions without a database round trip.
+ * <p>
+ * Terminal jobs never change, so they are cached by (name, argumentsHash) with size and TTL based eviction. Jobs
+ * that are still active are indexed by name and kept up to date by the state transitions done through
+ * {@link JobPersistenceService}, only jobs created by this node are indexed as only their transitions are seen.
+ * In the distributed queue mode jobs run on other nodes, so active jobs are not indexed at all.
+ */
+@Component
+public class JobDedupeCache implements MeterBinder {
+
+    public record Key(String name, String argumentsHash) {
+    }
+
+    public record Stats(
+            boolean enabled,
+            long terminalHits,
+            long terminalMisses,
+            long terminalEvictions,
+            long terminalSize,
+            long activeHits,
+            long activeMisses,
+            long activeSize
+    ) {
+    }
+
+    private final boolean enabled;
+    private final boolean activeIndexEnabled;
+    private final Cache<Key, Job> terminalJobs;
+    private final ConcurrentHashMap<String, Job> activeJobsByName = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Long, String> activeJobNamesById = new ConcurrentHashMap<>();
+    private final LongAdder activeHits = new LongAdder();
+    private final LongAdder activeMisses = new LongAdder();
+
+    public JobDedupeCache(JobDedupeCacheProperties properties, JobQueueProperties queueProperties) {
+        this.enabled = properties.enabled();
+        this.activeIndexEnabled = properties.enabled() && !queueProperties.isDistributed();
+        this.terminalJobs = Caffeine.newBuilder()
+                .maximumSize(properties.maximumSize())
+                .expireAfterWrite(properties.ttl())
+                .recordStats()
+                .build();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public Optional<Job> findTerminal(String name, String argumentsHash) {
+        if (!enabled) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(terminalJobs.getIfPresent(new Key(name, argumentsHash)));
+    }
+
+    public Optional<Job> findActive(String name) {
+        if (!activeIndexEnabled) {
+            return Optional.empty();
+        }
+        Job job = activeJobsByName.get(name);
+        if (job == null) {
+            activeMisses.increment();
+            return Optional.empty();
+        }
+        activeHits.increment();
+        return Optional.of(job);
+    }
+
+    public void putTerminal(Job job) {
+        if (!enabled || !JobPersistenceService.JOB_DONE_STATES.contains(job.getState())) {
+            return;
+        }
+        terminalJobs.put(new Key(job.getName(), job.getArgumentsHash()), job);
+    }
+
+    /**
+     * Indexes a job created by this node once the creating transaction commits.
+     */
+    public void putActive(Job job) {
+        if (!activeIndexEnabled) {
+            return;
+        }
+        Job snapshot = snapshot(job, job.getState());
+        afterCommit(() -> {
+            activeJobNamesById.put(snapshot.getId(), snapshot.getName());
+            activeJobsByName.put(snapshot.getName(), snapshot);
+        });
+    }
+
+    /**
+     * Applies a state transition of a job once the surrounding transaction commits, jobs leaving the active states
+     * are dropped from the index and are cached as terminal on their next lookup from the database.
+     */
+    public void onStateChange(Long jobId, JobState state) {
+        if (!activeIndexEnabled) {
+            return;
+        }
+        afterCommit(() -> {
+            String name = activeJobNamesById.get(jobId);
+            if (name == null) {
+                return;
+            }
+            if (JobPersistenceService.JOB_DONE_STATES.contains(state)) {
+                activeJobNamesById.remove(jobId);
+                activeJobsByName.computeIfPresent(name, (key, job) -> Objects.equals(job.getId(), jobId) ? null : job);
+                return;
+            }
+            activeJobsByName.computeIfPresent(name, (key, job) ->
+                    Objects.equals(job.getId(), jobId) ? snapshot(job, state) : job
+            );
+        });
+    }
+
+    public void invalidateAll() {
+        terminalJobs.invalidateAll();
+        activeJobsByName.clear();
+        activeJobNamesById.clear();
+    }
+
+    public Stats getStats() {
+        CacheStats stats = terminalJobs.stats();
+        return new Stats(
+                enabled,
+                stats.hitCount(),
+                stats.missCount(),
+                stats.evictionCount(),
+                terminalJobs.estimatedSize(),
+                activeHits.sum(),
+                activeMisses.sum(),
+                activeJobsByName.size()
+        );
+    }
+
+    /**
+     * Caffeine statistics of the terminal jobs as {@code cache.*} meters of cache {@code jobs.dedupe.terminal},
+     * plus hits, misses and size of the active index.
+     */
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, terminalJobs, "jobs.dedupe.terminal");
+        FunctionCounter.builder("jobs.dedupe.active.hits", activeHits, LongAdder::sum).register(registry);
+        FunctionCounter.builder("jobs.dedupe.active.misses", activeMisses, LongAdder::sum).register(registry);
+        Gauge.builder("jobs.dedupe.active.size", activeJobsByName, ConcurrentHashMap::size).register(registry);
+    }
+
+    private static void afterCommit(Runnable runnable) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            runnable.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                runnable.run();
+            }
+        });
+    }
+
+    /**
+     * Cached jobs are shared between request threads, so they are never mutated, a transition replaces the
+     * indexed job with a copy in the new state.
+     */
+    private static Job snapshot(Job job, JobState state) {
+        Job copy = new Job();
+        copy.setId(job.getId());
+        copy.setName(job.getName());
+        copy.setArguments(job.getArguments());
+        copy.setArgumentsHash(job.getArgumentsHash());
+        copy.setState(state);
+        copy.setCreatedAt(job.getCreatedAt());
+        copy.setUpdatedAt(job.getUpdatedAt());
+        copy.setStartedAt(job.getStartedAt());
+        copy.setCompletedAt(job.getCompletedAt());
+        copy.setDurationMs(job.getDurationMs());
+        copy.setRetryCount(job.getRetryCount());
+        copy.setRetryLimit(job.getRetryLimit());
+        copy.setParentJobId(job.getParentJobId());
+        copy.setError(job.getError());
+        copy.setProgressDone(job.getProgressDone());
+        copy.setProgressTotal(job.getProgressTotal());
+        copy.setTimeoutMs(job.getTimeoutMs());
+        copy.setNextAttemptAt(job.getNextAttemptAt());
+        copy.setFanOut(job.getFanOut());
+        return copy;
+    }
+}
@@ -0,0 +1,14 @@
+package com.doppelganger113.commandrunner.batching.job;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "jobs.dedupe-cache")
+public record JobDedupeCacheProperties(
+        @DefaultValue("true") boolean enabled,
+        @DefaultValue("10000") long maximumSize,
+        @DefaultValue("10m") Duration ttl
+) {
+}
@@ -0,0 +1,98 @@
+package com.doppelganger113.commandrunner.batching.job;
+
+import java.time.Instant;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+/**
+ * Failure of one attempt of a job as stored in {@code job_errors}.
+ *
+ * @param attempt       attempt that failed, starting at 1
+ * @param exceptionType class of the thrown exception, null for errors recorded before they were structured
+ */
+public record JobError(
+        Long id,
+        Long jobId,
+        int attempt,
+        String exceptionType,
+        String message,
+        String stackTrace,
+        Instant createdAt
+) {
+
+    static final int SUMMARY_LENGTH = 512;
+    static final int MESSAGE_LENGTH = 4096;
+    static final int STACK_TRACE_LENGTH = 16384;
+
+    /**
+     * Frames written per exception of the cause chain, deep recursion would otherwise fill the whole trace.
+     */
+    static final int MAX_FRAMES = 64;
+
+    /**
+     * What is written for a failure: a short summary for the {@code jobs} row and the capped details for
+     * {@code job_errors}.
+     */
+    public record Details(String summary, String exceptionType, String message, String stackTrace) {
+
+        public static Details of(Throwable throwable) {
+            return new Details(
+                    truncate(throwable.toString(), SUMMARY_LENGTH),
+                    throwable.getClass().getName(),
+                    truncate(throwable.getMessage(), MESSAGE_LENGTH),
+                    truncate(stackTraceOf(throwable), STACK_TRACE_LENGTH)
+            );
+        }
+    }
+
+    /**
+     * Like {@link Throwable#printStackTrace()} for the cause chain: frames a cause shares with the exception it
+     * caused are left out and at most {@link #MAX_FRAMES} frames are written per exception.
+     */
+    static String stackTraceOf(Throwable throwable) {
+        StringBuilder builder = new StringBuilder();
+        Set<Throwable> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+        StackTraceElement[] enclosingTrace = new StackTraceElement[0];
+        for (Throwable current = throwable; current != null; current = current.getCause()) {
+            if (!seen.add(current)) {
+                builder.append("[CIRCULAR REFERENCE: ").append(current).append("]\n");
+                break;
+            }
+            if (current != throwable) {
+                builder.append("Caused by: ");
+            }
+            builder.append(current).append('\n');
+
+            StackTraceElement[] trace = current.getStackTrace();
+            int shared = 0;
+            while (shared < trace.length && shared < enclosingTrace.length
+                    && trace[trace.length - 1 - shared].equals(enclosingTrace[enclosingTrace.length - 1 - shared])) {
+                shared++;
+            }
+            int unique = trace.length - shared;
+            int written = Math.min(unique, MAX_FRAMES);
+            for (int i = 0; i < written; i++) {
+                builder.append("\tat ").append(trace[i]).append('\n');
+            }
+            if (written < unique) {
+                builder.append("\t... ").append(unique - written).append(" frames omitted\n");
+            }
+            if (shared > 0) {
+                builder.append("\t... ").append(shared).append(" more\n");
+            }
+            if (builder.length() >= STACK_TRACE_LENGTH) {
+                break;
+            }
+            enclosingTrace = trace;
+        }
+        return builder.toString();
+    }
+
+    private static String truncate(String value, int length) {
+        if (value == null || value.length() <= length) {
+            return value;
+        }
+        return value.substring(0, length - 3) + "...";
+    }
+}
@@ -0,0 +1,44 @@
+package com.doppelganger113.commandrunner.batching.job;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.List;
+
+/**
+ * Failures of job attempts, they are written by {@link JobJdbcRepository#failOrRetry} together with the job.
+ */
+@Repository
+public class JobErrorRepository {
+
+    private static final String FIND_BY_JOB_ID = "SELECT * FROM job_errors WHERE job_id = ? ORDER BY id";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public JobErrorRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Oldest failure first.
+     */
+    public List<JobError> findByJobId(long jobId) {
+        return jdbcTemplate.query(FIND_BY_JOB_ID, this::mapError, jobId);
+    }
+
+    private JobError mapError(ResultSet rs, int rowNum) throws SQLException {
+        Timestamp createdAt = rs.getTimestamp("created_at");
+        return new JobError(
+                rs.getLong("id"),
+                rs.getLong("job_id"),
+                rs.getInt("attempt"),
+                rs.getString("exception_type"),
+                rs.getString("message"),
+                rs.getString("stack_trace"),
+                createdAt == null ? null : createdAt.toInstant()
+        );
+    }
+}
@@ -0,0 +1,11 @@
+package com.doppelganger113.commandrunner.batching.job;
+
+/**
+ * A job was created or changed its state, published on commit by the {@code jobs} table triggers.
+ */
+public record JobEvent(
+        Long id,
+        String name,
+        JobState state
+) {
+}
@@ -0,0 +1,194 @@
+package com.doppelganger113.commandrunner.batching.job;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+/**
+ * Streams job events from the {@link JobEventBus} to server-sent events subscribers.
+ * <p>
+ * Every subscriber gets a bounded queue drained by its own virtual thread, so idle subscribers only cost a parked
+ * thread and a slow client can not hold up the event listener or other clients. A client that falls behind by more
+ * than the queue capacity is disconnected and is expected to reconnect. Single job streams read the state of their
+ * job again only after the {@link JobEventListener} reconnected, or on every keep-alive when events are disabled and
+ * nothing else would tell them about changes.
+ */
+@Component
+public class JobEventBroadcaster {
+
+    private static final int SUBSCRIBER_QUEUE_CAPACITY = 64;
+
+    private final Logger log = LoggerFactory.getLogger(JobEventBroadcaster.class);
+
+    private final JobEventsProperties properties;
+    private final JobEventBus.Subscription subscription;
+    private final JobEventBus.Subscription reconnectSubscription;
+    private final ConcurrentHashMap<Long, Set<Subscriber>> jobSubscribers = new ConcurrentHashMap<>();
+    private final Set<Subscriber> streamSubscribers = ConcurrentHashMap.newKeySet();
+
+    public JobEventBroadcaster(JobEventsProperties properties, JobEventBus jobEventBus) {
+        this.properties = properties;
+        this.subscription = jobEventBus.subscribe(this::broadcast);
+        this.reconnectSubscription = jobEventBus.subscribeToReconnects(this::catchUp);
+    }
+
+    /**
+     * Streams the state changes of one job, starting with its current state, and completes once the job is done.
+     *
+     * @param currentEvent reads the current state of the job, also used to catch up when an event was missed
+     * @return empty when the job does not exist
+     */
+    public Optional<SseEmitter> subscribeToJob(long jobId, Supplier<Optional<JobEvent>> currentEvent) {
+        Subscriber subscriber = new Subscriber(null, currentEvent);
+        // Registered before reading the current state, so no change after the read is missed
+        jobSubscribers.computeIfAbsent(jobId, id -> ConcurrentHashMap.newKeySet()).add(subscriber);
+        Optional<JobEvent> current = currentEvent.get();
+        if (current.isEmpty()) {
+            unregister(subscriber, jobId);
+            return Optional.empty();
+        }
+        subscriber.offer(current.get());
+        subscriber.start(() -> unregister(subscriber, jobId));
+        return Optional.of(subscriber.emitter);
+    }
+
+    /**
+     * Streams the state changes of all jobs, or only of jobs with the given name.
+     */
+    public SseEmitter subscribeToJobs(String name) {
+        Subscriber subscriber = new Subscriber(name, null);
+        streamSubscribers.add(subscriber);
+        subscriber.start(() -> streamSubscribers.remove(subscriber));
+        return subscriber.emitter;
+    }
+
+    public int getSubscriberCount() {
+        return streamSubscribers.size() + jobSubscribers.values().stream().mapToInt(Set::size).sum();
+    }
+
+    private void broadcast(JobEvent event) {
+        Set<Subscriber> subscribers = jobSubscribers.get(event.id());
+        if (subscribers != null) {
+            subscribers.forEach(subscriber -> subscriber.offer(event));
+        }
+        for (Subscriber subscriber : streamSubscribers) {
+            if (subscriber.name == null || subscriber.name.equals(event.name())) {
+                subscriber.offer(event);
+            }
+        }
+    }
+
+    private void catchUp() {
+        jobSubscribers.values().forEach(subscribers -> subscribers.forEach(subscriber -> subscriber.catchUp = true));
+    }
+
+    private void unregister(Subscriber subscriber, long jobId) {
+        jobSubscribers.computeIfPresent(jobId, (id, subscribers) -> {
+            subscribers.remove(subscriber);
+            return subscribers.isEmpty() ? null : subscribers;
+        });
+    }
+
+    @PreDestroy
+    public void close() {
+        subscription.close();
+        reconnectSubscription.close();
+        streamSubscribers.forEach(subscriber -> subscriber.emitter.complete());
+        jobSubscribers.values().forEach(subscribers -> subscribers.forEach(subscriber -> subscriber.emitter.complete()));
+    }
+
+    private final class Subscriber {
+        private final String name;
+        private final Supplier<Optional<JobEvent>> currentEvent;
+        private final SseEmitter emitter = new SseEmitter(properties.sseTimeout().toMillis());
+        private final BlockingQueue<JobEvent> events = new ArrayBlockingQueue<>(SUBSCRIBER_QUEUE_CAPACITY);
+        private final AtomicBoolean dropped = new AtomicBoolean();
+        private volatile Thread sender;
+        private volatile boolean catchUp = !properties.enabled();
+
+        private Subscriber(String name, Supplier<Optional<JobEvent>> currentEvent) {
+            this.name = name;
+            this.currentEvent = currentEvent;
+        }
+
+        private boolean isJobSubscriber() {
+            return currentEvent != null;
+        }
+
+        private void offer(JobEvent event) {
+            if (dropped.get() || events.offer(event)) {
+                return;
+            }
+            if (dropped.compareAndSet(false, true)) {
+                log.warn("job event subscriber fell behind, disconnecting it");
+                emitter.complete();
+            }
+        }
+
+        private void start(Runnable unregister) {
+            emitter.onCompletion(this::stop);
+            emitter.onTimeout(this::stop);
+            emitter.onError(error -> stop());
+            sender = Thread.ofVirtual().name("job-event-sender").start(() -> {
+                try {
+                    send();
+                } finally {
+                    unregister.run();
+                }
+            });
+        }
+
+        private void send() {
+            JobState lastState = null;
+            try {
+                while (!Thread.currentThread().isInterrupted()) {
+                    JobEvent event = events.poll(properties.sseKeepAlive().toMillis(), TimeUnit.MILLISECONDS);
+                    boolean idle = event == null;
+                    if (idle && isJobSubscriber() && catchUp) {
+                        catchUp = !properties.enabled();
+                        Optional<JobEvent> current = currentEvent.get();
+                        if (current.isEmpty()) {
+                            emitter.complete();
+                            return;
+                        }
+                        event = current.get();
+                    }
+                    if (event != null && !(isJobSubscriber() && event.state() == lastState)) {
+                        lastState = event.state();
+                        emitter.send(SseEmitter.event().name("state").data(event));
+                        if (isJobSubscriber() && JobPersistenceService.JOB_DONE_STATES.contains(event.state())) {
+                            emitter.complete();
+                            return;
+                        }
+                    } else if (idle) {
+                        // Also tells whether the client is still there
+                        emitter.send(SseEmitter.event().comment("keep-alive"));
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (IOException | IllegalStateException e) {
+                log.debug("job event subscriber disconnected", e);
+            }
+        }
+
+        private void stop() {
+            Thread thread = sender;
+            if (thread != null) {
+                thread.interrupt();
+            }
+        }
+    }
+}
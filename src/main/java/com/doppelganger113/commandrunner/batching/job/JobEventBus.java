@@ -0,0 +1,60 @@
+package com.doppelganger113.commandrunner.batching.job;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Fans job events received by {@link JobEventListener} out to in-process subscribers.
+ * <p>
+ * Subscribers are called on the listener thread one after another, so they must hand off anything slow instead of
+ * doing it in place. Events sent while the listener was reconnecting are lost, reconnect subscribers are told once it
+ * listens again so that they can catch up from the database.
+ */
+@Component
+public class JobEventBus {
+
+    private final Logger log = LoggerFactory.getLogger(JobEventBus.class);
+
+    public interface Subscription extends AutoCloseable {
+        @Override
+        void close();
+    }
+
+    private final List<Consumer<JobEvent>> subscribers = new CopyOnWriteArrayList<>();
+    private final List<Runnable> reconnectSubscribers = new CopyOnWriteArrayList<>();
+
+    public Subscription subscribe(Consumer<JobEvent> subscriber) {
+        subscribers.add(subscriber);
+        return () -> subscribers.remove(subscriber);
+    }
+
+    public Subscription subscribeToReconnects(Runnable subscriber) {
+        reconnectSubscribers.add(subscriber);
+        return () -> reconnectSubscribers.remove(subscriber);
+    }
+
+    public void publish(JobEvent event) {
+        for (Consumer<JobEvent> subscriber : subscribers) {
+            try {
+                subscriber.accept(event);
+            } catch (RuntimeException e) {
+                log.error("job event subscriber failed on {}", event, e);
+            }
+        }
+    }
+
+    public void publishReconnect() {
+        for (Runnable subscriber : reconnectSubscribers) {
+            try {
+                subscriber.run();
+            } catch (RuntimeException e) {
+                log.error("job event reconnect subscriber failed", e);
+            }
+        }
+    }
+}
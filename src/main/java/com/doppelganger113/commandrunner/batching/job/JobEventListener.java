@@ -0,0 +1,125 @@
+package com.doppelganger113.commandrunner.batching.job;
+
+import com.doppelganger113.commandrunner.database.DedicatedConnectionFactory;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+
+/**
+ * Holds a dedicated connection that {@code LISTEN}s on the job events channel and publishes every notification to
+ * the {@link JobEventBus}, reconnecting when the connection is lost.
+ * <p>
+ * Notifications sent while reconnecting are lost, so every time it listens again after losing the connection the
+ * {@link JobEventBus} is told to let subscribers catch up from the database.
+ */
+@Component
+@ConditionalOnProperty(name = "jobs.events.enabled", havingValue = "true", matchIfMissing = true)
+public class JobEventListener {
+
+    static final String CHANNEL = "job_events";
+    private static final int NOTIFICATION_WAIT_MS = 1000;
+
+    private final Logger log = LoggerFactory.getLogger(JobEventListener.class);
+
+    private final DedicatedConnectionFactory connectionFactory;
+    private final JobEventsProperties properties;
+    private final ObjectMapper objectMapper;
+    private final JobEventBus jobEventBus;
+
+    private final Thread listener;
+    private volatile Connection connection;
+    private volatile boolean running = true;
+
+    public JobEventListener(
+            DedicatedConnectionFactory connectionFactory,
+            JobEventsProperties properties,
+            ObjectMapper objectMapper,
+            JobEventBus jobEventBus
+    ) {
+        this.connectionFactory = connectionFactory;
+        this.properties = properties;
+        this.objectMapper = objectMapper;
+        this.jobEventBus = jobEventBus;
+        this.listener = Thread.ofVirtual().name("job-event-listener").start(this::listen);
+    }
+
+    private void listen() {
+        boolean reconnecting = false;
+        while (running) {
+            try (Connection listenConnection = connectionFactory.open()) {
+                connection = listenConnection;
+                try (Statement statement = listenConnection.createStatement()) {
+                    statement.execute("LISTEN " + CHANNEL);
+                }
+                log.info("job event listener listening on {}", CHANNEL);
+                if (reconnecting) {
+                    jobEventBus.publishReconnect();
+                }
+
+                PGConnection pgConnection = listenConnection.unwrap(PGConnection.class);
+                while (running) {
+                    PGNotification[] notifications = pgConnection.getNotifications(NOTIFICATION_WAIT_MS);
+                    if (notifications == null) {
+                        continue;
+                    }
+                    for (PGNotification notification : notifications) {
+                        publish(notification.getParameter());
+                    }
+                }
+            } catch (SQLException | RuntimeException e) {
+                if (!running) {
+                    return;
+                }
+                // Connection details that can not be resolved yet are retried like a lost connection
+                log.warn("job event listener lost its connection, reconnecting in {}", properties.reconnectDelay(), e);
+                reconnecting = true;
+                if (!sleep(properties.reconnectDelay())) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private void publish(String payload) {
+        try {
+            jobEventBus.publish(objectMapper.readValue(payload, JobEvent.class));
+        } catch (JsonProcessingException e) {
+            log.error("job event listener received invalid payload {}", payload, e);
+        }
+    }
+
+    private static boolean sleep(Duration duration) {
+        try {
+            Thread.sleep(duration);
+            return true;
+        } catch (InterruptedException e) {
+            return false;
+        }
+    }
+
+    @PreDestroy
+    public void close() throws InterruptedException {
+        running = false;
+        listener.interrupt();
+        Connection listenConnection = connection;
+        if (listenConnection != null) {
+            try {
+                listenConnection.close();
+            } catch (SQLException e) {
+                log.debug("job event listener failed to close its connection", e);
+            }
+        }
+        listener.join(Duration.ofSeconds(5));
+    }
+}
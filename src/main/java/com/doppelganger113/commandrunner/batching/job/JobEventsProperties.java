@@ -0,0 +1,22 @@
+package com.doppelganger113.commandrunner.batching.job;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * @param enabled        listen for job events on a dedicated database connection
+ * @param reconnectDelay pause before listening again after the connection was lost
+ * @param sseTimeout     lifetime of a server-sent events stream, clients reconnect once it ends
+ * @param sseKeepAlive   interval of comments sent on idle streams, single job streams re-read the state of their job
+ *                       at the next one after the listener reconnected, or at every one when events are disabled
+ */
+@ConfigurationProperties(prefix = "jobs.events")
+public record JobEventsProperties(
+        @DefaultValue("true") boolean enabled,
+        @DefaultValue("5s") Duration reconnectDelay,
+        @DefaultValue("30m") Duration sseTimeout,
+        @DefaultValue("15s") Duration sseKeepAlive
+) {
+}
@@ -1,75 +1,80 @@
 package com.doppelganger113.commandrunner.batching.job;
 
-import com.doppelganger113.commandrunner.batching.job.processors.EmptyRunner;
 import com.doppelganger113.commandrunner.batching.job.processors.JobProcessor;
-import com.doppelganger113.commandrunner.batching.job.processors.JobRunner;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.lang.NonNull;
-import org.springframework.scheduling.annotation.Async;
-import org.springframework.scheduling.annotation.EnableAsync;
 import org.springframework.stereotype.Service;
 
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
 
 @Service
-@EnableAsync
 public class JobExecutor {
 
     private final Logger log = LoggerFactory.getLogger(JobExecutor.class);
 
     private final JobPersistenceService jobPersistenceService;
-
-    public ConcurrentHashMap<String, JobProcessor> map = createMapFromJobProcessors(List.of(
-            new JobRunner(),
-            new EmptyRunner()
-    ));
-
-    public JobExecutor(JobPersistenceService jobPersistenceService) {
+    private final RunningJobRegistry runningJobRegistry;
+    private final JobWatchdog jobWatchdog;
+    private final JobRetryScheduler jobRetryScheduler;
+    private final JobGraphCoordinator jobGraphCoordinator;
+    private final JobMetrics jobMetrics;
+
+    private final JobProcessorRegistry jobProcessorRegistry;
+
+    public JobExecutor(
+            JobPersistenceService jobPersistenceService,
+            RunningJobRegistry runningJobRegistry,
+            JobWatchdog jobWatchdog,
+            JobRetryScheduler jobRetryScheduler,
+            JobGraphCoordinator jobGraphCoordinator,
+            JobMetrics jobMetrics,
+            JobProcessorRegistry jobProcessorRegistry
+    ) {
         this.jobPersistenceService = jobPersistenceService;
-    }
-
-    private ConcurrentHashMap<String, JobProcessor> createMapFromJobProcessors(List<JobProcessor> jobProcessors) {
-        HashMap<String, JobProcessor> map = new HashMap<>();
-        jobProcessors.forEach(jobProcessor -> map.putIfAbsent(jobProcessor.getName(), jobProcessor));
-
-        return new ConcurrentHashMap<>(map);
+        this.runningJobRegistry = runningJobRegistry;
+        this.jobWatchdog = jobWatchdog;
+        this.jobRetryScheduler = jobRetryScheduler;
+        this.jobGraphCoordinator = jobGraphCoordinator;
+        this.jobMetrics = jobMetrics;
+        this.jobProcessorRegistry = jobProcessorRegistry;
     }
 
     /**
      * Mostly used for tests to add custom job processors.
      */
     public void addJobProcessor(JobProcessor jobProcessor) {
-        map.putIfAbsent(jobProcessor.getName(), jobProcessor);
+        jobProcessorRegistry.add(jobProcessor);
     }
 
     public void removeJobProcessor(JobProcessor jobProcessor) {
-        map.remove(jobProcessor.getName());
+        jobProcessorRegistry.remove(jobProcessor);
     }
 
     public void replaceJobProcessor(JobProcessor jobProcessor) {
-        map.replace(jobProcessor.getName(), jobProcessor);
+        jobProcessorRegistry.replace(jobProcessor);
     }
 
     public Optional<JobProcessor> getJobRunnerByName(String name) {
-        return Optional.ofNullable(map.get(name));
+        return jobProcessorRegistry.find(name);
     }
 
     public boolean hasExecutor(String executorName) {
-        return map.containsKey(executorName);
+        return jobProcessorRegistry.contains(executorName);
     }
 
     public record JobSettings(String name) {
     }
 
     public List<JobSettings> getAvailableJobs() {
-        return map.keySet().stream()
+        return jobProcessorRegistry.getNames().stream()
                 .map(JobSettings::new)
                 .toList();
     }
 
-    @Async
+    /**
+     * Runs the job on the calling thread, jobs are handed to {@link JobScheduler} to be executed concurrently.
+     */
     public void execute(@NonNull Job job) {
         Objects.requireNonNull(job);
         var args = job.getArguments();
@@ -81,26 +86,56 @@ public class JobExecutor {
 
         log.debug("job runner execution {}", jobId);
 
+        RunningJob runningJob = runningJobRegistry.register(jobId);
+        long startedAt = System.nanoTime();
         try {
 
             jobRunner.before(args);
 
-            boolean wasStarted = jobPersistenceService.setJobToRunning(jobId);
+            boolean wasStarted;
+            try {
+                wasStarted = jobPersistenceService.setJobToRunning(jobId);
+            } catch (JobPersistenceService.TransitionException e) {
+                // Another node started it first or it was removed, either way it is not this runner's failure
+                log.warn("job runner could not start job {}: {}", jobId, e.getMessage());
+                return;
+            }
             if (!wasStarted) {
+                jobMetrics.recordSkipped(job.getName());
                 log.debug("job runner skipped due to being stopped: {}", jobId);
-                jobPersistenceService.setJobToStopped(jobId);
                 return;
             }
             log.debug("job runner started: {}", jobId);
+            startedAt = System.nanoTime();
 
-            jobRunner.execute(args);
+            try (JobWatchdog.Watch ignored = jobWatchdog.watch(job, runningJob)) {
+                runningJob.runProcessor(() -> jobRunner.execute(args, runningJob));
+            }
 
-            jobPersistenceService.setJobToCompletedOrStopped(jobId);
+            if (!runningJob.finish()) {
+                jobMetrics.recordExecution(job.getName(), JobMetrics.Outcome.TIMED_OUT, startedAt);
+                log.debug("job runner returned after timing out: {}", jobId);
+                return;
+            }
+            JobState state = jobPersistenceService.setJobToCompletedOrStopped(jobId);
+            jobMetrics.recordExecution(
+                    job.getName(),
+                    state == JobState.COMPLETED ? JobMetrics.Outcome.COMPLETED : JobMetrics.Outcome.STOPPED,
+                    startedAt
+            );
             log.debug("job runner finished: {}", jobId);
         } catch (RuntimeException e) {
+            if (!runningJob.finish()) {
+                jobMetrics.recordExecution(job.getName(), JobMetrics.Outcome.TIMED_OUT, startedAt);
+                log.debug("job runner failed after timing out: {}", jobId, e);
+                return;
+            }
+            jobMetrics.recordExecution(job.getName(), JobMetrics.Outcome.FAILED, startedAt);
             log.error("job runner failed: {}", jobId, e);
-            jobPersistenceService.setJobToFailed(jobId, e);
+            jobRetryScheduler.schedule(job, jobPersistenceService.setJobToFailed(jobId, e));
         } finally {
+            runningJobRegistry.unregister(runningJob);
+            jobGraphCoordinator.onChildFinished(job);
             jobRunner.after(args);
         }
     }
@@ -0,0 +1,135 @@
+package com.doppelganger113.commandrunner.batching.job;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Runs job graphs: a parent job with children that may depend on each other through {@code job_dependencies}.
+ * <p>
+ * All jobs of a graph are created WAITING. Children whose dependencies completed are released to READY, at most
+ * {@code fan_out} of them are queued or running at a time, and the graph is advanced again every time one of its
+ * children finishes. Once all children completed the parent itself is released and runs as the last step of the
+ * graph. A failed child fails the parent, a stopped child stops it, and either way the remaining children are
+ * stopped. The number of completed children is kept as the progress of the parent.
+ */
+@Component
+public class JobGraphCoordinator {
+
+    private final Logger log = LoggerFactory.getLogger(JobGraphCoordinator.class);
+
+    private record Advance(List<Job> released, List<Long> stopping) {
+        static final Advance NONE = new Advance(List.of(), List.of());
+    }
+
+    private final JobGraphRepository jobGraphRepository;
+    private final JobJdbcRepository jobJdbcRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final RunningJobRegistry runningJobRegistry;
+    private final JobRetryScheduler jobRetryScheduler;
+
+    public JobGraphCoordinator(
+            JobGraphRepository jobGraphRepository,
+            JobJdbcRepository jobJdbcRepository,
+            TransactionTemplate transactionTemplate,
+            RunningJobRegistry runningJobRegistry,
+            JobRetryScheduler jobRetryScheduler
+    ) {
+        this.jobGraphRepository = jobGraphRepository;
+        this.jobJdbcRepository = jobJdbcRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.runningJobRegistry = runningJobRegistry;
+        this.jobRetryScheduler = jobRetryScheduler;
+    }
+
+    /**
+     * Releases whatever the current state of the children allows, or ends the graph. Safe to call any number of
+     * times, it does nothing once the parent stopped waiting.
+     */
+    public void advance(long parentId) {
+        Advance advance = transactionTemplate.execute(status -> doAdvance(parentId));
+        advance.stopping().forEach(runningJobRegistry::cancel);
+        advance.released().forEach(jobRetryScheduler::submit);
+        if (!advance.released().isEmpty()) {
+            log.debug("job graph {} released {} jobs", parentId, advance.released().size());
+        }
+    }
+
+    /**
+     * Like {@link #advance(long)}, but never fails the caller, for the end of a child's execution.
+     */
+    void onChildFinished(Job child) {
+        if (child.getParentJobId() == null) {
+            return;
+        }
+        try {
+            advance(child.getParentJobId());
+        } catch (RuntimeException e) {
+            log.error("failed to advance job graph {} after job {}", child.getParentJobId(), child.getId(), e);
+        }
+    }
+
+    /**
+     * Stops a parent that is waiting for its children, together with the children.
+     *
+     * @return false when the job is not a waiting parent
+     */
+    public boolean stop(long parentId) {
+        List<Long> stopping = transactionTemplate.execute(status -> {
+            if (!jobGraphRepository.finishParent(parentId, JobState.STOPPED, null)) {
+                return null;
+            }
+            return jobGraphRepository.stopChildren(parentId);
+        });
+        if (stopping == null) {
+            return false;
+        }
+        stopping.forEach(runningJobRegistry::cancel);
+        log.debug("job graph {} stopped", parentId);
+        return true;
+    }
+
+    public List<Job> findChildren(long parentId) {
+        return jobGraphRepository.findChildren(parentId);
+    }
+
+    private Advance doAdvance(long parentId) {
+        Optional<JobGraphRepository.Parent> parent = jobGraphRepository.lockParent(parentId);
+        if (parent.isEmpty() || parent.get().state() != JobState.WAITING) {
+            return Advance.NONE;
+        }
+
+        Map<JobState, Integer> children = jobGraphRepository.countChildrenByState(parentId);
+        int total = children.values().stream().mapToInt(Integer::intValue).sum();
+        int completed = children.getOrDefault(JobState.COMPLETED, 0);
+        jobJdbcRepository.updateProgress(Map.of(parentId, new RunningJob.Progress(completed, total)));
+
+        int failed = children.getOrDefault(JobState.FAILED, 0);
+        if (failed > 0 || children.containsKey(JobState.STOPPED)) {
+            JobState state = failed > 0 ? JobState.FAILED : JobState.STOPPED;
+            String error = failed > 0 ? failed + " of " + total + " child jobs failed" : null;
+            jobGraphRepository.finishParent(parentId, state, error);
+            return new Advance(List.of(), jobGraphRepository.stopChildren(parentId));
+        }
+        if (completed == total) {
+            return new Advance(jobGraphRepository.releaseParent(parentId).stream().toList(), List.of());
+        }
+
+        Integer limit = null;
+        if (parent.get().fanOut() != null) {
+            int queuedOrRunning = children.getOrDefault(JobState.READY, 0)
+                    + children.getOrDefault(JobState.RUNNING, 0)
+                    + children.getOrDefault(JobState.STOPPING, 0);
+            limit = parent.get().fanOut() - queuedOrRunning;
+            if (limit <= 0) {
+                return Advance.NONE;
+            }
+        }
+        return new Advance(jobGraphRepository.releaseChildren(parentId, limit), List.of());
+    }
+}
@@ -0,0 +1,140 @@
+package com.doppelganger113.commandrunner.batching.job;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.Types;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Queries on the parents and children of job graphs, see {@link JobGraphCoordinator}.
+ */
+@Repository
+public class JobGraphRepository {
+
+    public record Parent(JobState state, Integer fanOut) {
+    }
+
+    private static final String INSERT_DEPENDENCY = "INSERT INTO job_dependencies (job_id, depends_on_job_id) VALUES (?, ?)";
+
+    private static final String LOCK_PARENT = "SELECT state, fan_out FROM jobs WHERE id = ? FOR UPDATE";
+
+    private static final String COUNT_CHILDREN_BY_STATE = "SELECT state, count(*) AS count FROM jobs " +
+            "WHERE parent_job_id = ? GROUP BY state";
+
+    /**
+     * Released jobs are due right away, {@code next_attempt_at} makes them pending like retries so that jobs released
+     * right before a restart are dispatched again on startup.
+     */
+    static final String RELEASE_CHILDREN = "UPDATE jobs SET state = 'READY', next_attempt_at = NOW() WHERE id IN (" +
+            "SELECT child.id FROM jobs child WHERE child.parent_job_id = ? AND child.state = 'WAITING' " +
+            "AND NOT EXISTS (" +
+            "SELECT 1 FROM job_dependencies dependency JOIN jobs upstream ON upstream.id = dependency.depends_on_job_id " +
+            "WHERE dependency.job_id = child.id AND upstream.state <> 'COMPLETED'" +
+            ") ORDER BY child.id LIMIT ?" +
+            ") RETURNING *";
+
+    private static final String RELEASE_PARENT = "UPDATE jobs SET state = 'READY', next_attempt_at = NOW() " +
+            "WHERE id = ? AND state = 'WAITING' " +
+            "RETURNING *";
+
+    private static final String FINISH_PARENT = "UPDATE jobs SET state = ?, completed_at = NOW(), error = ? " +
+            "WHERE id = ? AND state = 'WAITING'";
+
+    private static final String STOP_QUEUED_CHILDREN = "UPDATE jobs SET state = 'STOPPED', completed_at = NOW() " +
+            "WHERE parent_job_id = ? AND state IN ('WAITING', 'READY')";
+
+    private static final String STOP_RUNNING_CHILDREN = "UPDATE jobs SET state = 'STOPPING', updated_at = NOW() " +
+            "WHERE parent_job_id = ? AND state = 'RUNNING' RETURNING id";
+
+    private static final String FIND_CHILDREN = "SELECT * FROM jobs WHERE parent_job_id = ? ORDER BY id";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final JobRowMapper jobRowMapper;
+
+    public JobGraphRepository(JdbcTemplate jdbcTemplate, JobRowMapper jobRowMapper) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.jobRowMapper = jobRowMapper;
+    }
+
+    /**
+     * @param dependencies pairs of job id and the id of the job it depends on
+     */
+    public void insertDependencies(List<long[]> dependencies) {
+        if (dependencies.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(INSERT_DEPENDENCY, dependencies, dependencies.size(), (ps, dependency) -> {
+            ps.setLong(1, dependency[0]);
+            ps.setLong(2, dependency[1]);
+        });
+    }
+
+    /**
+     * Locks the parent until the end of the transaction, so children finishing at the same time advance the graph
+     * one after another.
+     */
+    public Optional<Parent> lockParent(long parentId) {
+        return jdbcTemplate.query(
+                LOCK_PARENT,
+                (rs, rowNum) -> new Parent(JobState.valueOf(rs.getString("state")), JobRowMapper.getInteger(rs, "fan_out")),
+                parentId
+        ).stream().findFirst();
+    }
+
+    public Map<JobState, Integer> countChildrenByState(long parentId) {
+        Map<JobState, Integer> counts = new EnumMap<>(JobState.class);
+        jdbcTemplate.query(
+                COUNT_CHILDREN_BY_STATE,
+                (RowCallbackHandler) rs -> counts.put(JobState.valueOf(rs.getString("state")), rs.getInt("count")),
+                parentId
+        );
+        return counts;
+    }
+
+    /**
+     * Moves WAITING children whose dependencies all completed to READY, in creation order.
+     *
+     * @param limit children released at most, no limit when null
+     */
+    public List<Job> releaseChildren(long parentId, Integer limit) {
+        return jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(RELEASE_CHILDREN);
+            statement.setLong(1, parentId);
+            statement.setObject(2, limit, Types.INTEGER);
+            return statement;
+        }, jobRowMapper);
+    }
+
+    public Optional<Job> releaseParent(long parentId) {
+        return jdbcTemplate.query(RELEASE_PARENT, jobRowMapper, parentId).stream().findFirst();
+    }
+
+    /**
+     * Ends a WAITING parent without running it.
+     *
+     * @return false when the parent was not waiting for its children
+     */
+    public boolean finishParent(long parentId, JobState state, String error) {
+        return jdbcTemplate.update(FINISH_PARENT, state.name(), error, parentId) > 0;
+    }
+
+    /**
+     * Stops children that did not start yet right away and asks the running ones to stop.
+     *
+     * @return ids of the children that were running
+     */
+    public List<Long> stopChildren(long parentId) {
+        jdbcTemplate.update(STOP_QUEUED_CHILDREN, parentId);
+        return jdbcTemplate.queryForList(STOP_RUNNING_CHILDREN, Long.class, parentId);
+    }
+
+    public List<Job> findChildren(long parentId) {
+        return jdbcTemplate.query(FIND_CHILDREN, jobRowMapper, parentId);
+    }
+}
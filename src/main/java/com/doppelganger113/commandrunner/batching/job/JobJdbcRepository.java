@@ -0,0 +1,373 @@
+package com.doppelganger113.commandrunner.batching.job;
+
+import com.doppelganger113.commandrunner.batching.job.dto.JobQuery;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+/**
+ * Set based queries on {@code jobs} that JPA can not express in a single round trip.
+ */
+@Repository
+public class JobJdbcRepository {
+
+    static final String FIND_BY_NAME_AND_ARGUMENTS_HASH = "SELECT * FROM jobs " +
+            "WHERE (name, arguments_hash) IN (SELECT * FROM unnest(?::varchar[], ?::varchar[])) AND parent_job_id IS NULL";
+
+    static final String FIND_ACTIVE_BY_NAMES = "SELECT DISTINCT ON (name) * FROM jobs " +
+            "WHERE name = ANY(?::varchar[]) AND state NOT IN ('COMPLETED', 'FAILED', 'STOPPED') AND parent_job_id IS NULL " +
+            "ORDER BY name, created_at DESC";
+
+    private static final String INSERT = "INSERT INTO jobs " +
+            "(name, arguments, arguments_hash, timeout_ms, retry_limit, parent_job_id, fan_out, state) " +
+            "VALUES (?, ?::jsonb, ?, ?, ?, ?, ?, COALESCE(?, 'READY'))";
+
+    static final String CLAIM_READY = "UPDATE jobs SET lease_owner = ?, lease_expires_at = NOW() + ? * INTERVAL '1 millisecond' " +
+            "WHERE id IN (" +
+            "SELECT id FROM jobs WHERE state = 'READY' AND name = ANY(?::varchar[]) " +
+            "AND (lease_expires_at IS NULL OR lease_expires_at < NOW()) " +
+            "AND (next_attempt_at IS NULL OR next_attempt_at <= NOW()) " +
+            "ORDER BY id LIMIT ? FOR UPDATE SKIP LOCKED" +
+            ") RETURNING *";
+
+    static final String EXTEND_LEASES = "UPDATE jobs SET lease_expires_at = NOW() + ? * INTERVAL '1 millisecond' " +
+            "WHERE lease_owner = ? AND state NOT IN ('COMPLETED', 'FAILED', 'STOPPED')";
+
+    static final String RESET_EXPIRED_LEASES = "UPDATE jobs SET " +
+            "state = CASE WHEN state = 'STOPPING' THEN 'STOPPED' ELSE 'READY' END, " +
+            "started_at = CASE WHEN state = 'STOPPING' THEN started_at END, " +
+            "lease_owner = NULL, lease_expires_at = NULL " +
+            "WHERE id IN (" +
+            "SELECT id FROM jobs WHERE state IN ('RUNNING', 'STOPPING') AND lease_expires_at < NOW() " +
+            "FOR UPDATE SKIP LOCKED" +
+            ") RETURNING id, state";
+
+    private static final String RELEASE_READY_LEASES = "UPDATE jobs SET lease_owner = NULL, lease_expires_at = NULL " +
+            "WHERE lease_owner = ? AND state = 'READY'";
+
+    private static final String RETRIED = "(CAST(:retryable AS boolean) AND state = 'RUNNING' " +
+            "AND COALESCE(retry_count, 0) < COALESCE(retry_limit, 0))";
+
+    /**
+     * Backoff grows with the retries done so far, the exponent is capped so the delay can not overflow before
+     * {@code maxBackoffMs} bounds it. The failure is recorded in {@code job_errors} in the same statement, the row
+     * only keeps its summary.
+     */
+    static final String FAIL_OR_RETRY = "WITH failed AS (UPDATE jobs SET " +
+            "state = CASE WHEN " + RETRIED + " THEN 'READY' ELSE 'FAILED' END, " +
+            "retry_count = CASE WHEN " + RETRIED + " THEN COALESCE(retry_count, 0) + 1 ELSE retry_count END, " +
+            "next_attempt_at = CASE WHEN " + RETRIED + " THEN NOW() + " +
+            "LEAST(:maxBackoffMs, :initialBackoffMs * POWER(:multiplier, LEAST(COALESCE(retry_count, 0), 64))) " +
+            "* (1 - :jitter * random()) * INTERVAL '1 millisecond' END, " +
+            "started_at = CASE WHEN " + RETRIED + " THEN NULL ELSE started_at END, " +
+            "completed_at = CASE WHEN " + RETRIED + " THEN NULL ELSE NOW() END, " +
+            "lease_owner = CASE WHEN " + RETRIED + " THEN NULL ELSE lease_owner END, " +
+            "lease_expires_at = CASE WHEN " + RETRIED + " THEN NULL ELSE lease_expires_at END, " +
+            "duration_ms = EXTRACT(MILLISECONDS FROM (NOW() - started_at)), " +
+            "error = :summary " +
+            "WHERE id = :id AND state <> 'STOPPED' " +
+            "RETURNING id, state, next_attempt_at, " +
+            "CASE WHEN state = 'READY' THEN retry_count ELSE COALESCE(retry_count, 0) + 1 END AS attempt" +
+            "), recorded AS (" +
+            "INSERT INTO job_errors (job_id, attempt, exception_type, message, stack_trace) " +
+            "SELECT id, attempt, CAST(:exceptionType AS varchar), CAST(:message AS text), CAST(:stackTrace AS text) " +
+            "FROM failed" +
+            ") SELECT state, next_attempt_at FROM failed";
+
+    static final String FIND_PENDING_RETRIES = "SELECT * FROM jobs " +
+            "WHERE state = 'READY' AND next_attempt_at IS NOT NULL ORDER BY next_attempt_at";
+
+    private static final String UPDATE_PROGRESS = "UPDATE jobs SET progress_done = ?, progress_total = ? WHERE id = ?";
+
+    private static final String FIND_EVENT_BY_ID = "SELECT id, name, state FROM jobs WHERE id = ?";
+
+    private static final String QUERY_COLUMNS = "id, name, arguments_hash, state, created_at, updated_at, " +
+            "started_at, completed_at, duration_ms, retry_count, retry_limit, parent_job_id, progress_done, progress_total, " +
+            "timeout_ms, next_attempt_at, fan_out";
+
+    private static final int EXPORT_FETCH_SIZE = 500;
+
+    /**
+     * @param nextAttemptAt when a READY job is retried, null once it FAILED
+     */
+    public record Failure(JobState state, Instant nextAttemptAt) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+    private final ObjectMapper objectMapper;
+    private final JobRowMapper jobRowMapper;
+
+    public JobJdbcRepository(JdbcTemplate jdbcTemplate, ObjectMapper objectMapper, JobRowMapper jobRowMapper) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedParameterJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+        this.objectMapper = objectMapper;
+        this.jobRowMapper = jobRowMapper;
+    }
+
+    public List<Job> findByNameAndArgumentsHashIn(Collection<JobDedupeCache.Key> keys) {
+        if (keys.isEmpty()) {
+            return List.of();
+        }
+        return jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(FIND_BY_NAME_AND_ARGUMENTS_HASH);
+            statement.setArray(1, connection.createArrayOf("varchar",
+                    keys.stream().map(JobDedupeCache.Key::name).toArray()));
+            statement.setArray(2, connection.createArrayOf("varchar",
+                    keys.stream().map(JobDedupeCache.Key::argumentsHash).toArray()));
+            return statement;
+        }, jobRowMapper);
+    }
+
+    /**
+     * Latest not yet finished job of every given name.
+     */
+    public List<Job> findActiveByNames(Collection<String> names) {
+        if (names.isEmpty()) {
+            return List.of();
+        }
+        return jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(FIND_ACTIVE_BY_NAMES);
+            statement.setArray(1, connection.createArrayOf("varchar", names.toArray()));
+            return statement;
+        }, jobRowMapper);
+    }
+
+    /**
+     * Inserts the jobs with one JDBC batch and fills in the values generated by the database, jobs without a state
+     * are inserted READY.
+     */
+    public void insertAll(List<Job> jobs) {
+        if (jobs.isEmpty()) {
+            return;
+        }
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        jdbcTemplate.batchUpdate(
+                connection -> connection.prepareStatement(INSERT, new String[]{"id", "state", "created_at"}),
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement ps, int i) throws SQLException {
+                        Job job = jobs.get(i);
+                        ps.setString(1, job.getName());
+                        if (job.getArguments() == null) {
+                            ps.setNull(2, Types.VARCHAR);
+                        } else {
+                            ps.setString(2, writeArguments(job));
+                        }
+                        ps.setString(3, job.getArgumentsHash());
+                        ps.setObject(4, job.getTimeoutMs(), Types.BIGINT);
+                        ps.setObject(5, job.getRetryLimit(), Types.INTEGER);
+                        ps.setObject(6, job.getParentJobId(), Types.BIGINT);
+                        ps.setObject(7, job.getFanOut(), Types.INTEGER);
+                        ps.setString(8, job.getState() == null ? null : job.getState().name());
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return jobs.size();
+                    }
+                },
+                keyHolder
+        );
+
+        List<Map<String, Object>> keys = keyHolder.getKeyList();
+        for (int i = 0; i < jobs.size(); i++) {
+            Map<String, Object> generated = keys.get(i);
+            Job job = jobs.get(i);
+            job.setId(((Number) generated.get("id")).longValue());
+            job.setState(JobState.valueOf((String) generated.get("state")));
+            job.setCreatedAt(((Timestamp) generated.get("created_at")).toLocalDateTime());
+        }
+    }
+
+    private String writeArguments(Job job) throws SQLException {
+        try {
+            return objectMapper.writeValueAsString(job.getArguments());
+        } catch (JsonProcessingException e) {
+            throw new SQLException("Cannot write arguments of job " + job.getName(), e);
+        }
+    }
+
+    /**
+     * Current state of a job in the shape of the event that announced it.
+     */
+    public Optional<JobEvent> findEventById(long id) {
+        return jdbcTemplate.query(
+                FIND_EVENT_BY_ID,
+                (rs, rowNum) -> new JobEvent(rs.getLong("id"), rs.getString("name"), JobState.valueOf(rs.getString("state"))),
+                id
+        ).stream().findFirst();
+    }
+
+    /**
+     * A page of jobs in descending id order, {@code arguments} and {@code error} are only read when requested.
+     */
+    public List<Job> findAll(JobQuery query) {
+        List<Object> parameters = new ArrayList<>();
+        String sql = buildQuery(query, parameters) + " LIMIT ?";
+        parameters.add(query.limit());
+        return jdbcTemplate.query(sql, jobRowMapper, parameters.toArray());
+    }
+
+    /**
+     * Streams every job matching the query through a forward only cursor, must be called inside a transaction so
+     * that the driver fetches rows in chunks instead of reading the whole result set into memory.
+     */
+    public void forEach(JobQuery query, Consumer<Job> consumer) {
+        List<Object> parameters = new ArrayList<>();
+        String sql = buildQuery(query, parameters);
+        jdbcTemplate.query(
+                connection -> {
+                    PreparedStatement statement = connection.prepareStatement(sql);
+                    statement.setFetchSize(EXPORT_FETCH_SIZE);
+                    for (int i = 0; i < parameters.size(); i++) {
+                        statement.setObject(i + 1, parameters.get(i));
+                    }
+                    return statement;
+                },
+                (RowCallbackHandler) rs -> consumer.accept(jobRowMapper.mapRow(rs, rs.getRow()))
+        );
+    }
+
+    private static String buildQuery(JobQuery query, List<Object> parameters) {
+        StringBuilder sql = new StringBuilder("SELECT ").append(QUERY_COLUMNS)
+                .append(query.includeArguments() ? ", arguments" : ", NULL AS arguments")
+                .append(query.includeError() ? ", error" : ", NULL AS error")
+                .append(" FROM jobs WHERE TRUE");
+        if (query.cursor() != null) {
+            sql.append(" AND id < ?");
+            parameters.add(query.cursor());
+        }
+        if (query.name() != null) {
+            sql.append(" AND name = ?");
+            parameters.add(query.name());
+        }
+        if (query.state() != null) {
+            sql.append(" AND state = ?");
+            parameters.add(query.state().name());
+        }
+        if (query.createdFrom() != null) {
+            sql.append(" AND created_at >= ?");
+            parameters.add(Timestamp.valueOf(query.createdFrom()));
+        }
+        if (query.createdTo() != null) {
+            sql.append(" AND created_at < ?");
+            parameters.add(Timestamp.valueOf(query.createdTo()));
+        }
+        return sql.append(" ORDER BY id DESC").toString();
+    }
+
+    /**
+     * Leases up to {@code limit} of the oldest READY jobs that are not leased by another node, rows locked by
+     * concurrent claims are skipped so nodes never wait on each other.
+     */
+    public List<Job> claimReady(String owner, Duration lease, Collection<String> names, int limit) {
+        List<Job> jobs = new ArrayList<>(jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(CLAIM_READY);
+            statement.setString(1, owner);
+            statement.setLong(2, lease.toMillis());
+            statement.setArray(3, connection.createArrayOf("varchar", names.toArray()));
+            statement.setInt(4, limit);
+            return statement;
+        }, jobRowMapper));
+        jobs.sort(Comparator.comparing(Job::getId));
+        return jobs;
+    }
+
+    public int extendLeases(String owner, Duration lease) {
+        return jdbcTemplate.update(EXTEND_LEASES, lease.toMillis(), owner);
+    }
+
+    /**
+     * Puts jobs of nodes whose lease expired back to READY, or to STOPPED when they were being stopped.
+     *
+     * @return new state by job id
+     */
+    public Map<Long, JobState> resetExpiredLeases() {
+        Map<Long, JobState> states = new LinkedHashMap<>();
+        jdbcTemplate.query(
+                RESET_EXPIRED_LEASES,
+                (RowCallbackHandler) rs -> states.put(rs.getLong("id"), JobState.valueOf(rs.getString("state")))
+        );
+        return states;
+    }
+
+    public int releaseReadyLeases(String owner) {
+        return jdbcTemplate.update(RELEASE_READY_LEASES, owner);
+    }
+
+    /**
+     * Fails the job, or puts it back to READY with a backed off {@code next_attempt_at} when it was running and has
+     * retries left. Jobs that were being stopped are never retried.
+     *
+     * @param retryable false fails the job even when it has retries left
+     * @return empty when the job is missing or was already stopped
+     */
+    public Optional<Failure> failOrRetry(
+            long id,
+            JobError.Details error,
+            JobRetryProperties retryProperties,
+            boolean retryable
+    ) {
+        MapSqlParameterSource parameters = new MapSqlParameterSource()
+                .addValue("id", id)
+                .addValue("retryable", retryable)
+                .addValue("summary", error.summary())
+                .addValue("exceptionType", error.exceptionType())
+                .addValue("message", error.message())
+                .addValue("stackTrace", error.stackTrace())
+                .addValue("initialBackoffMs", retryProperties.initialBackoff().toMillis())
+                .addValue("multiplier", retryProperties.multiplier())
+                .addValue("maxBackoffMs", retryProperties.maxBackoff().toMillis())
+                .addValue("jitter", retryProperties.jitter());
+        return namedParameterJdbcTemplate.query(FAIL_OR_RETRY, parameters, (rs, rowNum) -> {
+            Timestamp nextAttemptAt = rs.getTimestamp("next_attempt_at");
+            return new Failure(
+                    JobState.valueOf(rs.getString("state")),
+                    nextAttemptAt == null ? null : nextAttemptAt.toInstant()
+            );
+        }).stream().findFirst();
+    }
+
+    /**
+     * READY jobs waiting for a retry or released by a job graph, oldest due first.
+     */
+    public List<Job> findPendingRetries() {
+        return jdbcTemplate.query(FIND_PENDING_RETRIES, jobRowMapper);
+    }
+
+    /**
+     * Writes the latest reported progress of running jobs with one JDBC batch.
+     */
+    public void updateProgress(Map<Long, RunningJob.Progress> progressByJobId) {
+        if (progressByJobId.isEmpty()) {
+            return;
+        }
+        List<Object[]> parameters = progressByJobId.entrySet().stream()
+                .map(entry -> new Object[]{entry.getValue().done(), entry.getValue().total(), entry.getKey()})
+                .toList();
+        jdbcTemplate.batchUpdate(UPDATE_PROGRESS, parameters);
+    }
+}
@@ -0,0 +1,143 @@
+package com.doppelganger113.commandrunner.batching.job;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Meters of the job pipeline, tagged with the processor where a job is involved: submissions and how they were
+ * answered, the scheduler queue, the time jobs wait in it and how long their executions take. Processor tags are
+ * only ever recorded for validated submissions, so their number is bound by the registered processors.
+ */
+@Component
+public class JobMetrics {
+
+    public enum Submission {
+        CREATED, DEDUPLICATED, REJECTED
+    }
+
+    /**
+     * How an execution that started ended, {@link #TIMED_OUT} executions end up FAILED.
+     */
+    public enum Outcome {
+        COMPLETED, STOPPED, FAILED, TIMED_OUT
+    }
+
+    private final MeterRegistry registry;
+    private final Timer hashTimer;
+    private final Map<String, AtomicInteger> queuedByProcessor = new ConcurrentHashMap<>();
+    private final Map<String, AtomicInteger> activeByProcessor = new ConcurrentHashMap<>();
+
+    public JobMetrics(MeterRegistry registry) {
+        this.registry = registry;
+        this.hashTimer = Timer.builder("jobs.arguments.hash")
+                .description("Hashing of job arguments for deduplication")
+                .register(registry);
+    }
+
+    public void recordSubmission(String processor, Submission submission) {
+        Counter.builder("jobs.submissions")
+                .tags("processor", processor, "result", tagValue(submission))
+                .register(registry)
+                .increment();
+    }
+
+    void onQueued(String processor) {
+        gauge(queuedByProcessor, "jobs.queue.depth", processor).incrementAndGet();
+    }
+
+    void onStarted(String processor, long queuedAtNanos) {
+        gauge(queuedByProcessor, "jobs.queue.depth", processor).decrementAndGet();
+        gauge(activeByProcessor, "jobs.active", processor).incrementAndGet();
+        Timer.builder("jobs.queue.wait")
+                .description("Time from being queued in the scheduler to starting execution")
+                .tag("processor", processor)
+                .publishPercentileHistogram()
+                .register(registry)
+                .record(System.nanoTime() - queuedAtNanos, TimeUnit.NANOSECONDS);
+    }
+
+    void onFinished(String processor) {
+        gauge(activeByProcessor, "jobs.active", processor).decrementAndGet();
+    }
+
+    public void recordExecution(String processor, Outcome outcome, long startedAtNanos) {
+        Timer.builder("jobs.execution")
+                .description("Execution of job processors from the RUNNING transition until they returned")
+                .tags("processor", processor, "outcome", tagValue(outcome))
+                .publishPercentileHistogram()
+                .register(registry)
+                .record(System.nanoTime() - startedAtNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Jobs that were stopped while queued and never started executing.
+     */
+    public void recordSkipped(String processor) {
+        Counter.builder("jobs.skipped")
+                .tag("processor", processor)
+                .register(registry)
+                .increment();
+    }
+
+    /**
+     * Jobs failed by their timeout, counted when the watchdog fails them since their processor may never return.
+     */
+    public void recordTimedOut(String processor) {
+        Counter.builder("jobs.timed_out")
+                .description("Jobs failed by the watchdog for running longer than their timeout")
+                .tag("processor", processor)
+                .register(registry)
+                .increment();
+    }
+
+    public String timeHash(Supplier<String> hash) {
+        return hashTimer.record(hash);
+    }
+
+    /**
+     * Times the current transaction from now until it completed, commit included, as the given transition.
+     * Does nothing outside of a transaction.
+     */
+    public void timeTransaction(String transition) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        long startedAt = System.nanoTime();
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                Timer.builder("jobs.persistence")
+                        .description("Job state transitions and lookups including their commit")
+                        .tags(Tags.of(
+                                "transition", transition,
+                                "outcome", status == STATUS_COMMITTED ? "committed" : "rolled_back"
+                        ))
+                        .register(registry)
+                        .record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
+            }
+        });
+    }
+
+    private AtomicInteger gauge(Map<String, AtomicInteger> gauges, String name, String processor) {
+        return gauges.computeIfAbsent(
+                processor,
+                key -> registry.gauge(name, Tags.of("processor", key), new AtomicInteger())
+        );
+    }
+
+    private static String tagValue(Enum<?> value) {
+        return value.name().toLowerCase(Locale.ROOT);
+    }
+}
@@ -2,16 +2,18 @@ package com.doppelganger113.commandrunner.batching.job;
 
 
 import com.doppelganger113.commandrunner.batching.job.dto.JobExecutionOptions;
+import com.doppelganger113.commandrunner.batching.job.dto.JobGraphNode;
+import com.doppelganger113.commandrunner.batching.job.dto.JobGraphOptions;
+import com.doppelganger113.commandrunner.batching.job.processors.JobProcessor;
 import com.doppelganger113.commandrunner.hash.ShaHash;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.util.Arrays;
-import java.util.List;
-import java.util.Objects;
-import java.util.Optional;
+import java.time.Instant;
+import java.util.*;
+import java.util.function.IntConsumer;
 
 @Service
 public class JobPersistenceService {
@@ -21,93 +23,347 @@ public class JobPersistenceService {
     public static final List<JobState> JOB_DONE_STATES = List.of(JobState.COMPLETED, JobState.FAILED, JobState.STOPPED);
 
     private final JobRepository jobRepository;
+    private final JobJdbcRepository jobJdbcRepository;
     private final ShaHash shaHash;
+    private final JobDedupeCache dedupeCache;
+    private final JobRetryProperties retryProperties;
+    private final JobGraphRepository jobGraphRepository;
+    private final JobMetrics jobMetrics;
+    private final JobProcessorRegistry jobProcessorRegistry;
 
-    public JobPersistenceService(JobRepository jobRepository, ShaHash shaHash) {
+    public JobPersistenceService(
+            JobRepository jobRepository,
+            JobJdbcRepository jobJdbcRepository,
+            JobGraphRepository jobGraphRepository,
+            ShaHash shaHash,
+            JobDedupeCache dedupeCache,
+            JobRetryProperties retryProperties,
+            JobMetrics jobMetrics,
+            JobProcessorRegistry jobProcessorRegistry
+    ) {
         this.jobRepository = jobRepository;
+        this.jobJdbcRepository = jobJdbcRepository;
+        this.jobGraphRepository = jobGraphRepository;
         this.shaHash = shaHash;
+        this.dedupeCache = dedupeCache;
+        this.retryProperties = retryProperties;
+        this.jobMetrics = jobMetrics;
+        this.jobProcessorRegistry = jobProcessorRegistry;
     }
 
     public record JobCreationResult(Job job, boolean wasCreated) {
     }
 
+    /**
+     * Finds the job a submission would be deduplicated to, without creating a new one.
+     */
+    @Transactional(timeout = 3, readOnly = true)
+    public Optional<Job> findExistingJob(JobExecutionOptions jobExecutionOptions) {
+        jobMetrics.timeTransaction("find_existing");
+        return findExistingJob(jobExecutionOptions.name(), hash(jobExecutionOptions.name(), jobExecutionOptions.arguments()));
+    }
+
     @Transactional(timeout = 3)
     public JobCreationResult createNewJobOrGetExisting(JobExecutionOptions jobExecutionOptions) {
+        jobMetrics.timeTransaction("create");
         Job newJob = new Job();
         newJob.setName(jobExecutionOptions.name());
         newJob.setArguments(jobExecutionOptions.arguments());
-        newJob.setArgumentsHash(shaHash.hash(jobExecutionOptions.arguments()));
+        newJob.setArgumentsHash(hash(jobExecutionOptions.name(), jobExecutionOptions.arguments()));
+        newJob.setTimeoutMs(jobExecutionOptions.timeoutMs());
+        newJob.setRetryLimit(getRetryLimit(jobExecutionOptions));
         newJob.setState(JobState.READY);
 
-        // Jobs of same name and same arguments are only executed once
-        Optional<Job> existingJob = jobRepository
-                .findFirstByNameAndArgumentsHashOrderByIdDesc(newJob.getName(), newJob.getArgumentsHash());
+        Optional<Job> existingJob = findExistingJob(newJob.getName(), newJob.getArgumentsHash());
         if (existingJob.isPresent()) {
             return new JobCreationResult(existingJob.get(), false);
         }
 
-        // Jobs of same name and different arguments can be executed multiple times, BUT not at the same time!
-        Optional<Job> existingSameNameOngoingJob = jobRepository.findByNameAndStateNotInOrderByCreatedAtDesc(
-                newJob.getName(), JOB_DONE_STATES
-        );
-        if (existingSameNameOngoingJob.isPresent()) {
-            return new JobCreationResult(existingSameNameOngoingJob.get(), false);
-        }
-
         Job createdJob = jobRepository.save(newJob);
+        dedupeCache.putActive(createdJob);
         return new JobCreationResult(createdJob, true);
     }
 
     /**
-     * Was job actually marked as started as there can be cases where it was stopped before running.
+     * Same rules as {@link #createNewJobOrGetExisting(JobExecutionOptions)} applied to a whole batch in one
+     * transaction, as if the submissions were made one after another: identical submissions resolve to the same
+     * job and only the first submission of a name can create a job when none of that name is active.
+     *
+     * @param beforeInsert called with the number of jobs about to be created, throwing from it aborts the batch
+     * @return results in the order of the submissions
      */
-    @Transactional(timeout = 3)
-    public boolean setJobToRunning(Long jobId) {
-        Job job = jobRepository.findById(jobId).orElseThrow(() -> new RuntimeException("Job not found"));
-        if (Objects.equals(job.getState(), JobState.RUNNING)) {
-            throw new RuntimeException("Job is already running " + job.getId());
+    @Transactional(timeout = 30)
+    public List<JobCreationResult> createNewJobsOrGetExisting(
+            List<JobExecutionOptions> jobExecutionOptions,
+            IntConsumer beforeInsert
+    ) {
+        jobMetrics.timeTransaction("create_batch");
+        List<JobDedupeCache.Key> keys = jobExecutionOptions.parallelStream()
+                .map(options -> new JobDedupeCache.Key(options.name(), hash(options.name(), options.arguments())))
+                .toList();
+
+        Map<JobDedupeCache.Key, Job> jobsByKey = new HashMap<>();
+        Set<JobDedupeCache.Key> uncachedKeys = new LinkedHashSet<>();
+        for (JobDedupeCache.Key key : keys) {
+            dedupeCache.findTerminal(key.name(), key.argumentsHash())
+                    .or(() -> dedupeCache.findActive(key.name())
+                            .filter(job -> Objects.equals(job.getArgumentsHash(), key.argumentsHash())))
+                    .ifPresentOrElse(job -> jobsByKey.put(key, job), () -> uncachedKeys.add(key));
+        }
+
+        for (Job job : jobJdbcRepository.findByNameAndArgumentsHashIn(uncachedKeys)) {
+            dedupeCache.putTerminal(job);
+            jobsByKey.put(new JobDedupeCache.Key(job.getName(), job.getArgumentsHash()), job);
+        }
+
+        Set<String> unresolvedNames = new LinkedHashSet<>();
+        for (JobDedupeCache.Key key : keys) {
+            if (!jobsByKey.containsKey(key)) {
+                unresolvedNames.add(key.name());
+            }
         }
-        log.debug("setJobToRunning - {}", job);
-        if (job.getState().equals(JobState.STOPPING)) {
-            jobRepository.setJobStopped(jobId);
-            return false;
+        Map<String, Job> activeJobsByName = new HashMap<>();
+        for (String name : unresolvedNames) {
+            dedupeCache.findActive(name).ifPresent(job -> activeJobsByName.put(name, job));
+        }
+        unresolvedNames.removeAll(activeJobsByName.keySet());
+        for (Job job : jobJdbcRepository.findActiveByNames(unresolvedNames)) {
+            activeJobsByName.put(job.getName(), job);
+        }
+
+        List<Job> newJobs = new ArrayList<>();
+        for (int i = 0; i < keys.size(); i++) {
+            JobDedupeCache.Key key = keys.get(i);
+            if (jobsByKey.containsKey(key)) {
+                continue;
+            }
+            Job activeJob = activeJobsByName.get(key.name());
+            if (activeJob != null) {
+                jobsByKey.put(key, activeJob);
+                continue;
+            }
+            Job newJob = new Job();
+            newJob.setName(key.name());
+            newJob.setArguments(jobExecutionOptions.get(i).arguments());
+            newJob.setArgumentsHash(key.argumentsHash());
+            newJob.setTimeoutMs(jobExecutionOptions.get(i).timeoutMs());
+            newJob.setRetryLimit(getRetryLimit(jobExecutionOptions.get(i)));
+            newJobs.add(newJob);
+            jobsByKey.put(key, newJob);
+            activeJobsByName.put(key.name(), newJob);
         }
 
-        jobRepository.setJobStarted(jobId);
-        return true;
+        beforeInsert.accept(newJobs.size());
+        jobJdbcRepository.insertAll(newJobs);
+        newJobs.forEach(dedupeCache::putActive);
+
+        Set<Job> unreportedNewJobs = Collections.newSetFromMap(new IdentityHashMap<>());
+        unreportedNewJobs.addAll(newJobs);
+        return keys.stream()
+                .map(jobsByKey::get)
+                .map(job -> new JobCreationResult(job, unreportedNewJobs.remove(job)))
+                .toList();
+    }
+
+    /**
+     * Creates the parent and the children of a graph WAITING, {@link JobGraphCoordinator} releases them once the
+     * transaction committed. Graphs are deduplicated by the name and arguments of their parent, the name alone does
+     * not prevent graphs from running at the same time.
+     */
+    @Transactional(timeout = 30)
+    public JobCreationResult createJobGraph(JobGraphOptions jobGraphOptions) {
+        jobMetrics.timeTransaction("create_graph");
+        String argumentsHash = hash(jobGraphOptions.name(), jobGraphOptions.arguments());
+        Optional<Job> existingJob = dedupeCache.findTerminal(jobGraphOptions.name(), argumentsHash)
+                .or(() -> jobRepository.findFirstByNameAndArgumentsHashAndParentJobIdIsNullOrderByIdDesc(
+                        jobGraphOptions.name(),
+                        argumentsHash
+                ));
+        if (existingJob.isPresent()) {
+            dedupeCache.putTerminal(existingJob.get());
+            return new JobCreationResult(existingJob.get(), false);
+        }
+
+        Job parent = new Job();
+        parent.setName(jobGraphOptions.name());
+        parent.setArguments(jobGraphOptions.arguments());
+        parent.setArgumentsHash(argumentsHash);
+        parent.setFanOut(jobGraphOptions.fanOut());
+        parent.setRetryLimit(retryProperties.defaultLimit());
+        parent.setState(JobState.WAITING);
+        jobJdbcRepository.insertAll(List.of(parent));
+
+        List<JobGraphNode> nodes = jobGraphOptions.children();
+        List<String> argumentsHashes = nodes.parallelStream()
+                .map(node -> hash(node.name(), node.arguments()))
+                .toList();
+        Map<String, Job> childrenByKey = new LinkedHashMap<>();
+        for (int i = 0; i < nodes.size(); i++) {
+            JobGraphNode node = nodes.get(i);
+            Job child = new Job();
+            child.setName(node.name());
+            child.setArguments(node.arguments());
+            child.setArgumentsHash(argumentsHashes.get(i));
+            child.setTimeoutMs(node.timeoutMs());
+            child.setRetryLimit(getRetryLimit(node.toExecutionOptions()));
+            child.setParentJobId(parent.getId());
+            child.setState(JobState.WAITING);
+            childrenByKey.put(node.key(), child);
+        }
+        jobJdbcRepository.insertAll(new ArrayList<>(childrenByKey.values()));
+
+        List<long[]> dependencies = new ArrayList<>();
+        for (JobGraphNode node : nodes) {
+            long childId = childrenByKey.get(node.key()).getId();
+            for (String dependency : node.dependsOn()) {
+                dependencies.add(new long[]{childId, childrenByKey.get(dependency).getId()});
+            }
+        }
+        jobGraphRepository.insertDependencies(dependencies);
+        return new JobCreationResult(parent, true);
+    }
+
+    /**
+     * The graph whose parent has the name and arguments, for submissions that lost the race to create it.
+     */
+    @Transactional(timeout = 3, readOnly = true)
+    public Optional<Job> findExistingJobGraph(JobGraphOptions jobGraphOptions) {
+        jobMetrics.timeTransaction("find_existing");
+        return jobRepository.findFirstByNameAndArgumentsHashAndParentJobIdIsNullOrderByIdDesc(
+                jobGraphOptions.name(),
+                hash(jobGraphOptions.name(), jobGraphOptions.arguments())
+        );
+    }
+
+    /**
+     * Hashes the arguments a job of the name is deduplicated by, see {@link JobProcessor#dedupeArguments(HashMap)}.
+     */
+    private String hash(String name, HashMap<String, Object> arguments) {
+        HashMap<String, Object> dedupeArguments = jobProcessorRegistry.find(name)
+                .map(processor -> processor.dedupeArguments(arguments))
+                .orElse(arguments);
+        return jobMetrics.timeHash(() -> shaHash.hash(dedupeArguments));
+    }
+
+    private int getRetryLimit(JobExecutionOptions jobExecutionOptions) {
+        return Optional.ofNullable(jobExecutionOptions.retryLimit()).orElse(retryProperties.defaultLimit());
+    }
+
+    private Optional<Job> findExistingJob(String name, String argumentsHash) {
+        // Jobs of same name and same arguments are only executed once
+        Optional<Job> cachedJob = dedupeCache.findTerminal(name, argumentsHash);
+        if (cachedJob.isPresent()) {
+            return cachedJob;
+        }
+        Optional<Job> activeJob = dedupeCache.findActive(name);
+        if (activeJob.isPresent() && Objects.equals(activeJob.get().getArgumentsHash(), argumentsHash)) {
+            return activeJob;
+        }
+
+        Optional<Job> existingJob = jobRepository.findFirstByNameAndArgumentsHashAndParentJobIdIsNullOrderByIdDesc(name, argumentsHash);
+        if (existingJob.isPresent()) {
+            dedupeCache.putTerminal(existingJob.get());
+            return existingJob;
+        }
+
+        // Jobs of same name and different arguments can be executed multiple times, BUT not at the same time!
+        if (activeJob.isPresent()) {
+            return activeJob;
+        }
+        return jobRepository.findActiveByName(name);
+    }
+
+    @Transactional(timeout = 3)
+    public boolean setJobToStopping(Long jobId) {
+        jobMetrics.timeTransaction("stopping");
+        boolean wasUpdated = jobRepository.setJobToStop(jobId) > 0;
+        if (wasUpdated) {
+            dedupeCache.onStateChange(jobId, JobState.STOPPING);
+        }
+        return wasUpdated;
+    }
+
+    /**
+     * Was job actually marked as started as there can be cases where it was stopped before running, in which case it
+     * is moved to STOPPED.
+     */
+    @Transactional(timeout = 3)
+    public boolean setJobToRunning(Long jobId) {
+        jobMetrics.timeTransaction("running");
+        JobState state = jobRepository.startJob(jobId)
+                .map(JobState::valueOf)
+                .orElseThrow(() -> transitionFailed(jobId, "can not be started"));
+        log.debug("setJobToRunning - {} {}", jobId, state);
+        dedupeCache.onStateChange(jobId, state);
+        return state == JobState.RUNNING;
     }
 
     @Transactional(timeout = 3)
     public void setJobToStopped(Long jobId) {
+        jobMetrics.timeTransaction("stopped");
         jobRepository.setJobStopped(jobId);
+        dedupeCache.onStateChange(jobId, JobState.STOPPED);
     }
 
+    /**
+     * @return COMPLETED, or STOPPED when the job was asked to stop while running
+     */
     @Transactional(timeout = 3)
-    public void setJobToCompletedOrStopped(Job job) {
-        if (job.getState().equals(JobState.STOPPING)) {
-            jobRepository.setJobStopped(job.getId());
-            return;
-        }
-        if (!Objects.equals(job.getState(), JobState.RUNNING)) {
-            throw new RuntimeException("Job " + job.getId() + " is not in running state but " + job.getState());
-        }
-        jobRepository.setJobCompleted(job.getId());
+    public JobState setJobToCompletedOrStopped(Long jobId) {
+        jobMetrics.timeTransaction("completed");
+        JobState state = jobRepository.completeJob(jobId)
+                .map(JobState::valueOf)
+                .orElseThrow(() -> transitionFailed(jobId, "is not in running state"));
+        dedupeCache.onStateChange(jobId, state);
+        return state;
     }
 
+    /**
+     * Running jobs with retries left are put back to READY instead of failing, see
+     * {@link JobJdbcRepository#failOrRetry}. Every failure is kept in {@code job_errors}, the job only keeps a summary
+     * of the latest one.
+     *
+     * @return when the job is attempted again, empty when it failed
+     */
     @Transactional(timeout = 3)
-    public void setJobToCompletedOrStopped(Long jobId) {
-        Job job = jobRepository.findById(jobId).orElseThrow(() -> new RuntimeException("Job not found"));
-        setJobToCompletedOrStopped(job);
+    public Optional<Instant> setJobToFailed(Long jobId, Throwable throwable) {
+        jobMetrics.timeTransaction("failed");
+        JobError.Details error = JobError.Details.of(throwable);
+        JobJdbcRepository.Failure failure = jobJdbcRepository.failOrRetry(jobId, error, retryProperties, true)
+                .orElseThrow(() -> transitionFailed(jobId, "is not in state to be failed"));
+        dedupeCache.onStateChange(jobId, failure.state());
+        return Optional.ofNullable(failure.nextAttemptAt());
     }
 
+    /**
+     * Fails the job for good even when it has retries left, its processor may still be running and a retry would
+     * run it twice at once.
+     */
     @Transactional(timeout = 3)
-    public void setJobToFailed(Long jobId, Throwable throwable) {
-        Job job = jobRepository.findById(jobId).orElseThrow(() -> new RuntimeException("Job not found"));
-        boolean isStopped = Objects.equals(job.getState(), JobState.STOPPED);
-        if (isStopped) {
-            throw new RuntimeException("Job " + job.getId() + " is not in state to be stopped: " + job.getState());
-        }
-        String error = throwable.getLocalizedMessage() + " " +Arrays.toString(throwable.getStackTrace());
-        jobRepository.setJobFailed(jobId, error);
+    public void setJobToTimedOut(Long jobId, Throwable throwable) {
+        jobMetrics.timeTransaction("failed");
+        JobJdbcRepository.Failure failure = jobJdbcRepository.failOrRetry(
+                        jobId, JobError.Details.of(throwable), retryProperties, false
+                )
+                .orElseThrow(() -> transitionFailed(jobId, "is not in state to be failed"));
+        dedupeCache.onStateChange(jobId, failure.state());
+    }
+
+    /**
+     * Reads the current state only to describe a rejected transition, the transitions themselves never read first.
+     */
+    private TransitionException transitionFailed(Long jobId, String reason) {
+        return jobRepository.findStateById(jobId)
+                .map(state -> new TransitionException("Job " + jobId + " " + reason + ": " + state))
+                .orElseGet(() -> new TransitionException("Job not found"));
+    }
+
+    /**
+     * The job was missing or not in a state the transition applies to, such as a job another node already started.
+     */
+    public static class TransitionException extends RuntimeException {
+        public TransitionException(String message) {
+            super(message);
+        }
     }
 }
@@ -0,0 +1,10 @@
+package com.doppelganger113.commandrunner.batching.job;
+
+/**
+ * Lanes of the {@link JobScheduler} queue, declared from the most to the least urgent.
+ */
+public enum JobPriority {
+    HIGH,
+    NORMAL,
+    LOW
+}
@@ -0,0 +1,52 @@
+package com.doppelganger113.commandrunner.batching.job;
+
+import com.doppelganger113.commandrunner.batching.job.processors.EmptyRunner;
+import com.doppelganger113.commandrunner.batching.job.processors.JobProcessor;
+import com.doppelganger113.commandrunner.batching.job.processors.JobRunner;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Processors by name, shared by {@link JobExecutor} that runs them and {@link JobPersistenceService} that
+ * deduplicates their jobs, so processors added or replaced at runtime are seen by both.
+ */
+@Component
+public class JobProcessorRegistry {
+
+    private final ConcurrentHashMap<String, JobProcessor> processors = new ConcurrentHashMap<>();
+
+    public JobProcessorRegistry(List<JobProcessor> jobProcessors) {
+        List<JobProcessor> all = new ArrayList<>(List.of(new JobRunner(), new EmptyRunner()));
+        all.addAll(jobProcessors);
+        all.forEach(this::add);
+    }
+
+    public void add(JobProcessor jobProcessor) {
+        processors.putIfAbsent(jobProcessor.getName(), jobProcessor);
+    }
+
+    public void remove(JobProcessor jobProcessor) {
+        processors.remove(jobProcessor.getName());
+    }
+
+    public void replace(JobProcessor jobProcessor) {
+        processors.replace(jobProcessor.getName(), jobProcessor);
+    }
+
+    public Optional<JobProcessor> find(String name) {
+        return Optional.ofNullable(processors.get(name));
+    }
+
+    public boolean contains(String name) {
+        return processors.containsKey(name);
+    }
+
+    public Set<String> getNames() {
+        return processors.keySet();
+    }
+}
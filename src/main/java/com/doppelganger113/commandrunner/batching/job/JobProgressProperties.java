@@ -0,0 +1,15 @@
+package com.doppelganger113.commandrunner.batching.job;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * @param flushInterval how often progress reported by running jobs is written to the database
+ */
+@ConfigurationProperties(prefix = "jobs.progress")
+public record JobProgressProperties(
+        @DefaultValue("1s") Duration flushInterval
+) {
+}
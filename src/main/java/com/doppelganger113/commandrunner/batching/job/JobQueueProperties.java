@@ -0,0 +1,33 @@
+package com.doppelganger113.commandrunner.batching.job;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * @param mode              {@code LOCAL} runs jobs on the node that received them, {@code DISTRIBUTED} only stores
+ *                          them and every node claims READY jobs from the {@code jobs} table
+ * @param nodeId            lease owner written to claimed jobs, a random id when not set
+ * @param pollInterval      pause between claims when no READY jobs were found and no job event arrived
+ * @param batchSize         jobs claimed at most in one round trip
+ * @param leaseDuration     time after which jobs of a node that stopped heartbeating are reclaimed
+ * @param heartbeatInterval how often leases of claimed jobs are extended, must be well below the lease duration
+ */
+@ConfigurationProperties(prefix = "jobs.queue")
+public record JobQueueProperties(
+        @DefaultValue("LOCAL") Mode mode,
+        String nodeId,
+        @DefaultValue("10s") Duration pollInterval,
+        @DefaultValue("10") int batchSize,
+        @DefaultValue("30s") Duration leaseDuration,
+        @DefaultValue("10s") Duration heartbeatInterval
+) {
+    public enum Mode {
+        LOCAL, DISTRIBUTED
+    }
+
+    public boolean isDistributed() {
+        return mode == Mode.DISTRIBUTED;
+    }
+}
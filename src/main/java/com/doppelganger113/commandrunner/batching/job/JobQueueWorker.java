@@ -0,0 +1,171 @@
+package com.doppelganger113.commandrunner.batching.job;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Claims READY jobs from the {@code jobs} table and runs them through the local {@link JobScheduler}, so any number
+ * of nodes can share the work of one database.
+ * <p>
+ * Only as many jobs are claimed as the scheduler can start right away, claimed jobs are leased to this node and
+ * the lease is extended by a heartbeat until they finish. Jobs of a node that stopped heartbeating are put back to
+ * READY once their lease expires and are claimed again by the remaining nodes. Job events wake the worker up as
+ * soon as there is something to claim, the poll interval only bounds the delay when events were missed.
+ */
+@Component
+@ConditionalOnProperty(name = "jobs.queue.mode", havingValue = "DISTRIBUTED")
+public class JobQueueWorker {
+
+    private final Logger log = LoggerFactory.getLogger(JobQueueWorker.class);
+
+    private final JobQueueProperties properties;
+    private final JobJdbcRepository jobJdbcRepository;
+    private final JobScheduler jobScheduler;
+    private final JobExecutor jobExecutor;
+    private final JobDedupeCache dedupeCache;
+    private final TransactionTemplate transactionTemplate;
+    private final String nodeId;
+
+    /**
+     * Released by job events that may let this node claim more jobs, polling only covers missed events.
+     */
+    private final Semaphore wakeUps = new Semaphore(0);
+    private final JobEventBus.Subscription subscription;
+
+    private final Thread worker;
+    private volatile boolean running = true;
+
+    public JobQueueWorker(
+            JobQueueProperties properties,
+            JobJdbcRepository jobJdbcRepository,
+            JobScheduler jobScheduler,
+            JobExecutor jobExecutor,
+            JobDedupeCache dedupeCache,
+            TransactionTemplate transactionTemplate,
+            JobEventBus jobEventBus
+    ) {
+        this.properties = properties;
+        this.jobJdbcRepository = jobJdbcRepository;
+        this.jobScheduler = jobScheduler;
+        this.jobExecutor = jobExecutor;
+        this.dedupeCache = dedupeCache;
+        this.transactionTemplate = transactionTemplate;
+        this.nodeId = Optional.ofNullable(properties.nodeId()).orElseGet(() -> UUID.randomUUID().toString());
+        this.subscription = jobEventBus.subscribe(this::onJobEvent);
+        this.worker = Thread.ofVirtual().name("job-queue-worker").start(this::work);
+        log.info("job queue worker started as node {}", nodeId);
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    private void work() {
+        long nextHeartbeat = System.nanoTime();
+        while (running) {
+            try {
+                if (System.nanoTime() - nextHeartbeat >= 0) {
+                    heartbeat();
+                    nextHeartbeat = System.nanoTime() + properties.heartbeatInterval().toNanos();
+                }
+                if (claim() < properties.batchSize()) {
+                    long waitNanos = Math.min(properties.pollInterval().toNanos(), nextHeartbeat - System.nanoTime());
+                    if (wakeUps.tryAcquire(Math.max(0, waitNanos), TimeUnit.NANOSECONDS)) {
+                        wakeUps.drainPermits();
+                    }
+                }
+            } catch (InterruptedException e) {
+                return;
+            } catch (RuntimeException e) {
+                log.error("job queue worker failed to poll, retrying in {}", properties.pollInterval(), e);
+                sleep(properties.pollInterval());
+            }
+        }
+    }
+
+    /**
+     * New READY jobs can be claimed and finished jobs free local capacity.
+     */
+    private void onJobEvent(JobEvent event) {
+        if (event.state() == JobState.READY || JobPersistenceService.JOB_DONE_STATES.contains(event.state())) {
+            if (wakeUps.availablePermits() == 0) {
+                wakeUps.release();
+            }
+        }
+    }
+
+    private void heartbeat() {
+        int extended = jobJdbcRepository.extendLeases(nodeId, properties.leaseDuration());
+        log.debug("job queue worker extended {} leases", extended);
+
+        Map<Long, JobState> reset = transactionTemplate.execute(status -> {
+            Map<Long, JobState> states = jobJdbcRepository.resetExpiredLeases();
+            states.forEach(dedupeCache::onStateChange);
+            return states;
+        });
+        if (reset != null && !reset.isEmpty()) {
+            log.warn("job queue worker reclaimed jobs with expired leases: {}", reset);
+        }
+    }
+
+    /**
+     * @return number of claimed jobs
+     */
+    private int claim() {
+        int capacity = Math.min(properties.batchSize(), jobScheduler.getIdleCapacity());
+        if (capacity == 0) {
+            return 0;
+        }
+        Optional<JobScheduler.Reservation> reservation = jobScheduler.reserve(capacity);
+        if (reservation.isEmpty()) {
+            return 0;
+        }
+
+        try (JobScheduler.Reservation slots = reservation.get()) {
+            List<String> names = jobExecutor.getAvailableJobs().stream().map(JobExecutor.JobSettings::name).toList();
+            List<Job> jobs = jobJdbcRepository.claimReady(nodeId, properties.leaseDuration(), names, capacity);
+            for (Job job : jobs) {
+                jobScheduler.submit(slots, job.getName(), JobPriority.NORMAL, () -> jobExecutor.execute(job));
+            }
+            if (!jobs.isEmpty()) {
+                log.debug("job queue worker claimed {} jobs", jobs.size());
+            }
+            return jobs.size();
+        }
+    }
+
+    private static void sleep(Duration duration) {
+        try {
+            Thread.sleep(duration);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Gives back jobs that were claimed but not started yet, so other nodes do not wait for their lease to expire.
+     */
+    @PreDestroy
+    public void close() throws InterruptedException {
+        running = false;
+        subscription.close();
+        worker.interrupt();
+        worker.join(Duration.ofSeconds(5));
+        int released = jobJdbcRepository.releaseReadyLeases(nodeId);
+        if (released > 0) {
+            log.info("job queue worker released {} claimed jobs", released);
+        }
+    }
+}
@@ -5,14 +5,22 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.ListCrudRepository;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.util.List;
 import java.util.Optional;
 
 public interface JobRepository extends ListCrudRepository<Job, Long> {
 
-    Optional<Job> findByNameAndStateNotInOrderByCreatedAtDesc(String name, List<JobState> states);
+    /**
+     * States are inlined so the planner can match the partial index {@code jobs_active_name_created_at_idx}, children
+     * of job graphs never block submissions.
+     */
+    String FIND_ACTIVE_BY_NAME = "SELECT * FROM jobs " +
+            "WHERE name = ?1 AND state NOT IN ('COMPLETED', 'FAILED', 'STOPPED') AND parent_job_id IS NULL " +
+            "ORDER BY created_at DESC LIMIT 1";
 
-    Optional<Job> findFirstByNameAndArgumentsHashOrderByIdDesc(String name, String argumentsHash);
+    @Query(value = FIND_ACTIVE_BY_NAME, nativeQuery = true)
+    Optional<Job> findActiveByName(String name);
+
+    Optional<Job> findFirstByNameAndArgumentsHashAndParentJobIdIsNullOrderByIdDesc(String name, String argumentsHash);
 
     @Transactional
     @Modifying
@@ -20,7 +28,7 @@ public interface JobRepository extends ListCrudRepository<Job, Long> {
             value = "UPDATE jobs SET state = 'STOPPING', updated_at = NOW() WHERE id = ?1 AND (state = 'RUNNING' OR state = 'READY')",
             nativeQuery = true
     )
-    void setJobToStop(Long id);
+    int setJobToStop(Long id);
 
     @Transactional
     @Modifying
@@ -30,23 +38,41 @@ public interface JobRepository extends ListCrudRepository<Job, Long> {
     )
     void setJobStopped(Long id);
 
-    @Modifying
-    @Query(value = "UPDATE jobs SET state = 'RUNNING', started_at = NOW() WHERE id = ?1", nativeQuery = true)
-    void setJobStarted(Long id);
+    @Query(value = "SELECT state FROM jobs WHERE id = ?1", nativeQuery = true)
+    Optional<String> findStateById(Long id);
 
-    @Modifying
+    /**
+     * Starts a READY job, a job that was asked to stop before it started is stopped instead.
+     *
+     * @return new state of the job, empty when it was in neither state
+     */
+    @Transactional
     @Query(
-            value = "UPDATE jobs " +
-                    "SET state = 'COMPLETED', completed_at = NOW(), duration_ms = EXTRACT(MILLISECONDS FROM (NOW() - started_at)) " +
-                    "WHERE id = ?1",
+            value = "UPDATE jobs SET " +
+                    "state = CASE WHEN state = 'STOPPING' THEN 'STOPPED' ELSE 'RUNNING' END, " +
+                    "started_at = CASE WHEN state = 'STOPPING' THEN started_at ELSE NOW() END, " +
+                    "duration_ms = CASE WHEN state = 'STOPPING' THEN EXTRACT(MILLISECONDS FROM (NOW() - started_at)) ELSE duration_ms END, " +
+                    "next_attempt_at = NULL " +
+                    "WHERE id = ?1 AND state IN ('READY', 'STOPPING') " +
+                    "RETURNING state",
             nativeQuery = true
     )
-    void setJobCompleted(Long id);
+    Optional<String> startJob(Long id);
 
-    @Modifying
+    /**
+     * Completes a RUNNING job, a job that was asked to stop while running is stopped instead.
+     *
+     * @return new state of the job, empty when it was in neither state
+     */
+    @Transactional
     @Query(
-            value = "UPDATE jobs SET state = 'FAILED', completed_at = NOW(), duration_ms = EXTRACT(MILLISECONDS FROM (NOW() - started_at)), error = ?2 WHERE id = ?1",
+            value = "UPDATE jobs SET " +
+                    "state = CASE WHEN state = 'STOPPING' THEN 'STOPPED' ELSE 'COMPLETED' END, " +
+                    "completed_at = CASE WHEN state = 'STOPPING' THEN completed_at ELSE NOW() END, " +
+                    "duration_ms = EXTRACT(MILLISECONDS FROM (NOW() - started_at)) " +
+                    "WHERE id = ?1 AND state IN ('RUNNING', 'STOPPING') " +
+                    "RETURNING state",
             nativeQuery = true
     )
-    void setJobFailed(Long id, String error);
+    Optional<String> completeJob(Long id);
 }
@@ -0,0 +1,24 @@
+package com.doppelganger113.commandrunner.batching.job;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * @param defaultLimit   failed attempts retried for jobs submitted without a retry limit of their own
+ * @param initialBackoff delay before the first retry
+ * @param multiplier     growth of the delay with every further retry
+ * @param maxBackoff     upper bound of the delay
+ * @param jitter         fraction of the delay that is randomly taken off, so jobs that failed together do not
+ *                       retry together
+ */
+@ConfigurationProperties(prefix = "jobs.retry")
+public record JobRetryProperties(
+        @DefaultValue("0") int defaultLimit,
+        @DefaultValue("1s") Duration initialBackoff,
+        @DefaultValue("2.0") double multiplier,
+        @DefaultValue("10m") Duration maxBackoff,
+        @DefaultValue("0.2") double jitter
+) {
+}
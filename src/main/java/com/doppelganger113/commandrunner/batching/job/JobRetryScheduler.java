@@ -0,0 +1,145 @@
+package com.doppelganger113.commandrunner.batching.job;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.Optional;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs failed jobs again once their backoff passed.
+ * <p>
+ * Jobs waiting for a retry are READY with {@code next_attempt_at} set, here they only sit in a {@link DelayQueue}
+ * that a single dispatcher takes due jobs from and hands to {@link JobScheduler}, no thread is held per waiting
+ * job. Retries pending when the node stopped are read back on startup. In the distributed queue mode nothing is
+ * kept here, any {@link JobQueueWorker} claims the job once it is due, at the latest after its poll interval.
+ * <p>
+ * Jobs released by {@link JobGraphCoordinator} are queued here as well, due right away, so they wait for room in
+ * the scheduler queue instead of being rejected. Their {@code next_attempt_at} is set on release, so they are read
+ * back on startup like retries.
+ */
+@Component
+public class JobRetryScheduler implements MeterBinder {
+
+    private final Logger log = LoggerFactory.getLogger(JobRetryScheduler.class);
+
+    private static final Duration QUEUE_FULL_DELAY = Duration.ofSeconds(1);
+
+    private record PendingRetry(Job job, Instant dueAt) implements Delayed {
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(Duration.between(Instant.now(), dueAt));
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            return dueAt.compareTo(((PendingRetry) other).dueAt);
+        }
+    }
+
+    private final DelayQueue<PendingRetry> pendingRetries = new DelayQueue<>();
+    private final JobQueueProperties queueProperties;
+    private final JobJdbcRepository jobJdbcRepository;
+    private final JobScheduler jobScheduler;
+    private final ObjectProvider<JobExecutor> jobExecutor;
+    private final Thread dispatcher;
+    private volatile boolean running = true;
+
+    /**
+     * {@link JobExecutor} schedules retries itself, so it is looked up lazily.
+     */
+    public JobRetryScheduler(
+            JobQueueProperties queueProperties,
+            JobJdbcRepository jobJdbcRepository,
+            JobScheduler jobScheduler,
+            ObjectProvider<JobExecutor> jobExecutor
+    ) {
+        this.queueProperties = queueProperties;
+        this.jobJdbcRepository = jobJdbcRepository;
+        this.jobScheduler = jobScheduler;
+        this.jobExecutor = jobExecutor;
+        this.dispatcher = Thread.ofVirtual().name("job-retry-dispatcher").start(this::dispatch);
+    }
+
+    /**
+     * @param nextAttemptAt as returned by {@link JobPersistenceService#setJobToFailed}, nothing is scheduled when
+     *                      the job failed for good
+     */
+    void schedule(Job job, Optional<Instant> nextAttemptAt) {
+        if (queueProperties.isDistributed() || nextAttemptAt.isEmpty()) {
+            return;
+        }
+        log.debug("job {} retries at {}", job.getId(), nextAttemptAt.get());
+        pendingRetries.add(new PendingRetry(job, nextAttemptAt.get()));
+    }
+
+    void submit(Job job) {
+        schedule(job, Optional.of(Instant.now()));
+    }
+
+    public int getPendingCount() {
+        return pendingRetries.size();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("jobs.retries.pending", this, JobRetryScheduler::getPendingCount)
+                .description("Failed jobs and released graph children waiting for their attempt on this node")
+                .register(registry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void schedulePendingRetries() {
+        if (queueProperties.isDistributed()) {
+            return;
+        }
+        var jobs = jobJdbcRepository.findPendingRetries();
+        for (Job job : jobs) {
+            Instant dueAt = job.getNextAttemptAt().atZone(ZoneId.systemDefault()).toInstant();
+            pendingRetries.add(new PendingRetry(job, dueAt));
+        }
+        if (!jobs.isEmpty()) {
+            log.info("scheduled {} job retries pending from before the restart", jobs.size());
+        }
+    }
+
+    private void dispatch() {
+        while (running) {
+            PendingRetry pendingRetry;
+            try {
+                pendingRetry = pendingRetries.take();
+            } catch (InterruptedException e) {
+                return;
+            }
+            Optional<JobScheduler.Reservation> reservation = jobScheduler.reserve(1);
+            if (reservation.isEmpty()) {
+                pendingRetries.add(new PendingRetry(pendingRetry.job(), Instant.now().plus(QUEUE_FULL_DELAY)));
+                continue;
+            }
+            try (JobScheduler.Reservation slot = reservation.get()) {
+                Job job = pendingRetry.job();
+                jobScheduler.submit(slot, job.getName(), JobPriority.NORMAL, () -> jobExecutor.getObject().execute(job));
+            }
+        }
+    }
+
+    @PreDestroy
+    public void close() throws InterruptedException {
+        running = false;
+        dispatcher.interrupt();
+        dispatcher.join(Duration.ofSeconds(5));
+    }
+}
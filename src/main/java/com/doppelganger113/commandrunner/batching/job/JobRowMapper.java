@@ -0,0 +1,93 @@
+package com.doppelganger113.commandrunner.batching.job;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+
+/**
+ * Maps rows of {@code jobs} read through JDBC, for the queries that bypass JPA. Arguments are read as the raw bytes of
+ * the column and decoded when they are first used unless {@code jobs.arguments.lazy} is disabled.
+ */
+@Component
+public class JobRowMapper implements RowMapper<Job> {
+
+    private static final TypeReference<HashMap<String, Object>> ARGUMENTS_TYPE = new TypeReference<>() {
+    };
+
+    private final ObjectReader argumentsReader;
+    private final JobArgumentsProperties properties;
+
+    public JobRowMapper(ObjectMapper objectMapper, JobArgumentsProperties properties) {
+        this.argumentsReader = objectMapper.readerFor(ARGUMENTS_TYPE);
+        this.properties = properties;
+    }
+
+    @Override
+    public Job mapRow(ResultSet rs, int rowNum) throws SQLException {
+        Job job = new Job();
+        job.setId(rs.getLong("id"));
+        job.setName(rs.getString("name"));
+        byte[] arguments = rs.getBytes("arguments");
+        if (arguments != null) {
+            JobArguments encoded = new JobArguments(argumentsReader, arguments);
+            if (properties.lazy()) {
+                job.setEncodedArguments(encoded);
+            } else {
+                job.setArguments(encoded.get());
+            }
+        }
+        job.setArgumentsHash(rs.getString("arguments_hash"));
+        job.setState(JobState.valueOf(rs.getString("state")));
+        job.setCreatedAt(getLocalDateTime(rs, "created_at"));
+        job.setUpdatedAt(getLocalDateTime(rs, "updated_at"));
+        job.setStartedAt(getLocalDateTime(rs, "started_at"));
+        job.setCompletedAt(getLocalDateTime(rs, "completed_at"));
+        job.setDurationMs(getLong(rs, "duration_ms"));
+        job.setRetryCount(getInteger(rs, "retry_count"));
+        job.setRetryLimit(getInteger(rs, "retry_limit"));
+        job.setParentJobId(getLong(rs, "parent_job_id"));
+        job.setError(rs.getString("error"));
+        job.setProgressDone(getLong(rs, "progress_done"));
+        job.setProgressTotal(getLong(rs, "progress_total"));
+        job.setTimeoutMs(getLong(rs, "timeout_ms"));
+        job.setNextAttemptAt(getLocalDateTime(rs, "next_attempt_at"));
+        job.setFanOut(getInteger(rs, "fan_out"));
+        return job;
+    }
+
+    HashMap<String, Object> readArguments(String json) throws SQLException {
+        if (json == null) {
+            return null;
+        }
+        try {
+            return argumentsReader.readValue(json);
+        } catch (IOException e) {
+            throw new SQLException("Cannot read job arguments", e);
+        }
+    }
+
+    static LocalDateTime getLocalDateTime(ResultSet rs, String column) throws SQLException {
+        Timestamp timestamp = rs.getTimestamp(column);
+        return timestamp == null ? null : timestamp.toLocalDateTime();
+    }
+
+    static Long getLong(ResultSet rs, String column) throws SQLException {
+        long value = rs.getLong(column);
+        return rs.wasNull() ? null : value;
+    }
+
+    static Integer getInteger(ResultSet rs, String column) throws SQLException {
+        int value = rs.getInt(column);
+        return rs.wasNull() ? null : value;
+    }
+}
@@ -0,0 +1,23 @@
+package com.doppelganger113.commandrunner.batching.job;
+
+import java.time.Instant;
+import java.util.HashMap;
+
+/**
+ * Recurring submission of a job, either by {@code cron} or every {@code fixedRateMs}.
+ *
+ * @param name      processor of the submitted jobs
+ * @param arguments template of the submitted arguments, see {@link JobScheduleService#FIRE_TIME_PLACEHOLDER}
+ */
+public record JobSchedule(
+        Long id,
+        String name,
+        String cron,
+        Long fixedRateMs,
+        HashMap<String, Object> arguments,
+        boolean enabled,
+        Instant nextFireAt,
+        Instant lastFiredAt,
+        Instant createdAt
+) {
+}
@@ -0,0 +1,121 @@
+package com.doppelganger113.commandrunner.batching.job;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public class JobScheduleRepository {
+
+    /**
+     * @param firedAt tick that was just fired
+     */
+    public record Fired(long id, Instant firedAt, Instant nextFireAt) {
+    }
+
+    private static final String INSERT = "INSERT INTO job_schedules (name, cron, fixed_rate_ms, arguments, next_fire_at) " +
+            "VALUES (?, ?, ?, ?::jsonb, ?) RETURNING *";
+
+    private static final String FIND_ALL = "SELECT * FROM job_schedules ORDER BY id";
+
+    private static final String DELETE = "DELETE FROM job_schedules WHERE id = ?";
+
+    static final String FIND_NEXT_FIRE_AT = "SELECT min(next_fire_at) FROM job_schedules WHERE enabled";
+
+    /**
+     * Rows locked by a node that still believes it is leading are skipped, so a tick is never fired twice.
+     */
+    static final String LOCK_DUE = "SELECT * FROM job_schedules WHERE enabled AND next_fire_at <= ? " +
+            "ORDER BY next_fire_at FOR UPDATE SKIP LOCKED";
+
+    private static final String UPDATE_FIRED = "UPDATE job_schedules SET next_fire_at = ?, last_fired_at = ? WHERE id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+    private final JobRowMapper jobRowMapper;
+    private final RowMapper<JobSchedule> scheduleRowMapper = this::mapSchedule;
+
+    public JobScheduleRepository(JdbcTemplate jdbcTemplate, ObjectMapper objectMapper, JobRowMapper jobRowMapper) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+        this.jobRowMapper = jobRowMapper;
+    }
+
+    public JobSchedule insert(JobSchedule schedule) {
+        String arguments;
+        try {
+            arguments = schedule.arguments() == null ? null : objectMapper.writeValueAsString(schedule.arguments());
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Cannot write arguments of schedule " + schedule.name(), e);
+        }
+        return jdbcTemplate.query(connection -> {
+            var statement = connection.prepareStatement(INSERT);
+            statement.setString(1, schedule.name());
+            statement.setString(2, schedule.cron());
+            statement.setObject(3, schedule.fixedRateMs(), Types.BIGINT);
+            statement.setString(4, arguments);
+            statement.setTimestamp(5, Timestamp.from(schedule.nextFireAt()));
+            return statement;
+        }, scheduleRowMapper).getFirst();
+    }
+
+    public List<JobSchedule> findAll() {
+        return jdbcTemplate.query(FIND_ALL, scheduleRowMapper);
+    }
+
+    public boolean delete(long id) {
+        return jdbcTemplate.update(DELETE, id) > 0;
+    }
+
+    public Optional<Instant> findNextFireAt() {
+        return Optional.ofNullable(jdbcTemplate.queryForObject(FIND_NEXT_FIRE_AT, Timestamp.class))
+                .map(Timestamp::toInstant);
+    }
+
+    /**
+     * Schedules due at the given time, locked until the end of the transaction.
+     */
+    public List<JobSchedule> lockDue(Instant now) {
+        return jdbcTemplate.query(LOCK_DUE, scheduleRowMapper, Timestamp.from(now));
+    }
+
+    public void updateFired(List<Fired> fired) {
+        if (fired.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(UPDATE_FIRED, fired, fired.size(), (ps, schedule) -> {
+            ps.setTimestamp(1, Timestamp.from(schedule.nextFireAt()));
+            ps.setTimestamp(2, Timestamp.from(schedule.firedAt()));
+            ps.setLong(3, schedule.id());
+        });
+    }
+
+    private JobSchedule mapSchedule(ResultSet rs, int rowNum) throws SQLException {
+        return new JobSchedule(
+                rs.getLong("id"),
+                rs.getString("name"),
+                rs.getString("cron"),
+                JobRowMapper.getLong(rs, "fixed_rate_ms"),
+                jobRowMapper.readArguments(rs.getString("arguments")),
+                rs.getBoolean("enabled"),
+                getInstant(rs, "next_fire_at"),
+                getInstant(rs, "last_fired_at"),
+                getInstant(rs, "created_at")
+        );
+    }
+
+    private static Instant getInstant(ResultSet rs, String column) throws SQLException {
+        Timestamp timestamp = rs.getTimestamp(column);
+        return timestamp == null ? null : timestamp.toInstant();
+    }
+}
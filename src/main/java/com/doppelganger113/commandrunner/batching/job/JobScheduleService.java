@@ -0,0 +1,139 @@
+package com.doppelganger113.commandrunner.batching.job;
+
+import com.doppelganger113.commandrunner.batching.job.dto.JobExecutionOptions;
+import com.doppelganger113.commandrunner.batching.job.dto.JobScheduleOptions;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.support.CronExpression;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@Service
+public class JobScheduleService {
+
+    /**
+     * Replaced with the tick in every string of the argument template. Identical submissions only ever run once, so
+     * the template has to contain it for every tick to submit a new job, while a tick fired twice still resolves to
+     * the same job.
+     */
+    public static final String FIRE_TIME_PLACEHOLDER = "${fireTime}";
+
+    private final JobScheduleRepository jobScheduleRepository;
+    private final JobExecutor jobExecutor;
+    private final JobSchedulesProperties properties;
+
+    public JobScheduleService(
+            JobScheduleRepository jobScheduleRepository,
+            JobExecutor jobExecutor,
+            JobSchedulesProperties properties
+    ) {
+        this.jobScheduleRepository = jobScheduleRepository;
+        this.jobExecutor = jobExecutor;
+        this.properties = properties;
+    }
+
+    public List<JobSchedule> findAll() {
+        return jobScheduleRepository.findAll();
+    }
+
+    public JobSchedule createSchedule(JobScheduleOptions options) {
+        validate(options);
+        Instant now = Instant.now();
+        return jobScheduleRepository.insert(new JobSchedule(
+                null,
+                options.name(),
+                options.cron(),
+                options.fixedRateMs(),
+                options.arguments(),
+                true,
+                options.cron() == null ? now : nextCronFireAt(options.cron(), now),
+                null,
+                null
+        ));
+    }
+
+    public void deleteSchedule(long id) {
+        if (!jobScheduleRepository.delete(id)) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND);
+        }
+    }
+
+    /**
+     * First tick after {@code now}, ticks missed while no node was leading are skipped.
+     */
+    Instant nextFireAt(JobSchedule schedule, Instant now) {
+        if (schedule.cron() != null) {
+            return nextCronFireAt(schedule.cron(), now);
+        }
+        Duration rate = Duration.ofMillis(schedule.fixedRateMs());
+        Instant previous = schedule.nextFireAt() == null ? now : schedule.nextFireAt();
+        long missedTicks = Duration.between(previous, now).dividedBy(rate);
+        return previous.plus(rate.multipliedBy(Math.max(0, missedTicks) + 1));
+    }
+
+    private Instant nextCronFireAt(String cron, Instant now) {
+        return CronExpression.parse(cron).next(now.atZone(properties.getZone())).toInstant();
+    }
+
+    JobExecutionOptions toExecutionOptions(JobSchedule schedule, Instant fireTime) {
+        @SuppressWarnings("unchecked")
+        HashMap<String, Object> arguments = (HashMap<String, Object>) render(schedule.arguments(), fireTime.toString());
+        return new JobExecutionOptions(schedule.name(), arguments);
+    }
+
+    private void validate(JobScheduleOptions options) {
+        if (!jobExecutor.hasExecutor(options.name())) {
+            throw new ResponseStatusException(
+                    HttpStatus.BAD_REQUEST,
+                    "Job executor with name " + options.name() + " does not exist, check /jobs/available for available jobs"
+            );
+        }
+        if ((options.cron() == null) == (options.fixedRateMs() == null)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Either cron or fixedRateMs has to be set");
+        }
+        if (options.cron() != null && !CronExpression.isValidExpression(options.cron())) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid cron expression " + options.cron());
+        }
+        if (options.fixedRateMs() != null && options.fixedRateMs() <= 0) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Fixed rate must be positive");
+        }
+        if (!containsPlaceholder(options.arguments())) {
+            throw new ResponseStatusException(
+                    HttpStatus.BAD_REQUEST,
+                    "Arguments need a " + FIRE_TIME_PLACEHOLDER + " placeholder, identical submissions only run once"
+            );
+        }
+    }
+
+    private static boolean containsPlaceholder(Object value) {
+        return switch (value) {
+            case String string -> string.contains(FIRE_TIME_PLACEHOLDER);
+            case Map<?, ?> map -> map.values().stream().anyMatch(JobScheduleService::containsPlaceholder);
+            case List<?> list -> list.stream().anyMatch(JobScheduleService::containsPlaceholder);
+            case null, default -> false;
+        };
+    }
+
+    private static Object render(Object value, String fireTime) {
+        return switch (value) {
+            case String string -> string.replace(FIRE_TIME_PLACEHOLDER, fireTime);
+            case Map<?, ?> map -> {
+                HashMap<Object, Object> rendered = new HashMap<>();
+                map.forEach((key, item) -> rendered.put(key, render(item, fireTime)));
+                yield rendered;
+            }
+            case List<?> list -> {
+                List<Object> rendered = new ArrayList<>(list.size());
+                list.forEach(item -> rendered.add(render(item, fireTime)));
+                yield rendered;
+            }
+            case null, default -> value;
+        };
+    }
+}
@@ -0,0 +1,182 @@
+package com.doppelganger113.commandrunner.batching.job;
+
+import com.doppelganger113.commandrunner.database.DedicatedConnectionFactory;
+import jakarta.annotation.PreDestroy;
+import org.postgresql.PGConnection;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Submits the jobs of {@code job_schedules} through {@link JobService#executeJob} when their tick is due.
+ * <p>
+ * Only the node holding a session level advisory lock on a dedicated connection fires schedules, the other nodes
+ * try to take the lock every leader retry interval and take over once the leading node's connection is gone. The
+ * leader sleeps on a single thread until the earliest tick, schedules changed on any node wake it up through
+ * {@code LISTEN} on the same connection. Due schedules are locked while their next tick is written, so a node
+ * that lost the lock without noticing yet can not fire the same tick again.
+ */
+@Component
+@ConditionalOnProperty(name = "jobs.schedules.enabled", havingValue = "true", matchIfMissing = true)
+public class JobScheduleTimer {
+
+    static final String CHANNEL = "job_schedules";
+    private static final String TRY_LEADER_LOCK = "SELECT pg_try_advisory_lock(hashtext('job_schedule_timer'))";
+
+    /**
+     * Upper bound of a sleep, so that a leader without schedules still notices a lost connection.
+     */
+    private static final Duration MAX_SLEEP = Duration.ofMinutes(1);
+
+    private final Logger log = LoggerFactory.getLogger(JobScheduleTimer.class);
+
+    private final DedicatedConnectionFactory connectionFactory;
+    private final JobSchedulesProperties properties;
+    private final JobScheduleRepository jobScheduleRepository;
+    private final JobScheduleService jobScheduleService;
+    private final JobService jobService;
+    private final TransactionTemplate transactionTemplate;
+
+    private final Thread timer;
+    private volatile Connection connection;
+    private volatile boolean leader;
+    private volatile boolean running = true;
+
+    public JobScheduleTimer(
+            DedicatedConnectionFactory connectionFactory,
+            JobSchedulesProperties properties,
+            JobScheduleRepository jobScheduleRepository,
+            JobScheduleService jobScheduleService,
+            JobService jobService,
+            TransactionTemplate transactionTemplate
+    ) {
+        this.connectionFactory = connectionFactory;
+        this.properties = properties;
+        this.jobScheduleRepository = jobScheduleRepository;
+        this.jobScheduleService = jobScheduleService;
+        this.jobService = jobService;
+        this.transactionTemplate = transactionTemplate;
+        this.timer = Thread.ofVirtual().name("job-schedule-timer").start(this::run);
+    }
+
+    public boolean isLeader() {
+        return leader;
+    }
+
+    private void run() {
+        while (running) {
+            try {
+                lead();
+            } catch (SQLException | RuntimeException e) {
+                if (!running) {
+                    return;
+                }
+                // Connection details that can not be resolved yet are retried like a lost connection
+                log.warn("job schedule timer lost its connection, retrying in {}", properties.leaderRetryInterval(), e);
+            }
+            if (!sleep(properties.leaderRetryInterval())) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Fires schedules for as long as this node holds the leader lock, returns right away when another node does.
+     */
+    private void lead() throws SQLException {
+        try (Connection leaderConnection = connectionFactory.open()) {
+            connection = leaderConnection;
+            try (Statement statement = leaderConnection.createStatement()) {
+                try (ResultSet resultSet = statement.executeQuery(TRY_LEADER_LOCK)) {
+                    if (!resultSet.next() || !resultSet.getBoolean(1)) {
+                        return;
+                    }
+                }
+                statement.execute("LISTEN " + CHANNEL);
+            }
+            leader = true;
+            log.info("job schedule timer is leading");
+
+            PGConnection pgConnection = leaderConnection.unwrap(PGConnection.class);
+            try {
+                while (running) {
+                    Duration sleep;
+                    try {
+                        fireDueSchedules();
+                        sleep = untilNextFire();
+                    } catch (RuntimeException e) {
+                        log.error("job schedule timer failed to fire schedules", e);
+                        sleep = properties.leaderRetryInterval();
+                    }
+                    pgConnection.getNotifications((int) Math.max(1, sleep.toMillis()));
+                }
+            } finally {
+                leader = false;
+            }
+        }
+    }
+
+    void fireDueSchedules() {
+        Instant now = Instant.now();
+        List<JobSchedule> due = transactionTemplate.execute(status -> {
+            List<JobSchedule> schedules = jobScheduleRepository.lockDue(now);
+            jobScheduleRepository.updateFired(schedules.stream()
+                    .map(schedule -> new JobScheduleRepository.Fired(
+                            schedule.id(),
+                            schedule.nextFireAt(),
+                            jobScheduleService.nextFireAt(schedule, now)
+                    ))
+                    .toList());
+            return schedules;
+        });
+        for (JobSchedule schedule : due) {
+            try {
+                jobService.executeJob(jobScheduleService.toExecutionOptions(schedule, schedule.nextFireAt()));
+                log.debug("job schedule {} fired {} for {}", schedule.id(), schedule.name(), schedule.nextFireAt());
+            } catch (RuntimeException e) {
+                log.warn("job schedule {} failed to submit {} for {}", schedule.id(), schedule.name(), schedule.nextFireAt(), e);
+            }
+        }
+    }
+
+    private Duration untilNextFire() {
+        return jobScheduleRepository.findNextFireAt()
+                .map(nextFireAt -> Duration.between(Instant.now(), nextFireAt))
+                .filter(duration -> duration.compareTo(MAX_SLEEP) < 0)
+                .orElse(MAX_SLEEP);
+    }
+
+    private static boolean sleep(Duration duration) {
+        try {
+            Thread.sleep(duration);
+            return true;
+        } catch (InterruptedException e) {
+            return false;
+        }
+    }
+
+    @PreDestroy
+    public void close() throws InterruptedException {
+        running = false;
+        timer.interrupt();
+        Connection leaderConnection = connection;
+        if (leaderConnection != null) {
+            try {
+                leaderConnection.close();
+            } catch (SQLException e) {
+                log.debug("job schedule timer failed to close its connection", e);
+            }
+        }
+        timer.join(Duration.ofSeconds(5));
+    }
+}
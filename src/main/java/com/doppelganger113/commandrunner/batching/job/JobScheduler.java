@@ -0,0 +1,222 @@
+package com.doppelganger113.commandrunner.batching.job;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Bounded, prioritized execution of jobs on virtual threads.
+ * <p>
+ * Submissions first reserve a slot in the admission queue, when the queue is full the reservation fails and
+ * callers can reject the submission instead of piling up work. A single dispatcher takes queued jobs from the
+ * highest priority lane that has a job whose processor is below its concurrency limit, as long as the global
+ * limit allows it, so a saturated processor does not block jobs of other processors queued behind it.
+ */
+@Component
+public class JobScheduler {
+
+    private final Logger log = LoggerFactory.getLogger(JobScheduler.class);
+
+    private record QueuedJob(String processorName, Runnable task, long queuedAtNanos) {
+    }
+
+    /**
+     * Slots of the admission queue held by a caller, slots that were not used for a submission are given back on
+     * close.
+     */
+    public final class Reservation implements AutoCloseable {
+        private final AtomicInteger remaining;
+
+        private Reservation(int slots) {
+            this.remaining = new AtomicInteger(slots);
+        }
+
+        private void use() {
+            if (remaining.getAndDecrement() <= 0) {
+                remaining.incrementAndGet();
+                throw new IllegalStateException("No reserved slots left");
+            }
+        }
+
+        @Override
+        public void close() {
+            int unused = remaining.getAndSet(0);
+            if (unused > 0) {
+                reservedSlots.addAndGet(-unused);
+            }
+        }
+    }
+
+    private final JobSchedulerProperties properties;
+    private final JobMetrics jobMetrics;
+    private final Semaphore globalPermits;
+    private final Map<String, Semaphore> processorPermits = new ConcurrentHashMap<>();
+    private final EnumMap<JobPriority, Deque<QueuedJob>> lanes = new EnumMap<>(JobPriority.class);
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition changed = lock.newCondition();
+
+    /**
+     * Slots taken by reservations and queued jobs, released once a job starts executing.
+     */
+    private final AtomicInteger reservedSlots = new AtomicInteger();
+    private final AtomicInteger activeCount = new AtomicInteger();
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final Thread dispatcher;
+    private volatile boolean running = true;
+
+    public JobScheduler(JobSchedulerProperties properties, JobMetrics jobMetrics) {
+        this.properties = properties;
+        this.jobMetrics = jobMetrics;
+        this.globalPermits = new Semaphore(properties.globalConcurrency());
+        for (JobPriority priority : JobPriority.values()) {
+            lanes.put(priority, new ArrayDeque<>());
+        }
+        this.dispatcher = Thread.ofVirtual().name("job-dispatcher").start(this::dispatch);
+    }
+
+    public Optional<Reservation> reserve(int slots) {
+        while (true) {
+            int reserved = reservedSlots.get();
+            if (reserved + slots > properties.queueCapacity()) {
+                return Optional.empty();
+            }
+            if (reservedSlots.compareAndSet(reserved, reserved + slots)) {
+                return Optional.of(new Reservation(slots));
+            }
+        }
+    }
+
+    public void submit(Reservation reservation, String processorName, JobPriority priority, Runnable task) {
+        reservation.use();
+        lock.lock();
+        try {
+            lanes.get(priority).addLast(new QueuedJob(processorName, task, System.nanoTime()));
+            changed.signal();
+        } finally {
+            lock.unlock();
+        }
+        jobMetrics.onQueued(processorName);
+    }
+
+    public int getQueueDepth() {
+        lock.lock();
+        try {
+            return lanes.values().stream().mapToInt(Deque::size).sum();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getActiveCount() {
+        return activeCount.get();
+    }
+
+    /**
+     * Jobs that could start right away without waiting for a running job to finish.
+     */
+    public int getIdleCapacity() {
+        return Math.max(0, properties.globalConcurrency() - activeCount.get() - reservedSlots.get());
+    }
+
+    private void dispatch() {
+        while (running) {
+            QueuedJob queuedJob;
+            lock.lock();
+            try {
+                while ((queuedJob = pollRunnable()) == null) {
+                    changed.await();
+                }
+            } catch (InterruptedException e) {
+                return;
+            } finally {
+                lock.unlock();
+            }
+            start(queuedJob);
+        }
+    }
+
+    /**
+     * Takes the first job, by priority and then by submission order, that can run within the concurrency limits
+     * and acquires its permits. Called while holding the lock.
+     */
+    private QueuedJob pollRunnable() {
+        if (!globalPermits.tryAcquire()) {
+            return null;
+        }
+        Set<String> saturatedProcessors = new HashSet<>();
+        for (Deque<QueuedJob> lane : lanes.values()) {
+            Iterator<QueuedJob> iterator = lane.iterator();
+            while (iterator.hasNext()) {
+                QueuedJob queuedJob = iterator.next();
+                if (saturatedProcessors.contains(queuedJob.processorName())) {
+                    continue;
+                }
+                if (getProcessorPermits(queuedJob.processorName()).tryAcquire()) {
+                    iterator.remove();
+                    return queuedJob;
+                }
+                saturatedProcessors.add(queuedJob.processorName());
+            }
+        }
+        globalPermits.release();
+        return null;
+    }
+
+    private void start(QueuedJob queuedJob) {
+        reservedSlots.decrementAndGet();
+        activeCount.incrementAndGet();
+        jobMetrics.onStarted(queuedJob.processorName(), queuedJob.queuedAtNanos());
+        executor.execute(() -> {
+            try {
+                queuedJob.task().run();
+            } catch (RuntimeException e) {
+                log.error("job execution failed for processor {}", queuedJob.processorName(), e);
+            } finally {
+                activeCount.decrementAndGet();
+                jobMetrics.onFinished(queuedJob.processorName());
+                getProcessorPermits(queuedJob.processorName()).release();
+                globalPermits.release();
+                lock.lock();
+                try {
+                    changed.signal();
+                } finally {
+                    lock.unlock();
+                }
+            }
+        });
+    }
+
+    private Semaphore getProcessorPermits(String processorName) {
+        return processorPermits.computeIfAbsent(
+                processorName,
+                name -> new Semaphore(properties.getProcessorConcurrency(name))
+        );
+    }
+
+    @PreDestroy
+    public void close() throws InterruptedException {
+        running = false;
+        dispatcher.interrupt();
+        int dropped = getQueueDepth();
+        if (dropped > 0) {
+            log.warn("job scheduler stopped with {} queued jobs left in READY state", dropped);
+        }
+        executor.shutdown();
+        if (!executor.awaitTermination(10, TimeUnit.SECONDS)) {
+            log.warn("job scheduler stopped before all running jobs finished");
+        }
+    }
+}
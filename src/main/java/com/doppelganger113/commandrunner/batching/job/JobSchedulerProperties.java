@@ -0,0 +1,24 @@
+package com.doppelganger113.commandrunner.batching.job;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.util.Map;
+
+/**
+ * @param globalConcurrency           jobs executing at the same time across all processors
+ * @param queueCapacity               jobs waiting for execution before submissions are rejected
+ * @param defaultProcessorConcurrency jobs of one processor executing at the same time, unless overridden
+ * @param processorConcurrency        overrides of the concurrency per {@code JobProcessor} name
+ */
+@ConfigurationProperties(prefix = "jobs.scheduler")
+public record JobSchedulerProperties(
+        @DefaultValue("16") int globalConcurrency,
+        @DefaultValue("1000") int queueCapacity,
+        @DefaultValue("16") int defaultProcessorConcurrency,
+        @DefaultValue Map<String, Integer> processorConcurrency
+) {
+    public int getProcessorConcurrency(String processorName) {
+        return processorConcurrency.getOrDefault(processorName, defaultProcessorConcurrency);
+    }
+}
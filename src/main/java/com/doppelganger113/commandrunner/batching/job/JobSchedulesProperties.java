@@ -0,0 +1,23 @@
+package com.doppelganger113.commandrunner.batching.job;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+import java.time.ZoneId;
+
+/**
+ * @param enabled             fire the schedules of {@code job_schedules}, only the node holding the leader lock does
+ * @param zone                time zone cron expressions are evaluated in, the system zone when not set
+ * @param leaderRetryInterval how often nodes that are not leading try to take the leader lock
+ */
+@ConfigurationProperties(prefix = "jobs.schedules")
+public record JobSchedulesProperties(
+        @DefaultValue("true") boolean enabled,
+        ZoneId zone,
+        @DefaultValue("30s") Duration leaderRetryInterval
+) {
+    public ZoneId getZone() {
+        return zone == null ? ZoneId.systemDefault() : zone;
+    }
+}
@@ -2,38 +2,159 @@ package com.doppelganger113.commandrunner.batching.job;
 
 import com.doppelganger113.commandrunner.batching.job.dto.JobExecutionOptions;
 import com.doppelganger113.commandrunner.batching.job.dto.JobExecutionResponse;
+import com.doppelganger113.commandrunner.batching.job.dto.JobExecutionStats;
+import com.doppelganger113.commandrunner.batching.job.dto.JobGraphNode;
+import com.doppelganger113.commandrunner.batching.job.dto.JobGraphOptions;
+import com.doppelganger113.commandrunner.batching.job.dto.JobQuery;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
 
 @Service
 public class JobService {
 
     private final Logger log = LoggerFactory.getLogger(JobService.class);
 
-    private final JobRepository jobRepository;
+    public static final int MAX_PAGE_LIMIT = 1000;
+
+    private final JobJdbcRepository jobJdbcRepository;
+    private final ObjectMapper objectMapper;
     private final JobPersistenceService jobPersistenceService;
     private final JobExecutor jobExecutor;
+    private final JobDedupeCache dedupeCache;
+    private final JobScheduler jobScheduler;
+    private final JobQueueProperties queueProperties;
+    private final JobEventBroadcaster jobEventBroadcaster;
+    private final RunningJobRegistry runningJobRegistry;
+    private final JobWatchdog jobWatchdog;
+    private final JobGraphCoordinator jobGraphCoordinator;
+    private final JobMetrics jobMetrics;
+    private final JobErrorRepository jobErrorRepository;
 
-    public JobService(JobRepository jobRepository, JobPersistenceService jobPersistenceService, JobExecutor jobExecutor) {
-        this.jobRepository = jobRepository;
+    public JobService(
+            JobJdbcRepository jobJdbcRepository,
+            ObjectMapper objectMapper,
+            JobPersistenceService jobPersistenceService,
+            JobExecutor jobExecutor,
+            JobDedupeCache dedupeCache,
+            JobScheduler jobScheduler,
+            JobQueueProperties queueProperties,
+            JobEventBroadcaster jobEventBroadcaster,
+            RunningJobRegistry runningJobRegistry,
+            JobWatchdog jobWatchdog,
+            JobGraphCoordinator jobGraphCoordinator,
+            JobMetrics jobMetrics,
+            JobErrorRepository jobErrorRepository
+    ) {
+        this.jobJdbcRepository = jobJdbcRepository;
+        this.objectMapper = objectMapper;
         this.jobPersistenceService = jobPersistenceService;
         this.jobExecutor = jobExecutor;
+        this.dedupeCache = dedupeCache;
+        this.jobScheduler = jobScheduler;
+        this.queueProperties = queueProperties;
+        this.jobEventBroadcaster = jobEventBroadcaster;
+        this.runningJobRegistry = runningJobRegistry;
+        this.jobWatchdog = jobWatchdog;
+        this.jobGraphCoordinator = jobGraphCoordinator;
+        this.jobMetrics = jobMetrics;
+        this.jobErrorRepository = jobErrorRepository;
+    }
+
+    public List<Job> findAll(JobQuery query) {
+        validateLimit(query.limit());
+        return jobJdbcRepository.findAll(query);
+    }
+
+    /**
+     * Writes all jobs matching the query as newline delimited JSON, rows are streamed from the database so memory
+     * use does not depend on the number of jobs.
+     */
+    @Transactional(readOnly = true)
+    public void exportJobs(JobQuery query, OutputStream outputStream) throws IOException {
+        ObjectWriter writer = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        try (JsonGenerator generator = objectMapper.createGenerator(outputStream)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            jobJdbcRepository.forEach(query, job -> {
+                try {
+                    writer.writeValue(generator, job);
+                    generator.writeRaw('\n');
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static void validateLimit(int limit) {
+        if (limit < 1 || limit > MAX_PAGE_LIMIT) {
+            throw new ResponseStatusException(
+                    HttpStatus.BAD_REQUEST,
+                    "Limit must be between 1 and " + MAX_PAGE_LIMIT
+            );
+        }
     }
 
-    public List<Job> findAll() {
-        return jobRepository.findAll();
+    public SseEmitter subscribeToJobEvents(long jobId) {
+        return jobEventBroadcaster.subscribeToJob(jobId, () -> jobJdbcRepository.findEventById(jobId))
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
+    }
+
+    public SseEmitter subscribeToJobEvents(String name) {
+        return jobEventBroadcaster.subscribeToJobs(name);
     }
 
     public List<JobExecutor.JobSettings> getAvailableJobs() {
         return jobExecutor.getAvailableJobs();
     }
 
-    public JobExecutionResponse executeJob(JobExecutionOptions jobExecutionOptions) {
+    public void stopJob(long jobId) {
+        if (jobGraphCoordinator.stop(jobId)) {
+            return;
+        }
+        if (jobPersistenceService.setJobToStopping(jobId)) {
+            runningJobRegistry.cancel(jobId);
+        }
+    }
+
+    public JobDedupeCache.Stats getDedupeCacheStats() {
+        return dedupeCache.getStats();
+    }
+
+    public JobExecutionStats getExecutionStats() {
+        return new JobExecutionStats(
+                jobScheduler.getQueueDepth(),
+                jobScheduler.getActiveCount(),
+                jobWatchdog.getTimedOutCount()
+        );
+    }
+
+    private void validateOptions(JobExecutionOptions jobExecutionOptions) {
         if (!jobExecutor.hasExecutor(jobExecutionOptions.name())) {
             throw new ResponseStatusException(
                     HttpStatus.BAD_REQUEST,
@@ -42,12 +163,196 @@ public class JobService {
                             + " does not exist, check /jobs/available for available jobs"
             );
         }
+        if (jobExecutionOptions.timeoutMs() != null && jobExecutionOptions.timeoutMs() <= 0) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Timeout must be positive");
+        }
+        if (jobExecutionOptions.retryLimit() != null && jobExecutionOptions.retryLimit() < 0) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Retry limit must not be negative");
+        }
+    }
 
-        JobPersistenceService.JobCreationResult result = jobPersistenceService.createNewJobOrGetExisting(jobExecutionOptions);
-        if (result.wasCreated()) {
-            jobExecutor.execute(result.job());
+    private void validateJobGraph(JobGraphOptions jobGraphOptions) {
+        validateOptions(new JobExecutionOptions(jobGraphOptions.name(), jobGraphOptions.arguments()));
+        if (jobGraphOptions.fanOut() != null && jobGraphOptions.fanOut() <= 0) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Fan-out must be positive");
+        }
+        if (jobGraphOptions.children().isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Job graph needs at least one child");
         }
 
+        Map<String, JobGraphNode> nodesByKey = new HashMap<>();
+        Set<JobExecutionOptions> submissions = new HashSet<>();
+        for (JobGraphNode node : jobGraphOptions.children()) {
+            if (node.key() == null) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Every child needs a key");
+            }
+            if (nodesByKey.put(node.key(), node) != null) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Duplicate child key " + node.key());
+            }
+            validateOptions(node.toExecutionOptions());
+            if (!submissions.add(new JobExecutionOptions(node.name(), node.arguments()))) {
+                throw new ResponseStatusException(
+                        HttpStatus.BAD_REQUEST,
+                        "Child " + node.key() + " has the same name and arguments as another child"
+                );
+            }
+        }
+
+        // Kahn's algorithm, children left over once no more can be ordered are part of a cycle
+        Map<String, Integer> unresolvedDependencies = new HashMap<>();
+        Map<String, List<String>> dependents = new HashMap<>();
+        for (JobGraphNode node : jobGraphOptions.children()) {
+            for (String dependency : node.dependsOn()) {
+                if (!nodesByKey.containsKey(dependency)) {
+                    throw new ResponseStatusException(
+                            HttpStatus.BAD_REQUEST,
+                            "Child " + node.key() + " depends on unknown child " + dependency
+                    );
+                }
+                dependents.computeIfAbsent(dependency, key -> new ArrayList<>()).add(node.key());
+            }
+            unresolvedDependencies.put(node.key(), new HashSet<>(node.dependsOn()).size());
+        }
+        Deque<String> resolved = new ArrayDeque<>();
+        unresolvedDependencies.forEach((key, count) -> {
+            if (count == 0) {
+                resolved.add(key);
+            }
+        });
+        int ordered = 0;
+        while (!resolved.isEmpty()) {
+            String key = resolved.poll();
+            ordered++;
+            for (String dependent : dependents.getOrDefault(key, List.of())) {
+                if (unresolvedDependencies.merge(dependent, -1, Integer::sum) == 0) {
+                    resolved.add(dependent);
+                }
+            }
+        }
+        if (ordered < nodesByKey.size()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Dependencies of the children contain a cycle");
+        }
+    }
+
+    /**
+     * Creates a parent with its children and starts the children that do not depend on others, see
+     * {@link JobGraphCoordinator}.
+     */
+    public JobExecutionResponse executeJobGraph(JobGraphOptions jobGraphOptions) {
+        validateJobGraph(jobGraphOptions);
+
+        JobPersistenceService.JobCreationResult result;
+        try {
+            result = jobPersistenceService.createJobGraph(jobGraphOptions);
+        } catch (DuplicateKeyException e) {
+            // An identical graph was created concurrently, answered like any other duplicate submission
+            Job existingJob = jobPersistenceService.findExistingJobGraph(jobGraphOptions).orElseThrow(() -> e);
+            result = new JobPersistenceService.JobCreationResult(existingJob, false);
+        }
+        recordSubmission(result);
+        if (result.wasCreated()) {
+            jobGraphCoordinator.advance(result.job().getId());
+        }
         return JobExecutionResponse.from(result);
     }
+
+    public List<Job> findChildJobs(long parentId) {
+        return jobGraphCoordinator.findChildren(parentId);
+    }
+
+    public List<JobError> findJobErrors(long jobId) {
+        return jobErrorRepository.findByJobId(jobId);
+    }
+
+    public JobExecutionResponse executeJob(JobExecutionOptions jobExecutionOptions) {
+        validateOptions(jobExecutionOptions);
+
+        if (queueProperties.isDistributed()) {
+            // Stored as READY, one of the JobQueueWorker nodes claims and runs it
+            return JobExecutionResponse.from(recordSubmission(
+                    jobPersistenceService.createNewJobOrGetExisting(jobExecutionOptions)
+            ));
+        }
+
+        Optional<JobScheduler.Reservation> reservation = jobScheduler.reserve(1);
+        if (reservation.isEmpty()) {
+            // Submissions that would not create a new job are still answered when the queue is full
+            Job existingJob = jobPersistenceService.findExistingJob(jobExecutionOptions)
+                    .orElseThrow(() -> {
+                        jobMetrics.recordSubmission(jobExecutionOptions.name(), JobMetrics.Submission.REJECTED);
+                        return new ResponseStatusException(HttpStatus.TOO_MANY_REQUESTS, "Job queue is full, retry later");
+                    });
+            return JobExecutionResponse.from(recordSubmission(
+                    new JobPersistenceService.JobCreationResult(existingJob, false)
+            ));
+        }
+
+        try (JobScheduler.Reservation slot = reservation.get()) {
+            JobPersistenceService.JobCreationResult result = jobPersistenceService.createNewJobOrGetExisting(jobExecutionOptions);
+            recordSubmission(result);
+            if (result.wasCreated()) {
+                Job job = result.job();
+                jobScheduler.submit(slot, job.getName(), jobExecutionOptions.priority(), () -> jobExecutor.execute(job));
+            }
+
+            return JobExecutionResponse.from(result);
+        }
+    }
+
+    /**
+     * Submits all jobs at once, the batch is rejected as a whole when the queue can not hold its new jobs.
+     */
+    public List<JobExecutionResponse> executeJobs(List<JobExecutionOptions> jobExecutionOptions) {
+        jobExecutionOptions.forEach(this::validateOptions);
+
+        if (queueProperties.isDistributed()) {
+            return jobPersistenceService.createNewJobsOrGetExisting(jobExecutionOptions, newJobCount -> {})
+                    .stream()
+                    .map(this::recordSubmission)
+                    .map(JobExecutionResponse::from)
+                    .toList();
+        }
+
+        AtomicReference<JobScheduler.Reservation> reservation = new AtomicReference<>();
+        try {
+            List<JobPersistenceService.JobCreationResult> results = jobPersistenceService.createNewJobsOrGetExisting(
+                    jobExecutionOptions,
+                    newJobCount -> reservation.set(jobScheduler.reserve(newJobCount)
+                            .orElseThrow(() -> {
+                                jobExecutionOptions.forEach(options -> jobMetrics.recordSubmission(
+                                        options.name(),
+                                        JobMetrics.Submission.REJECTED
+                                ));
+                                return new ResponseStatusException(
+                                        HttpStatus.TOO_MANY_REQUESTS,
+                                        "Job queue can not take " + newJobCount + " new jobs, retry later"
+                                );
+                            }))
+            );
+
+            List<JobExecutionResponse> responses = new ArrayList<>(results.size());
+            for (int i = 0; i < results.size(); i++) {
+                JobPersistenceService.JobCreationResult result = recordSubmission(results.get(i));
+                if (result.wasCreated()) {
+                    Job job = result.job();
+                    JobPriority priority = jobExecutionOptions.get(i).priority();
+                    jobScheduler.submit(reservation.get(), job.getName(), priority, () -> jobExecutor.execute(job));
+                }
+                responses.add(JobExecutionResponse.from(result));
+            }
+            return responses;
+        } finally {
+            if (reservation.get() != null) {
+                reservation.get().close();
+            }
+        }
+    }
+
+    private JobPersistenceService.JobCreationResult recordSubmission(JobPersistenceService.JobCreationResult result) {
+        jobMetrics.recordSubmission(
+                result.job().getName(),
+                result.wasCreated() ? JobMetrics.Submission.CREATED : JobMetrics.Submission.DEDUPLICATED
+        );
+        return result;
+    }
 }
@@ -1,6 +1,7 @@
 package com.doppelganger113.commandrunner.batching.job;
 
 public enum JobState {
+    WAITING("WAITING"),
     READY("READY"),
     RUNNING("RUNNING"),
     STOPPING("STOPPING"),
@@ -0,0 +1,22 @@
+package com.doppelganger113.commandrunner.batching.job;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * @param defaultTimeout   execution time after which jobs fail, no limit when not set
+ * @param processorTimeout overrides of the timeout per {@code JobProcessor} name
+ */
+@ConfigurationProperties(prefix = "jobs.timeout")
+public record JobTimeoutProperties(
+        Duration defaultTimeout,
+        @DefaultValue Map<String, Duration> processorTimeout
+) {
+    public Optional<Duration> getTimeout(String processorName) {
+        return Optional.ofNullable(processorTimeout.getOrDefault(processorName, defaultTimeout));
+    }
+}
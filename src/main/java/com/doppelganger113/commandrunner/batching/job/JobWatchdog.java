@@ -0,0 +1,100 @@
+package com.doppelganger113.commandrunner.batching.job;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Fails jobs that run longer than their timeout.
+ * <p>
+ * The job is marked FAILED as soon as the timeout passes, with the stack trace of the processor at that moment as
+ * its error, so a processor stuck in a call that ignores interrupts still ends in a terminal state. Timed out jobs
+ * are not retried, the processor may still be running and would run next to its retry. The processor thread is
+ * interrupted and whatever it does afterwards no longer changes the job.
+ */
+@Component
+public class JobWatchdog {
+
+    private final Logger log = LoggerFactory.getLogger(JobWatchdog.class);
+
+    public interface Watch extends AutoCloseable {
+        @Override
+        void close();
+    }
+
+    private final JobTimeoutProperties properties;
+    private final JobPersistenceService jobPersistenceService;
+    private final JobGraphCoordinator jobGraphCoordinator;
+    private final JobMetrics jobMetrics;
+    private final ScheduledThreadPoolExecutor timer;
+    private final LongAdder timedOutCount = new LongAdder();
+
+    public JobWatchdog(
+            JobTimeoutProperties properties,
+            JobPersistenceService jobPersistenceService,
+            JobGraphCoordinator jobGraphCoordinator,
+            JobMetrics jobMetrics
+    ) {
+        this.properties = properties;
+        this.jobPersistenceService = jobPersistenceService;
+        this.jobGraphCoordinator = jobGraphCoordinator;
+        this.jobMetrics = jobMetrics;
+        this.timer = new ScheduledThreadPoolExecutor(1, Thread.ofPlatform().name("job-watchdog").daemon().factory());
+        this.timer.setRemoveOnCancelPolicy(true);
+    }
+
+    /**
+     * Starts the timeout of the job, a job without a timeout of its own or of its processor is not watched.
+     */
+    Watch watch(Job job, RunningJob runningJob) {
+        Optional<Duration> timeout = Optional.ofNullable(job.getTimeoutMs())
+                .map(Duration::ofMillis)
+                .or(() -> properties.getTimeout(job.getName()));
+        if (timeout.isEmpty()) {
+            return () -> {};
+        }
+        ScheduledFuture<?> deadline = timer.schedule(
+                () -> Thread.ofVirtual().start(() -> timeOut(job, runningJob, timeout.get())),
+                timeout.get().toNanos(),
+                TimeUnit.NANOSECONDS
+        );
+        return () -> deadline.cancel(false);
+    }
+
+    public long getTimedOutCount() {
+        return timedOutCount.sum();
+    }
+
+    private void timeOut(Job job, RunningJob runningJob, Duration timeout) {
+        StackTraceElement[] stackTrace = runningJob.timeOut();
+        if (stackTrace == null) {
+            return;
+        }
+        timedOutCount.increment();
+        jobMetrics.recordTimedOut(job.getName());
+        log.warn("job {} of {} timed out after {}", job.getId(), job.getName(), timeout);
+
+        TimeoutException error = new TimeoutException("Job timed out after " + timeout);
+        error.setStackTrace(stackTrace);
+        try {
+            jobPersistenceService.setJobToTimedOut(job.getId(), error);
+        } catch (RuntimeException e) {
+            log.error("failed to mark timed out job {} as failed", job.getId(), e);
+        }
+        jobGraphCoordinator.onChildFinished(job);
+    }
+
+    @PreDestroy
+    public void close() {
+        timer.shutdownNow();
+    }
+}
@@ -0,0 +1,111 @@
+package com.doppelganger113.commandrunner.batching.job;
+
+import com.doppelganger113.commandrunner.batching.job.processors.JobContext;
+
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Context of a job executing on this node, registered in {@link RunningJobRegistry} for its whole execution.
+ */
+class RunningJob implements JobContext {
+
+    record Progress(long done, long total) {
+    }
+
+    private enum Outcome {
+        PENDING, FINISHED, TIMED_OUT
+    }
+
+    private final long jobId;
+    private volatile boolean cancelled;
+    private final AtomicReference<Progress> unflushedProgress = new AtomicReference<>();
+    private final AtomicReference<Outcome> outcome = new AtomicReference<>(Outcome.PENDING);
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private Thread processorThread;
+
+    RunningJob(long jobId) {
+        this.jobId = jobId;
+    }
+
+    @Override
+    public long getJobId() {
+        return jobId;
+    }
+
+    @Override
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    @Override
+    public void reportProgress(long done, long total) {
+        unflushedProgress.set(new Progress(done, total));
+    }
+
+    Progress takeProgress() {
+        return unflushedProgress.getAndSet(null);
+    }
+
+    void cancel() {
+        cancelled = true;
+    }
+
+    /**
+     * Runs the processor so that {@link #timeOut()} can interrupt it, the interrupt never leaks into the state
+     * transitions that follow.
+     */
+    void runProcessor(Runnable processor) {
+        lock.lock();
+        try {
+            processorThread = Thread.currentThread();
+        } finally {
+            lock.unlock();
+        }
+        try {
+            processor.run();
+        } finally {
+            lock.lock();
+            try {
+                processorThread = null;
+                Thread.interrupted();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Claims the final state transition for the executor.
+     *
+     * @return false when the job already timed out and was failed by the watchdog
+     */
+    boolean finish() {
+        return outcome.compareAndSet(Outcome.PENDING, Outcome.FINISHED) || outcome.get() == Outcome.FINISHED;
+    }
+
+    /**
+     * Claims the final state transition for the watchdog and interrupts the processor, unless the executor already
+     * finished the job.
+     *
+     * @return stack trace of the processor at the moment of the timeout, null when the job already finished
+     */
+    StackTraceElement[] timeOut() {
+        if (!outcome.compareAndSet(Outcome.PENDING, Outcome.TIMED_OUT)) {
+            return null;
+        }
+        cancelled = true;
+        lock.lock();
+        try {
+            if (processorThread == null) {
+                return new StackTraceElement[0];
+            }
+            StackTraceElement[] stackTrace = processorThread.getStackTrace();
+            processorThread.interrupt();
+            return stackTrace;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package com.doppelganger113.commandrunner.batching.job;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Jobs executing on this node, used to cancel them as soon as a stop arrives and to write their progress.
+ * <p>
+ * Stops received by this node cancel the job right away, stops received by other nodes arrive as STOPPING events.
+ * Reported progress is collected from all running jobs and written with one batch per flush interval, however
+ * often it is reported.
+ */
+@Component
+public class RunningJobRegistry {
+
+    private final Logger log = LoggerFactory.getLogger(RunningJobRegistry.class);
+
+    private final ConcurrentHashMap<Long, RunningJob> runningJobs = new ConcurrentHashMap<>();
+    private final JobJdbcRepository jobJdbcRepository;
+    private final JobProgressProperties properties;
+    private final JobEventBus.Subscription subscription;
+    private final Thread flusher;
+    private volatile boolean running = true;
+
+    public RunningJobRegistry(
+            JobJdbcRepository jobJdbcRepository,
+            JobProgressProperties properties,
+            JobEventBus jobEventBus
+    ) {
+        this.jobJdbcRepository = jobJdbcRepository;
+        this.properties = properties;
+        this.subscription = jobEventBus.subscribe(event -> {
+            if (event.state() == JobState.STOPPING) {
+                cancel(event.id());
+            }
+        });
+        this.flusher = Thread.ofVirtual().name("job-progress-flusher").start(this::flushPeriodically);
+    }
+
+    RunningJob register(long jobId) {
+        RunningJob runningJob = new RunningJob(jobId);
+        runningJobs.put(jobId, runningJob);
+        return runningJob;
+    }
+
+    /**
+     * Writes the last progress of the job right away instead of waiting for the next flush.
+     */
+    void unregister(RunningJob runningJob) {
+        runningJobs.remove(runningJob.getJobId(), runningJob);
+        RunningJob.Progress progress = runningJob.takeProgress();
+        if (progress != null) {
+            jobJdbcRepository.updateProgress(Map.of(runningJob.getJobId(), progress));
+        }
+    }
+
+    /**
+     * @return true when the job was running on this node
+     */
+    public boolean cancel(long jobId) {
+        RunningJob runningJob = runningJobs.get(jobId);
+        if (runningJob == null) {
+            return false;
+        }
+        runningJob.cancel();
+        log.debug("cancelled running job {}", jobId);
+        return true;
+    }
+
+    void flush() {
+        Map<Long, RunningJob.Progress> progressByJobId = new HashMap<>();
+        runningJobs.forEach((jobId, runningJob) -> {
+            RunningJob.Progress progress = runningJob.takeProgress();
+            if (progress != null) {
+                progressByJobId.put(jobId, progress);
+            }
+        });
+        jobJdbcRepository.updateProgress(progressByJobId);
+    }
+
+    private void flushPeriodically() {
+        while (running) {
+            try {
+                Thread.sleep(properties.flushInterval());
+                flush();
+            } catch (InterruptedException e) {
+                return;
+            } catch (RuntimeException e) {
+                log.error("failed to write job progress", e);
+            }
+        }
+    }
+
+    @PreDestroy
+    public void close() throws InterruptedException {
+        running = false;
+        subscription.close();
+        flusher.interrupt();
+        flusher.join(Duration.ofSeconds(5));
+    }
+}
@@ -1,9 +1,36 @@
 package com.doppelganger113.commandrunner.batching.job.dto;
 
+import com.doppelganger113.commandrunner.batching.job.JobPriority;
+
 import java.util.HashMap;
 
+/**
+ * @param timeoutMs  overrides the timeout configured for the processor, the job fails once it runs longer
+ * @param retryLimit failed attempts that are retried with backoff before the job fails, overrides
+ *                   {@code jobs.retry.default-limit}. Timed out attempts are not retried
+ */
 public record JobExecutionOptions(
         String name,
-        HashMap<String, Object> arguments
+        HashMap<String, Object> arguments,
+        JobPriority priority,
+        Long timeoutMs,
+        Integer retryLimit
 ) {
+    public JobExecutionOptions {
+        if (priority == null) {
+            priority = JobPriority.NORMAL;
+        }
+    }
+
+    public JobExecutionOptions(String name, HashMap<String, Object> arguments) {
+        this(name, arguments, null, null, null);
+    }
+
+    public JobExecutionOptions(String name, HashMap<String, Object> arguments, JobPriority priority) {
+        this(name, arguments, priority, null, null);
+    }
+
+    public JobExecutionOptions(String name, HashMap<String, Object> arguments, JobPriority priority, Long timeoutMs) {
+        this(name, arguments, priority, timeoutMs, null);
+    }
 }
@@ -9,7 +9,7 @@ public record JobExecutionResponse(
 ) {
     public static JobExecutionResponse from(JobPersistenceService.JobCreationResult result) {
         JobExecutionDescription description = switch (result.job().getState()) {
-            case RUNNING, STOPPING, READY -> JobExecutionDescription.RUNNING;
+            case WAITING, READY, RUNNING, STOPPING -> JobExecutionDescription.RUNNING;
             case STOPPED, FAILED, COMPLETED -> JobExecutionDescription.COMPLETED;
         };
         if (result.wasCreated()) {
@@ -0,0 +1,13 @@
+package com.doppelganger113.commandrunner.batching.job.dto;
+
+/**
+ * @param queueDepth    jobs waiting for execution on this node
+ * @param activeCount   jobs executing on this node
+ * @param timedOutCount jobs failed by their timeout since this node started
+ */
+public record JobExecutionStats(
+        int queueDepth,
+        int activeCount,
+        long timedOutCount
+) {
+}
@@ -0,0 +1,33 @@
+package com.doppelganger113.commandrunner.batching.job.dto;
+
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * A child job of a {@link JobGraphOptions}.
+ *
+ * @param key       identifies the child within its graph
+ * @param dependsOn keys of the children that have to complete before this one starts
+ */
+public record JobGraphNode(
+        String key,
+        String name,
+        HashMap<String, Object> arguments,
+        List<String> dependsOn,
+        Long timeoutMs,
+        Integer retryLimit
+) {
+    public JobGraphNode {
+        if (dependsOn == null) {
+            dependsOn = List.of();
+        }
+    }
+
+    public JobGraphNode(String key, String name, HashMap<String, Object> arguments, List<String> dependsOn) {
+        this(key, name, arguments, dependsOn, null, null);
+    }
+
+    public JobExecutionOptions toExecutionOptions() {
+        return new JobExecutionOptions(name, arguments, null, timeoutMs, retryLimit);
+    }
+}
@@ -0,0 +1,28 @@
+package com.doppelganger113.commandrunner.batching.job.dto;
+
+import com.doppelganger113.commandrunner.batching.job.processors.EmptyRunner;
+
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * @param name      processor of the parent, it runs once all children completed, {@code empty} when not set
+ * @param arguments arguments of the parent, a graph is deduplicated by its parent like a single job
+ * @param fanOut    children that may be queued or running at the same time, no limit when not set
+ * @param children  jobs of the graph, children without dependencies start right away
+ */
+public record JobGraphOptions(
+        String name,
+        HashMap<String, Object> arguments,
+        Integer fanOut,
+        List<JobGraphNode> children
+) {
+    public JobGraphOptions {
+        if (name == null) {
+            name = EmptyRunner.NAME;
+        }
+        if (children == null) {
+            children = List.of();
+        }
+    }
+}
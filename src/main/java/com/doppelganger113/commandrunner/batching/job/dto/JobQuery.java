@@ -0,0 +1,20 @@
+package com.doppelganger113.commandrunner.batching.job.dto;
+
+import com.doppelganger113.commandrunner.batching.job.JobState;
+
+import java.time.LocalDateTime;
+
+/**
+ * Filters of a job listing, jobs are returned newest first starting after the {@code cursor} id.
+ */
+public record JobQuery(
+        String name,
+        JobState state,
+        LocalDateTime createdFrom,
+        LocalDateTime createdTo,
+        Long cursor,
+        int limit,
+        boolean includeArguments,
+        boolean includeError
+) {
+}
@@ -0,0 +1,16 @@
+package com.doppelganger113.commandrunner.batching.job.dto;
+
+import java.util.HashMap;
+
+/**
+ * @param cron        Spring cron expression with seconds, either this or {@code fixedRateMs} is set
+ * @param fixedRateMs interval between submissions, the first one is submitted right away
+ * @param arguments   template of the submitted arguments, {@code ${fireTime}} in strings is replaced with the tick
+ */
+public record JobScheduleOptions(
+        String name,
+        String cron,
+        Long fixedRateMs,
+        HashMap<String, Object> arguments
+) {
+}
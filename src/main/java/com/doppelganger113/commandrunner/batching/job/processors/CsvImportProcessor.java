@@ -0,0 +1,316 @@
+package com.doppelganger113.commandrunner.batching.job.processors;
+
+import com.doppelganger113.commandrunner.CsvService;
+import com.doppelganger113.commandrunner.Person;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.postgresql.copy.CopyManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Loads a CSV file of persons into the {@code persons} table with {@code COPY ... FROM STDIN}, rows are streamed from
+ * {@link CsvService} into one COPY per batch that is committed on its own. Arguments:
+ * <ul>
+ *     <li>{@code path} file to load, relative to {@code jobs.csv-import.directory}</li>
+ *     <li>{@code checksum} SHA-256 of the file in hex, verified before anything is loaded. Jobs are deduplicated by
+ *     the path and the checksum only, so submitting the same file with other optional arguments does not load it
+ *     again</li>
+ *     <li>{@code format} optional BINARY or CSV</li>
+ *     <li>{@code batchSize} optional rows per COPY and commit</li>
+ *     <li>{@code skipHeader} optional, true by default</li>
+ * </ul>
+ * Rows are tagged with the id of the job. Rows of a failed attempt are deleted, and so are rows of an earlier attempt
+ * before loading, so a retried import does not load them twice. Batches committed before a job is stopped are kept.
+ */
+@Component
+public class CsvImportProcessor implements JobProcessor {
+
+    public static final String NAME = "csv_import";
+
+    private static final String DELETE_JOB_ROWS = "DELETE FROM persons WHERE job_id = ?";
+
+    private static final int COPY_BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Upper bound of the bytes a single row takes in either format.
+     */
+    private static final int MAX_ROW_SIZE = 128;
+
+    public enum Format {
+        BINARY("COPY persons (job_id, person_index, height, weight) FROM STDIN (FORMAT binary)") {
+            private static final byte[] SIGNATURE = {'P', 'G', 'C', 'O', 'P', 'Y', '\n', (byte) 0xFF, '\r', '\n', 0};
+
+            @Override
+            void writeHeader(ByteBuffer buffer) {
+                buffer.put(SIGNATURE).putInt(0).putInt(0);
+            }
+
+            @Override
+            void writeRow(ByteBuffer buffer, long jobId, Person person) {
+                buffer.putShort((short) 4)
+                        .putInt(Long.BYTES).putLong(jobId)
+                        .putInt(Long.BYTES).putLong(person.index())
+                        .putInt(Float.BYTES).putFloat(person.height())
+                        .putInt(Float.BYTES).putFloat(person.weight());
+            }
+
+            @Override
+            void writeTrailer(ByteBuffer buffer) {
+                buffer.putShort((short) -1);
+            }
+        },
+        CSV("COPY persons (job_id, person_index, height, weight) FROM STDIN (FORMAT csv)") {
+            @Override
+            void writeRow(ByteBuffer buffer, long jobId, Person person) {
+                String row = jobId + "," + person.index() + "," + person.height() + "," + person.weight() + "\n";
+                buffer.put(row.getBytes(StandardCharsets.US_ASCII));
+            }
+        };
+
+        private final String sql;
+
+        Format(String sql) {
+            this.sql = sql;
+        }
+
+        void writeHeader(ByteBuffer buffer) {
+        }
+
+        abstract void writeRow(ByteBuffer buffer, long jobId, Person person);
+
+        void writeTrailer(ByteBuffer buffer) {
+        }
+    }
+
+    private static final List<String> DEDUPE_ARGUMENTS = List.of("path", "checksum");
+
+    private final Logger log = LoggerFactory.getLogger(CsvImportProcessor.class);
+
+    private final DataSource dataSource;
+    private final CsvService csvService;
+    private final CsvImportProperties properties;
+    private final MeterRegistry meterRegistry;
+
+    public CsvImportProcessor(
+            DataSource dataSource,
+            CsvService csvService,
+            CsvImportProperties properties,
+            MeterRegistry meterRegistry
+    ) {
+        this.dataSource = dataSource;
+        this.csvService = csvService;
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public HashMap<String, Object> dedupeArguments(HashMap<String, Object> arguments) {
+        if (arguments == null) {
+            return null;
+        }
+        HashMap<String, Object> dedupeArguments = new HashMap<>();
+        DEDUPE_ARGUMENTS.forEach(name -> dedupeArguments.put(name, arguments.get(name)));
+        return dedupeArguments;
+    }
+
+    /**
+     * Rows are tagged with the id of the job, so imports only run with a {@link JobContext}.
+     */
+    @Override
+    public void execute(HashMap<String, Object> arguments) {
+        throw new IllegalStateException(NAME + " runs only as a job");
+    }
+
+    @Override
+    public void execute(HashMap<String, Object> arguments, JobContext context) {
+        Path file = resolve(requireString(arguments, "path"));
+        String checksum = requireString(arguments, "checksum");
+        Format format = arguments.get("format") == null
+                ? properties.format()
+                : Format.valueOf(arguments.get("format").toString().toUpperCase(Locale.ROOT));
+        int batchSize = arguments.get("batchSize") instanceof Number number ? number.intValue() : properties.batchSize();
+        boolean skipHeader = !Boolean.FALSE.equals(arguments.get("skipHeader"));
+
+        String actualChecksum = sha256(file);
+        if (!actualChecksum.equalsIgnoreCase(checksum)) {
+            throw new IllegalArgumentException("Checksum of " + file + " is " + actualChecksum + " and not " + checksum);
+        }
+
+        Timer batchTimer = Timer.builder("jobs.csv_import.batch")
+                .description("Time to COPY and commit one batch of imported rows")
+                .tag("format", format.name())
+                .register(meterRegistry);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+             Reader reader = Channels.newReader(channel, StandardCharsets.UTF_8.newDecoder(), CsvService.READ_BUFFER_SIZE);
+             Connection connection = dataSource.getConnection()) {
+            boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            try {
+                deleteRows(connection, context.getJobId());
+                CopyManager copyManager = connection.unwrap(PGConnection.class).getCopyAPI();
+                ByteBuffer buffer = ByteBuffer.allocate(COPY_BUFFER_SIZE);
+                long size = channel.size();
+                CsvService.IngestResult result = csvService.ingest(reader, skipHeader, batchSize, batch -> {
+                    if (context.isCancelled()) {
+                        throw new CancellationException();
+                    }
+                    long startedAt = System.nanoTime();
+                    copy(connection, copyManager, buffer, format, context.getJobId(), batch);
+                    long elapsed = System.nanoTime() - startedAt;
+                    batchTimer.record(elapsed, TimeUnit.NANOSECONDS);
+                    log.debug("job {} copied {} rows in {} ms", context.getJobId(), batch.size(), elapsed / 1_000_000);
+                    // Bytes read ahead by the reader count as done, so progress is slightly early but never passes the total
+                    context.reportProgress(positionOf(channel), size);
+                });
+                log.info("job {} imported {} rows of {} in {} ms, {} rows/s",
+                        context.getJobId(), result.rows(), file, result.elapsed().toMillis(), Math.round(result.rowsPerSecond()));
+            } catch (CancellationException e) {
+                throw e;
+            } catch (RuntimeException | SQLException e) {
+                deleteRowsOfFailedAttempt(connection, context.getJobId(), e);
+                throw e;
+            } finally {
+                connection.setAutoCommit(autoCommit);
+            }
+        } catch (CancellationException e) {
+            log.info("job {} import of {} was stopped", context.getJobId(), file);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read " + file, e);
+        } catch (SQLException e) {
+            throw new RuntimeException("Cannot import " + file, e);
+        }
+    }
+
+    private Path resolve(String path) {
+        try {
+            Path directory = properties.directory().toRealPath();
+            Path file = directory.resolve(path).toRealPath();
+            if (!file.startsWith(directory)) {
+                throw new IllegalArgumentException("path " + path + " is not inside " + directory);
+            }
+            return file;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot find " + path, e);
+        }
+    }
+
+    /**
+     * Deletes the batches committed before the failure, a retry loads the whole file again.
+     */
+    private void deleteRowsOfFailedAttempt(Connection connection, long jobId, Exception failure) {
+        try {
+            connection.rollback();
+            deleteRows(connection, jobId);
+        } catch (SQLException e) {
+            failure.addSuppressed(e);
+            log.warn("job {} could not delete rows of the failed import", jobId, e);
+        }
+    }
+
+    private static void deleteRows(Connection connection, long jobId) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(DELETE_JOB_ROWS)) {
+            statement.setLong(1, jobId);
+            statement.executeUpdate();
+        }
+        connection.commit();
+    }
+
+    /**
+     * Runs one COPY for the batch and commits it, rows are written to the COPY stream as the buffer fills up.
+     */
+    private static void copy(
+            Connection connection,
+            CopyManager copyManager,
+            ByteBuffer buffer,
+            Format format,
+            long jobId,
+            List<Person> batch
+    ) {
+        try {
+            CopyIn copyIn = copyManager.copyIn(format.sql);
+            try {
+                buffer.clear();
+                format.writeHeader(buffer);
+                for (Person person : batch) {
+                    if (buffer.remaining() < MAX_ROW_SIZE) {
+                        copyIn.writeToCopy(buffer.array(), 0, buffer.position());
+                        buffer.clear();
+                    }
+                    format.writeRow(buffer, jobId, person);
+                }
+                format.writeTrailer(buffer);
+                copyIn.writeToCopy(buffer.array(), 0, buffer.position());
+                copyIn.endCopy();
+            } finally {
+                if (copyIn.isActive()) {
+                    copyIn.cancelCopy();
+                }
+            }
+            connection.commit();
+        } catch (SQLException e) {
+            throw new RuntimeException("COPY of " + batch.size() + " rows failed", e);
+        }
+    }
+
+    private static long positionOf(FileChannel channel) {
+        try {
+            return channel.position();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static String sha256(Path file) {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            ByteBuffer buffer = ByteBuffer.allocate(CsvService.READ_BUFFER_SIZE);
+            while (channel.read(buffer) >= 0) {
+                digest.update(buffer.flip());
+                buffer.clear();
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read " + file, e);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String requireString(HashMap<String, Object> arguments, String name) {
+        if (!(arguments.get(name) instanceof String value) || value.isBlank()) {
+            throw new IllegalArgumentException("Argument " + name + " is required");
+        }
+        return value;
+    }
+}
@@ -0,0 +1,20 @@
+package com.doppelganger113.commandrunner.batching.job.processors;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.nio.file.Path;
+
+/**
+ * @param directory directory that {@code path} arguments of {@value CsvImportProcessor#NAME} jobs are resolved
+ *                  against, files outside of it are rejected
+ * @param batchSize rows sent with one COPY and committed together, unless a job has a {@code batchSize} argument
+ * @param format    how rows are sent to the database, unless a job has a {@code format} argument
+ */
+@ConfigurationProperties(prefix = "jobs.csv-import")
+public record CsvImportProperties(
+        @DefaultValue("imports") Path directory,
+        @DefaultValue("50000") int batchSize,
+        @DefaultValue("BINARY") CsvImportProcessor.Format format
+) {
+}
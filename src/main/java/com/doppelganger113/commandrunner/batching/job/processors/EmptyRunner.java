@@ -6,9 +6,12 @@ import java.util.HashMap;
  * Used as a parent job when multiple jobs without a real parent job need to be executed in order or without.
  */
 public class EmptyRunner implements JobProcessor {
+
+    public static final String NAME = "empty";
+
     @Override
     public String getName() {
-        return "empty";
+        return NAME;
     }
 
     @Override
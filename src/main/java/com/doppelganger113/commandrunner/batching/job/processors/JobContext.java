@@ -0,0 +1,21 @@
+package com.doppelganger113.commandrunner.batching.job.processors;
+
+/**
+ * Gives a running {@link JobProcessor} access to the state of its job.
+ */
+public interface JobContext {
+
+    long getJobId();
+
+    /**
+     * Set as soon as the job is asked to stop, long-running processors should check it regularly and return early,
+     * the job then ends as STOPPED.
+     */
+    boolean isCancelled();
+
+    /**
+     * Only the latest reported progress is kept and written to the job periodically, so it is cheap enough to call
+     * for every unit of work.
+     */
+    void reportProgress(long done, long total);
+}
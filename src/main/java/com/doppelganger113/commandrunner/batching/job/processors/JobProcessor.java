@@ -5,11 +5,26 @@ import java.util.HashMap;
 public interface JobProcessor {
     String getName();
 
+    /**
+     * Arguments that jobs are deduplicated by, processors leave out arguments that only tune how a job runs so that
+     * submissions differing in them resolve to the same job.
+     */
+    default HashMap<String, Object> dedupeArguments(HashMap<String, Object> arguments) {
+        return arguments;
+    }
+
     default void before(HashMap<String, Object> arguments) {
     }
 
     void execute(HashMap<String, Object> arguments);
 
+    /**
+     * Runs {@link #execute(HashMap)}, processors that support stopping or report progress override this.
+     */
+    default void execute(HashMap<String, Object> arguments, JobContext context) {
+        execute(arguments);
+    }
+
     default void after(HashMap<String, Object> arguments) {
     }
 }
@@ -0,0 +1,33 @@
+package com.doppelganger113.commandrunner.database;
+
+import org.springframework.boot.autoconfigure.jdbc.JdbcConnectionDetails;
+import org.springframework.stereotype.Component;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+
+/**
+ * Opens connections outside of the pool for sessions held for the lifetime of the application, such as
+ * {@code LISTEN}, which would otherwise permanently take a connection away from request handling.
+ * <p>
+ * Uses the same {@link JdbcConnectionDetails} as the pooled data source, so connections supplied by docker compose
+ * or service connections work without a {@code spring.datasource.url}.
+ */
+@Component
+public class DedicatedConnectionFactory {
+
+    private final JdbcConnectionDetails connectionDetails;
+
+    public DedicatedConnectionFactory(JdbcConnectionDetails connectionDetails) {
+        this.connectionDetails = connectionDetails;
+    }
+
+    public Connection open() throws SQLException {
+        return DriverManager.getConnection(
+                connectionDetails.getJdbcUrl(),
+                connectionDetails.getUsername(),
+                connectionDetails.getPassword()
+        );
+    }
+}
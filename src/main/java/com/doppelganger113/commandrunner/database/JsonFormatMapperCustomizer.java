@@ -0,0 +1,28 @@
+package com.doppelganger113.commandrunner.database;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.type.format.jackson.JacksonJsonFormatMapper;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * Hibernate binds {@code SqlTypes.JSON} attributes with the application's {@link ObjectMapper} instead of creating
+ * one of its own, so entities read and write JSON the same way as the API and the JDBC repositories.
+ */
+@Component
+public class JsonFormatMapperCustomizer implements HibernatePropertiesCustomizer {
+
+    private final ObjectMapper objectMapper;
+
+    public JsonFormatMapperCustomizer(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public void customize(Map<String, Object> hibernateProperties) {
+        hibernateProperties.put(AvailableSettings.JSON_FORMAT_MAPPER, new JacksonJsonFormatMapper(objectMapper));
+    }
+}
@@ -0,0 +1,331 @@
+package com.doppelganger113.commandrunner.hash;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+
+/**
+ * Streams the textual form of job arguments straight into a {@link MessageDigest} through a small reusable
+ * buffer. Not thread safe, instances are pooled by {@link ShaHash} and used by one thread at a time.
+ * <p>
+ * With {@link ShaHash.Encoding#LEGACY} the produced bytes are identical to
+ * {@code new TreeMap<>(excludeNullValues(map)).toString()} encoded as UTF-8. With
+ * {@link ShaHash.Encoding#CANONICAL} the arguments are written as JSON with sorted keys at every depth, without
+ * null values and with normalized numbers.
+ */
+class ArgumentsDigest {
+
+    private static final int BUFFER_SIZE = 512;
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    private final MessageDigest digest;
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private int position;
+
+    ArgumentsDigest(String algorithm) {
+        try {
+            digest = MessageDigest.getInstance(algorithm);
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    byte[] digest(Map<String, Object> arguments, ShaHash.Encoding encoding) {
+        try {
+            switch (encoding) {
+                case LEGACY -> writeSortedMap(arguments);
+                case CANONICAL -> writeCanonical(arguments);
+            }
+            flush();
+            return digest.digest();
+        } finally {
+            position = 0;
+            digest.reset();
+        }
+    }
+
+    private void writeSortedMap(Map<String, Object> map) {
+        @SuppressWarnings("unchecked")
+        Map.Entry<String, Object>[] entries = map.entrySet().stream()
+                .filter(entry -> entry.getValue() != null)
+                .toArray(Map.Entry[]::new);
+        Arrays.sort(entries, Map.Entry.comparingByKey());
+
+        write('{');
+        for (int i = 0; i < entries.length; i++) {
+            if (i > 0) {
+                write(',');
+                write(' ');
+            }
+            writeString(entries[i].getKey());
+            write('=');
+            Object value = entries[i].getValue();
+            if (value instanceof Map<?, ?> nested) {
+                // Nested maps are hashed in HashMap iteration order of their null-free copy
+                writeValue(ShaHash.excludeNullValues(nested));
+            } else {
+                writeValue(value);
+            }
+        }
+        write('}');
+    }
+
+    /**
+     * Mirrors {@link AbstractMap#toString()} and {@link AbstractCollection#toString()} without building the string.
+     */
+    private void writeValue(Object value) {
+        switch (value) {
+            case null -> writeString("null");
+            case String string -> writeString(string);
+            case Integer number -> writeLong(number);
+            case Long number -> writeLong(number);
+            case AbstractMap<?, ?> map -> writeMap(map);
+            case AbstractCollection<?> collection -> writeCollection(collection);
+            default -> writeString(String.valueOf(value));
+        }
+    }
+
+    private void writeMap(AbstractMap<?, ?> map) {
+        write('{');
+        boolean first = true;
+        for (Map.Entry<?, ?> entry : map.entrySet()) {
+            if (!first) {
+                write(',');
+                write(' ');
+            }
+            first = false;
+            Object key = entry.getKey();
+            Object value = entry.getValue();
+            if (key == map) writeString("(this Map)");
+            else writeValue(key);
+            write('=');
+            if (value == map) writeString("(this Map)");
+            else writeValue(value);
+        }
+        write('}');
+    }
+
+    private void writeCollection(AbstractCollection<?> collection) {
+        write('[');
+        boolean first = true;
+        for (Object element : collection) {
+            if (!first) {
+                write(',');
+                write(' ');
+            }
+            first = false;
+            if (element == collection) writeString("(this Collection)");
+            else writeValue(element);
+        }
+        write(']');
+    }
+
+    private void writeCanonical(Object value) {
+        switch (value) {
+            case String string -> writeJsonString(string);
+            case Boolean bool -> writeString(bool.toString());
+            case Number number -> writeCanonicalNumber(number);
+            case Map<?, ?> map -> writeCanonicalMap(map);
+            case Collection<?> collection -> writeCanonicalCollection(collection);
+            default -> writeJsonString(String.valueOf(value));
+        }
+    }
+
+    private void writeCanonicalMap(Map<?, ?> map) {
+        @SuppressWarnings("unchecked")
+        Map.Entry<String, Object>[] entries = map.entrySet().stream()
+                .filter(entry -> entry.getValue() != null)
+                .map(entry -> Map.entry(String.valueOf(entry.getKey()), (Object) entry.getValue()))
+                .toArray(Map.Entry[]::new);
+        Arrays.sort(entries, Map.Entry.comparingByKey());
+
+        write('{');
+        for (int i = 0; i < entries.length; i++) {
+            if (i > 0) {
+                write(',');
+            }
+            writeJsonString(entries[i].getKey());
+            write(':');
+            writeCanonical(entries[i].getValue());
+        }
+        write('}');
+    }
+
+    private void writeCanonicalCollection(Collection<?> collection) {
+        write('[');
+        boolean first = true;
+        for (Object element : collection) {
+            if (element == null) {
+                continue;
+            }
+            if (!first) {
+                write(',');
+            }
+            first = false;
+            writeCanonical(element);
+        }
+        write(']');
+    }
+
+    /**
+     * Numbers with equal value are written the same way regardless of their type, so 1, 1L, 1.0 and
+     * BigDecimal("1.00") all become {@code 1}.
+     */
+    private void writeCanonicalNumber(Number number) {
+        switch (number) {
+            case Integer value -> writeLong(value);
+            case Long value -> writeLong(value);
+            case Short value -> writeLong(value);
+            case Byte value -> writeLong(value);
+            case BigInteger value -> writeString(value.toString());
+            case Double value -> writeCanonicalDecimal(value);
+            case Float value -> writeCanonicalDecimal(Float.toString(value));
+            case BigDecimal value -> writeCanonicalDecimal(value);
+            default -> writeCanonicalDecimal(String.valueOf(number));
+        }
+    }
+
+    private void writeCanonicalDecimal(double value) {
+        if (value == Math.rint(value) && Math.abs(value) < 0x1p63) {
+            writeLong((long) value);
+        } else {
+            writeCanonicalDecimal(Double.toString(value));
+        }
+    }
+
+    private void writeCanonicalDecimal(String value) {
+        try {
+            writeCanonicalDecimal(new BigDecimal(value));
+        } catch (NumberFormatException e) {
+            // NaN and infinities have no JSON number representation
+            writeJsonString(value);
+        }
+    }
+
+    private void writeCanonicalDecimal(BigDecimal value) {
+        BigDecimal stripped = value.stripTrailingZeros();
+        if (stripped.scale() <= 0) {
+            writeString(stripped.toBigInteger().toString());
+        } else {
+            writeString(stripped.toPlainString());
+        }
+    }
+
+    private void writeJsonString(String value) {
+        write('"');
+        int start = 0;
+        int length = value.length();
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\' || c < 0x20) {
+                writeString(value.substring(start, i));
+                write('\\');
+                switch (c) {
+                    case '"', '\\' -> write(c);
+                    case '\n' -> write('n');
+                    case '\r' -> write('r');
+                    case '\t' -> write('t');
+                    default -> {
+                        write('u');
+                        write('0');
+                        write('0');
+                        write(HEX_DIGITS[c >> 4]);
+                        write(HEX_DIGITS[c & 0x0F]);
+                    }
+                }
+                start = i + 1;
+            }
+        }
+        writeString(start == 0 ? value : value.substring(start));
+        write('"');
+    }
+
+    private void writeLong(long value) {
+        if (value == Long.MIN_VALUE) {
+            writeString(Long.toString(value));
+            return;
+        }
+        if (value < 0) {
+            write('-');
+            value = -value;
+        }
+        ensureCapacity(20);
+        int digits = 1;
+        for (long remaining = value / 10; remaining > 0; remaining /= 10) {
+            digits++;
+        }
+        for (int i = position + digits - 1; i >= position; i--) {
+            buffer[i] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+        position += digits;
+    }
+
+    /**
+     * UTF-8 encodes the string with the same replacement of malformed surrogates as {@link String#getBytes}.
+     */
+    private void writeString(String value) {
+        int length = value.length();
+        int i = 0;
+        // ASCII fast path without per character capacity checks
+        while (i < length) {
+            ensureCapacity(Math.min(length - i, BUFFER_SIZE));
+            int end = Math.min(length, i + BUFFER_SIZE - position);
+            while (i < end) {
+                char c = value.charAt(i);
+                if (c >= 0x80) {
+                    break;
+                }
+                buffer[position++] = (byte) c;
+                i++;
+            }
+            if (i < end) {
+                break;
+            }
+        }
+        for (; i < length; i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                write(c);
+            } else if (c < 0x800) {
+                ensureCapacity(2);
+                buffer[position++] = (byte) (0xC0 | (c >> 6));
+                buffer[position++] = (byte) (0x80 | (c & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(value.charAt(i + 1))) {
+                    int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                    ensureCapacity(4);
+                    buffer[position++] = (byte) (0xF0 | (codePoint >> 18));
+                    buffer[position++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+                    buffer[position++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+                    buffer[position++] = (byte) (0x80 | (codePoint & 0x3F));
+                } else {
+                    write('?');
+                }
+            } else {
+                ensureCapacity(3);
+                buffer[position++] = (byte) (0xE0 | (c >> 12));
+                buffer[position++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                buffer[position++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+    }
+
+    private void write(char asciiChar) {
+        ensureCapacity(1);
+        buffer[position++] = (byte) asciiChar;
+    }
+
+    private void ensureCapacity(int bytes) {
+        if (position + bytes > BUFFER_SIZE) {
+            flush();
+        }
+    }
+
+    private void flush() {
+        digest.update(buffer, 0, position);
+        position = 0;
+    }
+}
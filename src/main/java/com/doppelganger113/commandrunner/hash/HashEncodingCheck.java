@@ -0,0 +1,26 @@
+package com.doppelganger113.commandrunner.hash;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Refuses to start with {@link ShaHash.Encoding#LEGACY} once the V2 migration rehashed the stored jobs canonically,
+ * submissions would no longer be deduplicated against them. Injecting the {@link JdbcTemplate} makes this run after
+ * the migrations.
+ */
+@Component
+public class HashEncodingCheck {
+
+    static final String HAS_SCHEMA_HISTORY = "SELECT to_regclass('flyway_schema_history') IS NOT NULL";
+
+    static final String REHASHED = "SELECT EXISTS (SELECT 1 FROM flyway_schema_history WHERE version = '2' AND success)";
+
+    public HashEncodingCheck(ShaHash shaHash, JdbcTemplate jdbcTemplate) {
+        if (shaHash.getEncoding() == ShaHash.Encoding.LEGACY
+                && Boolean.TRUE.equals(jdbcTemplate.queryForObject(HAS_SCHEMA_HISTORY, Boolean.class))
+                && Boolean.TRUE.equals(jdbcTemplate.queryForObject(REHASHED, Boolean.class))) {
+            throw new IllegalStateException("jobs.hash.encoding is LEGACY but the V2 migration rehashed the arguments " +
+                    "of the stored jobs canonically, use CANONICAL");
+        }
+    }
+}
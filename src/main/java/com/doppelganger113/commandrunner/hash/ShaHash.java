@@ -1,32 +1,66 @@
 package com.doppelganger113.commandrunner.hash;
 
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
-import java.nio.charset.StandardCharsets;
-import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.TreeMap;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @Service
 public class ShaHash {
 
-    private final MessageDigest digest;
+    private static final String ALGORITHM = "SHA3-256";
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    /**
+     * Upper bound of idle digests kept around, virtual threads are cheap and numerous so we can not bind a
+     * digest to a thread, instead we borrow one from a lock-free pool and give it back when done.
+     */
+    private static final int MAX_POOLED_DIGESTS = 64;
+
+    private final Queue<ArgumentsDigest> pool = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pooledCount = new AtomicInteger();
+
+    private final Encoding encoding;
+
+    public enum Encoding {
+        /**
+         * Sorted {@code toString()} of the top level map, nested maps keep their hash order, lists are not
+         * normalized and {@code 1} and {@code 1.0} differ. Kept to be able to compare against older hashes, the
+         * application does not start with it once the V2 migration rehashed the stored jobs.
+         */
+        LEGACY,
+        /**
+         * JSON with keys sorted at every depth, null values removed from maps and lists and numbers normalized
+         * so that equal values hash the same regardless of how they were written.
+         */
+        CANONICAL
+    }
 
     public ShaHash() {
-        try {
-            digest = MessageDigest.getInstance("SHA3-256");
-        } catch (NoSuchAlgorithmException e) {
-            throw new RuntimeException(e);
-        }
+        this(Encoding.CANONICAL);
+    }
+
+    @Autowired
+    public ShaHash(@Value("${jobs.hash.encoding:CANONICAL}") Encoding encoding) {
+        this.encoding = encoding;
+    }
+
+    public Encoding getEncoding() {
+        return encoding;
     }
 
     /**
      * When dealing with JSON we want to consider null field values and non-existing fields the same, thus
      * we use this function to exclude null values from a map.
      */
-    private static <K, V> Map<K, V> excludeNullValues(Map<K, V> map) {
+    @SuppressWarnings("unchecked")
+    static <K, V> Map<K, V> excludeNullValues(Map<K, V> map) {
         if (map == null) {
             return null;
         }
@@ -48,22 +82,47 @@ public class ShaHash {
     }
 
     public String hash(HashMap<String, Object> map) {
+        return hash(map, encoding);
+    }
+
+    public String hash(Map<String, Object> map, Encoding encoding) {
         if (map == null || map.isEmpty()) {
             return "";
         }
-        var sortedMap = new TreeMap<>(excludeNullValues(map));
-        byte[] hashbytes = digest.digest(
-                sortedMap.toString().getBytes(StandardCharsets.UTF_8)
-        );
-        return hexEncode(hashbytes);
+        if (encoding == Encoding.CANONICAL && map.values().stream().noneMatch(Objects::nonNull)) {
+            return "";
+        }
+        ArgumentsDigest digest = borrow();
+        try {
+            return hexEncode(digest.digest(map, encoding));
+        } finally {
+            release(digest);
+        }
     }
 
-    static String hexEncode(byte[] data) {
-        StringBuilder builder = new StringBuilder();
-        for (byte b : data) {
-            builder.append(String.format("%02x", b));
+    private ArgumentsDigest borrow() {
+        ArgumentsDigest digest = pool.poll();
+        if (digest == null) {
+            return new ArgumentsDigest(ALGORITHM);
         }
+        pooledCount.decrementAndGet();
+        return digest;
+    }
+
+    private void release(ArgumentsDigest digest) {
+        if (pooledCount.incrementAndGet() > MAX_POOLED_DIGESTS) {
+            pooledCount.decrementAndGet();
+            return;
+        }
+        pool.offer(digest);
+    }
 
-        return builder.toString();
+    static String hexEncode(byte[] data) {
+        char[] hex = new char[data.length * 2];
+        for (int i = 0; i < data.length; i++) {
+            hex[i * 2] = HEX_DIGITS[(data[i] >> 4) & 0x0F];
+            hex[i * 2 + 1] = HEX_DIGITS[data[i] & 0x0F];
+        }
+        return new String(hex);
     }
 }
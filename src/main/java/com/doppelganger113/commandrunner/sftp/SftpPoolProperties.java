@@ -0,0 +1,23 @@
+package com.doppelganger113.commandrunner.sftp;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * @param maxSessionsPerKey open sessions at most per host and user, each one is used by one thread at a time
+ * @param maxSessions       open sessions at most over all hosts and users
+ * @param maxWait           time to wait for a session when all of them are in use
+ * @param idleTimeout       sessions not used for this long are closed
+ * @param evictionInterval  how often idle sessions are checked and closed when disconnected or idle for too long
+ */
+@ConfigurationProperties(prefix = "sftp.pool")
+public record SftpPoolProperties(
+        @DefaultValue("8") int maxSessionsPerKey,
+        @DefaultValue("32") int maxSessions,
+        @DefaultValue("5s") Duration maxWait,
+        @DefaultValue("5m") Duration idleTimeout,
+        @DefaultValue("1m") Duration evictionInterval
+) {
+}
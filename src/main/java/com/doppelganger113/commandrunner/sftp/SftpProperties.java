@@ -0,0 +1,42 @@
+package com.doppelganger113.commandrunner.sftp;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * @param host                  server that {@link SftpSessionService#getFiles(String)} lists
+ * @param port                  SSH port of the server
+ * @param username              user to authenticate as
+ * @param password              password of the user
+ * @param knownHosts            OpenSSH known_hosts file that host keys are verified against
+ * @param strictHostKeyChecking rejects servers whose host key is not in the known hosts, only turn it off for local
+ *                              test servers
+ * @param connectTimeout        limit for the TCP connect, key exchange and authentication of a new session
+ * @param keepaliveInterval     idle sessions send a keepalive this often so that firewalls keep them open and dead
+ *                              connections are noticed
+ */
+@ConfigurationProperties(prefix = "sftp")
+public record SftpProperties(
+        @DefaultValue("localhost") String host,
+        @DefaultValue("22") int port,
+        String username,
+        String password,
+        Path knownHosts,
+        @DefaultValue("true") boolean strictHostKeyChecking,
+        @DefaultValue("10s") Duration connectTimeout,
+        @DefaultValue("30s") Duration keepaliveInterval
+) {
+    public SftpSession.Options options() {
+        return new SftpSession.Options(host, username, password, port);
+    }
+
+    @Override
+    public String toString() {
+        return "SftpProperties[host=" + host + ", port=" + port + ", username=" + username
+                + ", knownHosts=" + knownHosts + ", strictHostKeyChecking=" + strictHostKeyChecking
+                + ", connectTimeout=" + connectTimeout + ", keepaliveInterval=" + keepaliveInterval + "]";
+    }
+}
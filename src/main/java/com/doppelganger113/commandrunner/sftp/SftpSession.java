@@ -1,66 +1,54 @@
 package com.doppelganger113.commandrunner.sftp;
 
 import com.jcraft.jsch.ChannelSftp;
-import com.jcraft.jsch.JSch;
 import com.jcraft.jsch.JSchException;
 import com.jcraft.jsch.Session;
 
+/**
+ * An SSH session with its SFTP channel. {@link ChannelSftp} is not safe to share, so a session is used by one thread
+ * at a time, see {@link SftpSessionService}.
+ */
 public class SftpSession implements AutoCloseable {
 
-    public static SftpSession createSftpSession(Options options) {
-        SftpSession sftpSession = new SftpSession(options);
-        sftpSession.connect();
-        return sftpSession;
-    }
-
-    public record Options(String host, String username, String password, int port) {
-    }
-
-    private Session session;
-    private final Options options;
-
-    public ChannelSftp channel;
-
-    public SftpSession(Options options) {
-        this.options = options;
-    }
-
-    private Session createSession() {
+    /**
+     * Connects the session and opens its SFTP channel, the session is disconnected again when the channel fails.
+     */
+    static SftpSession connect(Session session, int timeoutMs) {
         try {
-            JSch jSch = new JSch();
-            Session session = jSch.getSession(options.username, options.host, options.port);
-            session.setConfig("StrictHostKeyChecking", "no");
-            session.setPassword(options.password);
-            session.connect();
-            return session;
+            session.connect(timeoutMs);
+            ChannelSftp channel = (ChannelSftp) session.openChannel("sftp");
+            channel.connect(timeoutMs);
+            return new SftpSession(session, channel);
         } catch (JSchException e) {
-            throw new RuntimeException(e);
+            session.disconnect();
+            throw new RuntimeException("Cannot connect to " + session.getHost() + ":" + session.getPort(), e);
         }
     }
 
-    private ChannelSftp createSftpChannelAndConnect(Session session) {
-        try {
-            ChannelSftp channel = (ChannelSftp) session.openChannel("sftp");
-            channel.connect();
-            return channel;
-        } catch (JSchException e) {
-            throw new RuntimeException(e);
+    public record Options(String host, String username, String password, int port) {
+
+        @Override
+        public String toString() {
+            return username + "@" + host + ":" + port;
         }
     }
 
-    private void connect() {
-        session = createSession();
-        channel = createSftpChannelAndConnect(session);
+    private final Session session;
+
+    public final ChannelSftp channel;
+
+    private SftpSession(Session session, ChannelSftp channel) {
+        this.session = session;
+        this.channel = channel;
     }
 
+    public boolean isConnected() {
+        return session.isConnected() && channel.isConnected() && !channel.isClosed();
+    }
 
     @Override
     public void close() {
-        if (channel != null) {
-            channel.disconnect();
-        }
-        if (session != null) {
-            session.disconnect();
-        }
+        channel.disconnect();
+        session.disconnect();
     }
 }
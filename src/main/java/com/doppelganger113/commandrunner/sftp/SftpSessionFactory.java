@@ -0,0 +1,78 @@
+package com.doppelganger113.commandrunner.sftp;
+
+import com.jcraft.jsch.JSch;
+import com.jcraft.jsch.JSchException;
+import com.jcraft.jsch.Session;
+import org.apache.commons.pool2.BaseKeyedPooledObjectFactory;
+import org.apache.commons.pool2.DestroyMode;
+import org.apache.commons.pool2.PooledObject;
+import org.apache.commons.pool2.impl.DefaultPooledObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Opens the pooled sessions of {@link SftpSessionService}, one JSch instance holds the known hosts for all of them.
+ */
+class SftpSessionFactory extends BaseKeyedPooledObjectFactory<SftpSession.Options, SftpSession> {
+
+    /**
+     * Missed keepalive replies after which the session is disconnected.
+     */
+    private static final int KEEPALIVE_COUNT_MAX = 3;
+
+    private final Logger log = LoggerFactory.getLogger(SftpSessionFactory.class);
+
+    private final SftpProperties properties;
+    private final JSch jSch = new JSch();
+
+    SftpSessionFactory(SftpProperties properties) {
+        this.properties = properties;
+        if (properties.knownHosts() != null) {
+            try {
+                jSch.setKnownHosts(properties.knownHosts().toString());
+            } catch (JSchException e) {
+                throw new IllegalStateException("Cannot read known hosts " + properties.knownHosts(), e);
+            }
+        } else if (properties.strictHostKeyChecking()) {
+            log.warn("sftp.known-hosts is not set, every host key will be rejected");
+        }
+    }
+
+    @Override
+    public SftpSession create(SftpSession.Options options) {
+        long startedAt = System.nanoTime();
+        Session session;
+        try {
+            session = jSch.getSession(options.username(), options.host(), options.port());
+            session.setPassword(options.password());
+            session.setConfig("StrictHostKeyChecking", properties.strictHostKeyChecking() ? "yes" : "no");
+            session.setServerAliveInterval((int) properties.keepaliveInterval().toMillis());
+            session.setServerAliveCountMax(KEEPALIVE_COUNT_MAX);
+        } catch (JSchException e) {
+            throw new RuntimeException("Cannot create SFTP session to " + options, e);
+        }
+
+        SftpSession sftpSession = SftpSession.connect(session, (int) properties.connectTimeout().toMillis());
+        log.info("opened SFTP session to {} in {} ms", options, (System.nanoTime() - startedAt) / 1_000_000);
+        return sftpSession;
+    }
+
+    @Override
+    public PooledObject<SftpSession> wrap(SftpSession session) {
+        return new DefaultPooledObject<>(session);
+    }
+
+    /**
+     * Keepalives disconnect sessions whose server stopped answering, so checking the connection needs no round trip.
+     */
+    @Override
+    public boolean validateObject(SftpSession.Options options, PooledObject<SftpSession> pooledSession) {
+        return pooledSession.getObject().isConnected();
+    }
+
+    @Override
+    public void destroyObject(SftpSession.Options options, PooledObject<SftpSession> pooledSession, DestroyMode mode) {
+        pooledSession.getObject().close();
+        log.debug("closed SFTP session to {}", options);
+    }
+}
@@ -2,37 +2,122 @@ package com.doppelganger113.commandrunner.sftp;
 
 import com.jcraft.jsch.ChannelSftp;
 import com.jcraft.jsch.SftpException;
+import jakarta.annotation.PreDestroy;
+import org.apache.commons.pool2.impl.GenericKeyedObjectPool;
+import org.apache.commons.pool2.impl.GenericKeyedObjectPoolConfig;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
 
 import java.util.List;
+import java.util.NoSuchElementException;
 import java.util.Vector;
 
+/**
+ * Runs SFTP operations on pooled sessions keyed by host and user, so only the first operation pays for the TCP
+ * connect, key exchange and authentication. A borrowed session and its channel belong to one thread until returned.
+ */
 @Service
 public class SftpSessionService {
-    private final SftpSession.Options options = new SftpSession.Options(
-            "localhost",
-            "foo",
-            "pass",
-            2222
-    );
 
-    Logger log = LoggerFactory.getLogger(SftpSessionService.class);
+    @FunctionalInterface
+    public interface SftpCallback<T> {
+        T apply(ChannelSftp channel) throws SftpException;
+    }
+
+    private final Logger log = LoggerFactory.getLogger(SftpSessionService.class);
+
+    private final SftpProperties properties;
+    private final GenericKeyedObjectPool<SftpSession.Options, SftpSession> pool;
+
+    public SftpSessionService(SftpProperties properties, SftpPoolProperties poolProperties) {
+        this.properties = properties;
+
+        GenericKeyedObjectPoolConfig<SftpSession> config = new GenericKeyedObjectPoolConfig<>();
+        config.setMaxTotalPerKey(poolProperties.maxSessionsPerKey());
+        config.setMaxIdlePerKey(poolProperties.maxSessionsPerKey());
+        config.setMaxTotal(poolProperties.maxSessions());
+        config.setMaxWait(poolProperties.maxWait());
+        config.setTestOnBorrow(true);
+        config.setTestWhileIdle(true);
+        config.setNumTestsPerEvictionRun(-1);
+        config.setMinEvictableIdleDuration(poolProperties.idleTimeout());
+        config.setTimeBetweenEvictionRuns(poolProperties.evictionInterval());
+        config.setJmxEnabled(false);
+        this.pool = new GenericKeyedObjectPool<>(new SftpSessionFactory(properties), config);
+    }
 
     public List<String> getFiles(String path) {
-        try (SftpSession session = SftpSession.createSftpSession(options)) {
-            log.info("Established SFTP connection");
+        SftpCallback<List<String>> listFiles = channel -> {
             @SuppressWarnings("unchecked")
-            Vector<ChannelSftp.LsEntry> entries = session.channel.ls(path);
+            Vector<ChannelSftp.LsEntry> entries = channel.ls(path);
 
             return entries
                     .stream()
                     .filter(e -> !e.getAttrs().isDir() && !e.getAttrs().isLink())
                     .map(ChannelSftp.LsEntry::toString)
                     .toList();
-        } catch (SftpException e) {
-            throw new RuntimeException(e);
+        };
+
+        try {
+            return withChannel(properties.options(), listFiles);
+        } catch (ConnectionLostException e) {
+            // Listing is safe to repeat, the broken session was closed so this borrows a working one
+            log.warn("SFTP session to {} was lost, listing {} again", properties.options(), path);
+            return withChannel(properties.options(), listFiles);
+        }
+    }
+
+    /**
+     * Borrows a session of the host and user for the callback, the channel must not be used after it returns.
+     * Sessions whose connection broke during the callback are closed instead of returned to the pool.
+     */
+    public <T> T withChannel(SftpSession.Options options, SftpCallback<T> callback) {
+        SftpSession session = borrow(options);
+        try {
+            T result = callback.apply(session.channel);
+            pool.returnObject(options, session);
+            return result;
+        } catch (SftpException | RuntimeException e) {
+            if (session.isConnected()) {
+                pool.returnObject(options, session);
+                throw e instanceof SftpException ? new RuntimeException(e) : (RuntimeException) e;
+            }
+            invalidate(options, session);
+            throw new ConnectionLostException(options, e);
+        }
+    }
+
+    private SftpSession borrow(SftpSession.Options options) {
+        try {
+            return pool.borrowObject(options);
+        } catch (NoSuchElementException e) {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "All SFTP sessions to " + options + " are in use", e);
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new RuntimeException("Cannot borrow SFTP session to " + options, e);
+        }
+    }
+
+    private void invalidate(SftpSession.Options options, SftpSession session) {
+        try {
+            pool.invalidateObject(options, session);
+        } catch (Exception e) {
+            log.warn("failed to close SFTP session to {}", options, e);
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        pool.close();
+    }
+
+    public static class ConnectionLostException extends RuntimeException {
+        public ConnectionLostException(SftpSession.Options options, Throwable cause) {
+            super("SFTP session to " + options + " was lost", cause);
         }
     }
 }
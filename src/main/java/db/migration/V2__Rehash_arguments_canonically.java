@@ -0,0 +1,89 @@
+package db.migration;
+
+import com.doppelganger113.commandrunner.hash.ShaHash;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * Recomputes {@code arguments_hash} of existing jobs with {@link ShaHash.Encoding#CANONICAL}, walking the table
+ * by id in batches so memory stays constant regardless of the table size.
+ * <p>
+ * Jobs that were distinct under the previous encoding but are equal canonically (for example {@code 1} and
+ * {@code 1.0}) would violate {@code name_arg_hash_idx}, those keep their previous hash and the oldest one stays
+ * the one found by dedupe.
+ */
+public class V2__Rehash_arguments_canonically extends BaseJavaMigration {
+
+    private static final int BATCH_SIZE = 500;
+
+    private static final String SELECT_BATCH = "SELECT id, arguments::text, arguments_hash FROM jobs " +
+            "WHERE id > ? AND arguments IS NOT NULL ORDER BY id LIMIT " + BATCH_SIZE;
+
+    private static final String UPDATE_HASH = "UPDATE jobs SET arguments_hash = ? " +
+            "WHERE id = ? AND NOT EXISTS (SELECT 1 FROM jobs other WHERE other.name = jobs.name AND other.arguments_hash = ?)";
+
+    private final Logger log = LoggerFactory.getLogger(V2__Rehash_arguments_canonically.class);
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final ShaHash shaHash = new ShaHash(ShaHash.Encoding.CANONICAL);
+
+    @Override
+    public void migrate(Context context) throws Exception {
+        Connection connection = context.getConnection();
+        long lastId = 0;
+        long rehashed = 0;
+        long conflicts = 0;
+
+        try (PreparedStatement select = connection.prepareStatement(SELECT_BATCH);
+             PreparedStatement update = connection.prepareStatement(UPDATE_HASH)) {
+            int rows;
+            do {
+                rows = 0;
+                int changed = 0;
+                select.setLong(1, lastId);
+                try (ResultSet resultSet = select.executeQuery()) {
+                    while (resultSet.next()) {
+                        rows++;
+                        lastId = resultSet.getLong(1);
+                        String hash = shaHash.hash(parseArguments(resultSet.getString(2)), ShaHash.Encoding.CANONICAL);
+                        if (hash.equals(resultSet.getString(3))) {
+                            continue;
+                        }
+                        changed++;
+                        update.setString(1, hash);
+                        update.setLong(2, lastId);
+                        update.setString(3, hash);
+                        update.addBatch();
+                    }
+                }
+                if (changed > 0) {
+                    int updated = Arrays.stream(update.executeBatch()).map(count -> Math.max(count, 0)).sum();
+                    rehashed += updated;
+                    conflicts += changed - updated;
+                }
+            } while (rows == BATCH_SIZE);
+        }
+
+        log.info("Rehashed arguments of {} jobs, {} jobs kept their previous hash due to conflicts", rehashed, conflicts);
+    }
+
+    private HashMap<String, Object> parseArguments(String json) throws SQLException {
+        try {
+            return objectMapper.readValue(json, new TypeReference<>() {
+            });
+        } catch (Exception e) {
+            throw new SQLException("Cannot parse job arguments " + json, e);
+        }
+    }
+}
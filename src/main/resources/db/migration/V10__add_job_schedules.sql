@@ -0,0 +1,36 @@
+CREATE TABLE IF NOT EXISTS job_schedules
+(
+    id            SERIAL       NOT NULL PRIMARY KEY,
+    name          VARCHAR(250) NOT NULL,
+    cron          VARCHAR(120),
+    fixed_rate_ms BIGINT,
+    arguments     JSONB,
+    enabled       BOOLEAN      NOT NULL DEFAULT TRUE,
+    next_fire_at  TIMESTAMPTZ  NOT NULL,
+    last_fired_at TIMESTAMPTZ,
+    created_at    TIMESTAMPTZ  NOT NULL DEFAULT now(),
+    CHECK ((cron IS NULL) <> (fixed_rate_ms IS NULL))
+);
+
+COMMENT ON COLUMN job_schedules.name IS 'Processor of the submitted jobs';
+COMMENT ON COLUMN job_schedules.arguments IS 'Template of the submitted arguments, the fireTime placeholder in strings is replaced with the tick';
+COMMENT ON COLUMN job_schedules.next_fire_at IS 'Tick the schedule submits its next job at';
+
+-- The timer sleeps until the earliest tick
+CREATE INDEX IF NOT EXISTS job_schedules_next_fire_at_idx ON job_schedules (next_fire_at)
+    WHERE enabled;
+
+-- Wakes the timer of the leading node up when schedules change on any node
+CREATE OR REPLACE FUNCTION notify_job_schedule_change() RETURNS TRIGGER AS
+$$
+BEGIN
+    PERFORM pg_notify('job_schedules', '');
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER job_schedules_notify_change
+    AFTER INSERT OR DELETE OR UPDATE OF enabled, cron, fixed_rate_ms
+    ON job_schedules
+    FOR EACH STATEMENT
+EXECUTE FUNCTION notify_job_schedule_change();
@@ -0,0 +1,33 @@
+CREATE TABLE IF NOT EXISTS job_errors
+(
+    id             BIGSERIAL PRIMARY KEY,
+    job_id         BIGINT      NOT NULL REFERENCES jobs (id) ON DELETE CASCADE,
+    attempt        INTEGER     NOT NULL,
+    exception_type VARCHAR(255),
+    message        TEXT,
+    stack_trace    TEXT,
+    created_at     TIMESTAMPTZ NOT NULL DEFAULT now()
+);
+
+COMMENT ON TABLE job_errors IS 'Failures of job attempts, the jobs row only keeps a summary of the latest one';
+COMMENT ON COLUMN job_errors.attempt IS 'Attempt that failed, starting at 1';
+COMMENT ON COLUMN job_errors.exception_type IS 'Class of the thrown exception, NULL for errors recorded before V11';
+COMMENT ON COLUMN job_errors.stack_trace IS 'Capped stack trace including causes, frames shared with the enclosing trace are omitted';
+
+CREATE INDEX IF NOT EXISTS job_errors_job_id_idx ON job_errors (job_id, id);
+
+-- Errors used to be the message followed by Arrays.toString of the stack trace
+INSERT INTO job_errors (job_id, attempt, stack_trace, created_at)
+SELECT id, COALESCE(retry_count, 0) + 1, error, COALESCE(completed_at, updated_at, created_at)
+FROM jobs
+WHERE error IS NOT NULL
+  AND state = 'FAILED';
+
+UPDATE jobs
+SET error = left(regexp_replace(error, ' \[[^]]*\]$', ''), 512)
+WHERE error IS NOT NULL;
+
+ALTER TABLE jobs
+    ALTER COLUMN error TYPE VARCHAR(512);
+
+COMMENT ON COLUMN jobs.error IS 'Summary of the latest failure, details are in job_errors';
@@ -0,0 +1,13 @@
+CREATE TABLE IF NOT EXISTS persons
+(
+    job_id       BIGINT NOT NULL,
+    person_index BIGINT NOT NULL,
+    height       REAL   NOT NULL,
+    weight       REAL   NOT NULL
+);
+
+COMMENT ON TABLE persons IS 'Rows loaded by csv_import jobs with COPY';
+COMMENT ON COLUMN persons.job_id IS 'Import that loaded the row, not a foreign key so that COPY does not check every row';
+COMMENT ON COLUMN persons.person_index IS 'Index column of the imported file';
+
+CREATE INDEX IF NOT EXISTS persons_job_id_idx ON persons (job_id);
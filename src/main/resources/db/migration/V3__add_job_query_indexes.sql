@@ -0,0 +1,9 @@
+-- Latest active job of a name, used on every submission to prevent concurrent runs of the same job
+CREATE INDEX IF NOT EXISTS jobs_active_name_created_at_idx ON jobs (name, created_at DESC)
+    WHERE state NOT IN ('COMPLETED', 'FAILED', 'STOPPED');
+
+CREATE INDEX IF NOT EXISTS jobs_parent_job_id_idx ON jobs (parent_job_id)
+    WHERE parent_job_id IS NOT NULL;
+
+-- Listing and dashboard filters on state within a creation time range
+CREATE INDEX IF NOT EXISTS jobs_state_created_at_idx ON jobs (state, created_at);
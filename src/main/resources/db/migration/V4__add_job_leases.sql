@@ -0,0 +1,18 @@
+ALTER TABLE jobs
+    ADD COLUMN lease_owner      VARCHAR(100),
+    ADD COLUMN lease_expires_at TIMESTAMPTZ;
+
+COMMENT ON COLUMN jobs.lease_owner IS 'Node that claimed the job when running in distributed queue mode';
+COMMENT ON COLUMN jobs.lease_expires_at IS 'Job is reclaimed by other nodes once its lease expires without a heartbeat';
+
+-- Claiming takes the oldest READY jobs
+CREATE INDEX IF NOT EXISTS jobs_ready_id_idx ON jobs (id)
+    WHERE state = 'READY';
+
+-- Finding jobs of nodes that stopped heartbeating
+CREATE INDEX IF NOT EXISTS jobs_lease_expires_at_idx ON jobs (lease_expires_at)
+    WHERE state IN ('RUNNING', 'STOPPING');
+
+-- Heartbeats of a node extend the leases of all its unfinished jobs
+CREATE INDEX IF NOT EXISTS jobs_lease_owner_idx ON jobs (lease_owner)
+    WHERE state NOT IN ('COMPLETED', 'FAILED', 'STOPPED');
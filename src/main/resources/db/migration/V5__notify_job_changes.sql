@@ -0,0 +1,21 @@
+-- Publishes every new job and state change on the job_events channel, delivered to listeners on commit
+CREATE OR REPLACE FUNCTION notify_job_change() RETURNS TRIGGER AS
+$$
+BEGIN
+    PERFORM pg_notify('job_events', json_build_object('id', NEW.id, 'name', NEW.name, 'state', NEW.state)::text);
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER jobs_notify_insert
+    AFTER INSERT
+    ON jobs
+    FOR EACH ROW
+EXECUTE FUNCTION notify_job_change();
+
+CREATE TRIGGER jobs_notify_state_update
+    AFTER UPDATE OF state
+    ON jobs
+    FOR EACH ROW
+    WHEN (OLD.state IS DISTINCT FROM NEW.state)
+EXECUTE FUNCTION notify_job_change();
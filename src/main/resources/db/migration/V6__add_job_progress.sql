@@ -0,0 +1,5 @@
+ALTER TABLE jobs
+    ADD COLUMN progress_done  BIGINT,
+    ADD COLUMN progress_total BIGINT;
+
+COMMENT ON COLUMN jobs.progress_done IS 'Units of work done as last reported by the job processor, flushed periodically';
@@ -0,0 +1,4 @@
+ALTER TABLE jobs
+    ADD COLUMN timeout_ms BIGINT;
+
+COMMENT ON COLUMN jobs.timeout_ms IS 'Execution time after which the job fails, overrides the timeout of its processor';
@@ -0,0 +1,10 @@
+ALTER TABLE jobs
+    ADD COLUMN next_attempt_at TIMESTAMPTZ;
+
+COMMENT ON COLUMN jobs.retry_count IS 'Failed attempts that were retried';
+COMMENT ON COLUMN jobs.retry_limit IS 'Failed attempts that are retried before the job fails';
+COMMENT ON COLUMN jobs.next_attempt_at IS 'READY jobs waiting for a retry are not started before this time';
+
+-- Scheduling retries that were pending when the node stopped
+CREATE INDEX IF NOT EXISTS jobs_next_attempt_at_idx ON jobs (next_attempt_at)
+    WHERE state = 'READY';
@@ -0,0 +1,30 @@
+ALTER TABLE jobs
+    ADD COLUMN fan_out INTEGER;
+
+COMMENT ON COLUMN jobs.fan_out IS 'Children of a job graph parent that may be READY or running at the same time';
+
+CREATE TABLE IF NOT EXISTS job_dependencies
+(
+    job_id            INTEGER NOT NULL REFERENCES jobs (id) ON DELETE CASCADE,
+    depends_on_job_id INTEGER NOT NULL REFERENCES jobs (id) ON DELETE CASCADE,
+    PRIMARY KEY (job_id, depends_on_job_id)
+);
+
+COMMENT ON TABLE job_dependencies IS 'Child jobs of a job graph wait until the jobs they depend on completed';
+
+-- Children of a graph are deduplicated within their parent only, submissions never resolve to them
+DROP INDEX IF EXISTS name_arg_hash_idx;
+CREATE UNIQUE INDEX name_arg_hash_idx ON jobs (name, arguments_hash)
+    WHERE parent_job_id IS NULL;
+CREATE UNIQUE INDEX IF NOT EXISTS jobs_parent_name_arg_hash_idx ON jobs (parent_job_id, name, arguments_hash)
+    WHERE parent_job_id IS NOT NULL;
+
+-- The unique index of children also serves lookups by parent
+DROP INDEX IF EXISTS jobs_parent_job_id_idx;
+
+DROP INDEX IF EXISTS jobs_active_name_created_at_idx;
+CREATE INDEX jobs_active_name_created_at_idx ON jobs (name, created_at DESC)
+    WHERE state NOT IN ('COMPLETED', 'FAILED', 'STOPPED') AND parent_job_id IS NULL;
+
+-- Deleting a job removes the dependencies on it without scanning the table
+CREATE INDEX IF NOT EXISTS job_dependencies_depends_on_job_id_idx ON job_dependencies (depends_on_job_id);
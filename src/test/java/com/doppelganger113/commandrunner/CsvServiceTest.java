@@ -0,0 +1,179 @@
+package com.doppelganger113.commandrunner;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.Random;
+import java.util.stream.Stream;
+
+class CsvServiceTest {
+
+    private final CsvService csvService = new CsvService();
+
+    @Test
+    void givenFixture_whenReadFile_thenSkipHeaderAndParseEveryRow() throws IOException {
+        try (Reader reader = fixture()) {
+            List<Person> persons = csvService.readFile(reader);
+
+            Assertions.assertEquals(200, persons.size());
+            Assertions.assertEquals(new Person(1, 65.78f, 112.99f), persons.getFirst());
+            Assertions.assertEquals(new Person(200, 71.39f, 127.88f), persons.getLast());
+        }
+    }
+
+    @Test
+    void givenFixture_whenReadIntoColumns_thenHoldTheSameRows() throws IOException {
+        List<Person> persons;
+        try (Reader reader = fixture()) {
+            persons = csvService.readFile(reader);
+        }
+        try (Reader reader = fixture()) {
+            PersonColumns columns = csvService.readColumns(reader, true);
+
+            Assertions.assertEquals(persons.size(), columns.size());
+            for (int i = 0; i < persons.size(); i++) {
+                Assertions.assertEquals(persons.get(i), columns.get(i));
+            }
+            Assertions.assertEquals(200, columns.heightStats().count());
+            Assertions.assertEquals(200, Arrays.stream(columns.heightHistogram(60, 80, 10)).sum());
+        }
+    }
+
+    @Test
+    void givenFixture_whenIngested_thenHandOverBoundedChunks() throws IOException {
+        List<Integer> chunkSizes = new ArrayList<>();
+        try (Reader reader = fixture()) {
+            CsvService.IngestResult result = csvService.ingest(reader, true, 64, chunk -> chunkSizes.add(chunk.size()));
+
+            Assertions.assertEquals(200, result.rows());
+            Assertions.assertTrue(result.rowsPerSecond() > 0);
+        }
+        Assertions.assertEquals(List.of(64, 64, 64, 8), chunkSizes);
+    }
+
+    @Test
+    void givenFileWithoutHeader_whenIngested_thenKeepFirstRowAndSkipCommentsAndEmptyLines(@TempDir Path directory) throws IOException {
+        Path file = directory.resolve("persons.csv");
+        Files.writeString(file, "1, 65.78, 112.99\n#comment\n\n\"2\",-0.5,1e2\r\n3,71,127.880001\n");
+        List<Person> persons = new ArrayList<>();
+
+        CsvService.IngestResult result = csvService.ingest(file, false, 10, persons::addAll);
+
+        Assertions.assertEquals(3, result.rows());
+        Assertions.assertEquals(List.of(
+                new Person(1, 65.78f, 112.99f),
+                new Person(2, -0.5f, 100f),
+                new Person(3, 71f, 127.880001f)
+        ), persons);
+    }
+
+    @Test
+    void givenQuotedLineFeeds_whenIngestedInParallel_thenMatchSequentialIngestion(@TempDir Path directory) throws IOException {
+        Path file = directory.resolve("persons.csv");
+        StringBuilder csv = new StringBuilder("\"Index\", \"Height\", \"Weight\", \"Note\"\n");
+        for (int i = 1; i <= 5_000; i++) {
+            // Long quoted notes with line feeds make split points fall inside quotes
+            String note = i % 3 == 0 ? "\"line\nbreak \"\"quoted\"\"\n" + "x".repeat(i % 50) + "\"" : "plain";
+            csv.append(i).append(", ").append(60 + i % 15).append(".5, ").append(100 + i % 70).append(".25,").append(note).append('\n');
+        }
+        Files.writeString(file, csv);
+        List<Person> sequential = new ArrayList<>();
+        csvService.ingest(file, true, 100, sequential::addAll);
+
+        List<Person> ordered = new ArrayList<>();
+        CsvService.IngestResult orderedResult = csvService.ingestParallel(file, true, 100, 4, 97, true, ordered::addAll);
+        List<Person> unordered = Collections.synchronizedList(new ArrayList<>());
+        CsvService.IngestResult unorderedResult = csvService.ingestParallel(file, true, 100, 4, 97, false, unordered::addAll);
+
+        Assertions.assertEquals(5_000, sequential.size());
+        Assertions.assertEquals(5_000, orderedResult.rows());
+        Assertions.assertEquals(sequential, ordered);
+        Assertions.assertEquals(5_000, unorderedResult.rows());
+        Assertions.assertEquals(sequential, unordered.stream().sorted(Comparator.comparingLong(Person::index)).toList());
+    }
+
+    @Test
+    void givenQuotesInCommentsAndUnquotedFields_whenIngestedInParallel_thenMatchSequentialIngestion(@TempDir Path directory) throws IOException {
+        Path file = directory.resolve("persons.csv");
+        StringBuilder csv = new StringBuilder("Index,Height,Weight,Note\n");
+        for (int i = 1; i <= 5_000; i++) {
+            if (i % 7 == 0) {
+                // Neither the quote of the comment nor the one inside the unquoted note opens a quoted field
+                csv.append("#skipped \"comment, ").append("x".repeat(i % 40)).append('\n');
+            }
+            String note = i % 5 == 0 ? "\"quoted\nnote\"" : "unquoted \"note";
+            csv.append(i).append(',').append(60 + i % 15).append(".5,").append(100 + i % 70).append(".25,").append(note).append('\n');
+        }
+        Files.writeString(file, csv);
+        List<Person> sequential = new ArrayList<>();
+        csvService.ingest(file, true, 100, sequential::addAll);
+
+        List<Person> ordered = new ArrayList<>();
+        CsvService.IngestResult result = csvService.ingestParallel(file, true, 100, 4, 97, true, ordered::addAll);
+
+        Assertions.assertEquals(5_000, sequential.size());
+        Assertions.assertEquals(5_000, result.rows());
+        Assertions.assertEquals(sequential, ordered);
+    }
+
+    @Test
+    void givenFixture_whenIngestedInParallel_thenReadEveryRowOnce() throws IOException, URISyntaxException {
+        Path file = Path.of(Objects.requireNonNull(CsvServiceTest.class.getResource("/hw_200.csv")).toURI());
+        List<Person> persons = new ArrayList<>();
+
+        csvService.ingestParallel(file, true, 64, 8, true, persons::addAll);
+
+        try (Reader reader = fixture()) {
+            Assertions.assertEquals(csvService.readFile(reader), persons);
+        }
+    }
+
+    @Test
+    void givenMissingField_whenStreamed_thenFail() {
+        try (Stream<Person> persons = csvService.stream(new StringReader("1,2,3\n2,,3\n"), false)) {
+            RuntimeException error = Assertions.assertThrows(RuntimeException.class, persons::toList);
+            Assertions.assertTrue(
+                    Stream.iterate(error, Objects::nonNull, Throwable::getCause)
+                            .anyMatch(e -> Objects.equals(e.getMessage(), "Expected index, height and weight in line 2")),
+                    "unexpected error " + error
+            );
+        }
+    }
+
+    @Test
+    void givenDecimals_whenParsed_thenMatchFloatParseFloat() {
+        Random random = new Random(42);
+        for (int i = 0; i < 100_000; i++) {
+            String value = String.format(Locale.ROOT, "%." + random.nextInt(8) + "f", (random.nextDouble() - 0.5) * Math.pow(10, random.nextInt(9)));
+            char[] buf = (" " + value + " ").toCharArray();
+
+            Assertions.assertEquals(Float.parseFloat(value), CsvNumbers.parseFloat(buf, 0, buf.length), value);
+        }
+        Assertions.assertEquals(Long.MIN_VALUE, CsvNumbers.parseLong(String.valueOf(Long.MIN_VALUE).toCharArray(), 0, 20));
+        Assertions.assertThrows(NumberFormatException.class, () -> CsvNumbers.parseLong("1a".toCharArray(), 0, 2));
+        Assertions.assertThrows(NumberFormatException.class, () -> CsvNumbers.parseFloat("-".toCharArray(), 0, 1));
+    }
+
+    private static Reader fixture() {
+        return new InputStreamReader(
+                Objects.requireNonNull(CsvServiceTest.class.getResourceAsStream("/hw_200.csv")),
+                StandardCharsets.UTF_8
+        );
+    }
+}
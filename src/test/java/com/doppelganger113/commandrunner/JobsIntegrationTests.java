@@ -1,14 +1,21 @@
 package com.doppelganger113.commandrunner;
 
+import com.doppelganger113.commandrunner.batching.job.Job;
+import com.doppelganger113.commandrunner.batching.job.JobController;
+import com.doppelganger113.commandrunner.batching.job.JobDedupeCache;
 import com.doppelganger113.commandrunner.batching.job.JobExecutor;
+import com.doppelganger113.commandrunner.batching.job.JobPriority;
 import com.doppelganger113.commandrunner.batching.job.JobRepository;
+import com.doppelganger113.commandrunner.batching.job.JobService;
 import com.doppelganger113.commandrunner.batching.job.dto.JobExecutionOptions;
 import com.doppelganger113.commandrunner.batching.job.dto.JobUpdate;
+import com.doppelganger113.commandrunner.batching.job.processors.JobContext;
 import com.doppelganger113.commandrunner.batching.job.processors.JobProcessor;
 import io.restassured.RestAssured;
 import io.restassured.http.ContentType;
 import org.junit.jupiter.api.*;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.context.TestConfiguration;
 import org.springframework.boot.test.web.server.LocalServerPort;
@@ -16,16 +23,22 @@ import org.springframework.test.context.DynamicPropertyRegistry;
 import org.springframework.test.context.DynamicPropertySource;
 import org.testcontainers.containers.PostgreSQLContainer;
 
+import java.time.Duration;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.LinkedBlockingDeque;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
 
 import static io.restassured.RestAssured.given;
 import static org.hamcrest.Matchers.*;
 
 @SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
 @TestConfiguration(proxyBeanMethods = false)
+@AutoConfigureObservability(tracing = false)
 class JobsIntegrationTests {
 
     static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>(
@@ -41,10 +54,13 @@ class JobsIntegrationTests {
     @Autowired
     JobExecutor jobExecutor;
 
+    @Autowired
+    JobDedupeCache jobDedupeCache;
+
     private static final HashMap<String, Object> DEFAULT_HASH_MAP = new HashMap<>(Map.ofEntries(
             Map.entry("age", 32)
     ));
-    private static final String DEFAULT_SHA256 = "9ae4b21c4362bce63da43cb728c63763a4f400b9ae9805b06ae6ecb924dd0f9b";
+    private static final String DEFAULT_SHA256 = "a000a4d695d97c116511abff650628758ed56bf6c7e445dad6957a7d933de503";
 
     private record CustomJobProcessor(
             String name,
@@ -164,6 +180,7 @@ class JobsIntegrationTests {
     void beforeEach() {
         RestAssured.baseURI = "http://localhost:" + port;
         jobRepository.deleteAll();
+        jobDedupeCache.invalidateAll();
 
         // Drain queues
         CustomJobProcessor.DEFAULT.blockingDeque.clear();
@@ -195,6 +212,7 @@ class JobsIntegrationTests {
 
         given()
                 .contentType(ContentType.JSON)
+                .queryParam("include", "arguments,error")
                 .when()
                 .get("/jobs")
                 .then()
@@ -297,6 +315,7 @@ class JobsIntegrationTests {
 
         given()
                 .contentType(ContentType.JSON)
+                .queryParam("include", "arguments,error")
                 .when()
                 .get("/jobs")
                 .then()
@@ -397,6 +416,7 @@ class JobsIntegrationTests {
 
         given()
                 .contentType(ContentType.JSON)
+                .queryParam("include", "arguments,error")
                 .when()
                 .get("/jobs")
                 .then()
@@ -653,7 +673,7 @@ class JobsIntegrationTests {
         jobExecutor.addJobProcessor(CustomJobProcessor.THROWABLE);
 
         // Create a failing job
-        given()
+        Integer jobId = given()
                 .body(new JobExecutionOptions(CustomJobProcessor.THROWABLE.name(), null))
                 .contentType(ContentType.JSON)
                 .when()
@@ -667,12 +687,14 @@ class JobsIntegrationTests {
                         "job.arguments", equalTo(null),
                         "job.argumentsHash", equalTo(""),
                         "job.state", equalTo("READY")
-                );
+                )
+                .extract().path("job.id");
 
         CustomJobProcessor.THROWABLE.waitForCompletionOrFail();
 
         given()
                 .contentType(ContentType.JSON)
+                .queryParam("include", "arguments,error")
                 .when()
                 .get("/jobs")
                 .then()
@@ -686,8 +708,588 @@ class JobsIntegrationTests {
                         "[0].completedAt", not(emptyString()),
                         "[0].arguments", equalTo(null),
                         "[0].argumentsHash", equalTo(""),
-                        "[0].error", containsString("Failed again")
+                        "[0].error", equalTo("java.lang.RuntimeException: java.lang.RuntimeException: Failed again")
+                );
+
+        given()
+                .when()
+                .get("/jobs/{id}/errors", jobId)
+                .then()
+                .statusCode(200)
+                .body(
+                        ".", hasSize(1),
+                        "[0].jobId", equalTo(jobId),
+                        "[0].attempt", equalTo(1),
+                        "[0].exceptionType", equalTo("java.lang.RuntimeException"),
+                        "[0].message", equalTo("java.lang.RuntimeException: Failed again"),
+                        "[0].stackTrace", containsString("Caused by: java.lang.RuntimeException: Failed again")
+                );
+    }
+
+    @Test
+    void givenCompletedJob_whenSubmittedRepeatedly_thenAnswerFromDedupeCache() {
+        jobExecutor.addJobProcessor(CustomJobProcessor.DEFAULT);
+
+        Integer jobId = given()
+                .body(new JobExecutionOptions(CustomJobProcessor.DEFAULT.name(), DEFAULT_HASH_MAP))
+                .contentType(ContentType.JSON)
+                .when()
+                .post("/jobs")
+                .then()
+                .statusCode(200)
+                .body("description", equalTo("CREATED"))
+                .extract().path("job.id");
+
+        CustomJobProcessor.DEFAULT.waitForCompletionOrFail();
+        long terminalHitsBefore = jobDedupeCache.getStats().terminalHits();
+
+        for (int i = 0; i < 3; i++) {
+            given()
+                    .body(new JobExecutionOptions(CustomJobProcessor.DEFAULT.name(), DEFAULT_HASH_MAP))
+                    .contentType(ContentType.JSON)
+                    .when()
+                    .post("/jobs")
+                    .then()
+                    .statusCode(200)
+                    .body(
+                            "description", equalTo("COMPLETED"),
+                            "job.id", equalTo(jobId),
+                            "job.state", equalTo("COMPLETED")
+                    );
+        }
+
+        // First repeat is loaded from the database, the following ones are cache hits
+        Assertions.assertEquals(terminalHitsBefore + 2, jobDedupeCache.getStats().terminalHits());
+    }
+
+    @Test
+    void givenExecutedJob_whenScraped_thenExposeJobMetricsPerProcessor() {
+        // Meters live as long as the context, a processor of its own keeps the counts of other tests out
+        CustomJobProcessor meteredProcessor = CustomJobProcessor.getBuilder().name("metered_processor").build();
+        jobExecutor.addJobProcessor(meteredProcessor);
+
+        for (int i = 0; i < 2; i++) {
+            given()
+                    .body(new JobExecutionOptions(meteredProcessor.name(), DEFAULT_HASH_MAP))
+                    .contentType(ContentType.JSON)
+                    .when()
+                    .post("/jobs")
+                    .then()
+                    .statusCode(200);
+        }
+        meteredProcessor.waitForCompletionOrFail();
+
+        String processorTag = "processor=\"" + meteredProcessor.name() + "\"";
+        given()
+                .when()
+                .get("/actuator/prometheus")
+                .then()
+                .statusCode(200)
+                .body(
+                        containsString("jobs_submissions_total{application=\"commandrunner\"," + processorTag + ",result=\"created\"} 1.0"),
+                        containsString("jobs_submissions_total{application=\"commandrunner\"," + processorTag + ",result=\"deduplicated\"} 1.0"),
+                        containsString("jobs_queue_wait_seconds_count{application=\"commandrunner\"," + processorTag + "} 1"),
+                        containsString("jobs_execution_seconds_bucket{application=\"commandrunner\",outcome=\"completed\"," + processorTag),
+                        containsString("jobs_persistence_seconds_count{application=\"commandrunner\",outcome=\"committed\",transition=\"running\"}"),
+                        containsString("jobs_arguments_hash_seconds_count"),
+                        containsString("cache_gets_total{application=\"commandrunner\",cache=\"jobs.dedupe.terminal\"")
+                );
+        jobExecutor.removeJobProcessor(meteredProcessor);
+    }
+
+    @Test
+    void givenBatchSubmission_whenItContainsDuplicatesAndExistingJobs_thenCreateEachJobOnce() {
+        jobExecutor.addJobProcessor(CustomJobProcessor.DEFAULT);
+        jobExecutor.addJobProcessor(CustomJobProcessor.SLOW);
+
+        Integer existingJobId = given()
+                .body(new JobExecutionOptions(CustomJobProcessor.DEFAULT.name(), DEFAULT_HASH_MAP))
+                .contentType(ContentType.JSON)
+                .when()
+                .post("/jobs")
+                .then()
+                .statusCode(200)
+                .extract().path("job.id");
+        CustomJobProcessor.DEFAULT.waitForCompletionOrFail();
+
+        HashMap<String, Object> otherArguments = new HashMap<>(Map.of("age", 40));
+        Integer createdJobId = given()
+                .body(List.of(
+                        new JobExecutionOptions(CustomJobProcessor.SLOW.name(), DEFAULT_HASH_MAP),
+                        new JobExecutionOptions(CustomJobProcessor.DEFAULT.name(), DEFAULT_HASH_MAP),
+                        new JobExecutionOptions(CustomJobProcessor.SLOW.name(), DEFAULT_HASH_MAP),
+                        new JobExecutionOptions(CustomJobProcessor.SLOW.name(), otherArguments)
+                ))
+                .contentType(ContentType.JSON)
+                .when()
+                .post("/jobs/batch")
+                .then()
+                .statusCode(200)
+                .body(
+                        ".", hasSize(4),
+                        "[0].description", equalTo("CREATED"),
+                        "[0].job.state", equalTo("READY"),
+                        "[0].job.argumentsHash", equalTo(DEFAULT_SHA256),
+                        "[1].description", equalTo("COMPLETED"),
+                        "[1].job.id", equalTo(existingJobId),
+                        "[2].description", equalTo("RUNNING"),
+                        "[3].description", equalTo("RUNNING"),
+                        "[3].job.arguments.age", equalTo(32)
+                )
+                .extract().path("[0].job.id");
+
+        CustomJobProcessor.SLOW.waitForCompletionOrFail();
+
+        given()
+                .contentType(ContentType.JSON)
+                .when()
+                .get("/jobs/" + createdJobId)
+                .then()
+                .statusCode(200)
+                .body("state", equalTo("COMPLETED"));
+        Assertions.assertEquals(2, jobRepository.count());
+    }
+
+    @Test
+    void givenStoredJobs_whenListingPageByPage_thenFollowCursorAndFilters() {
+        for (int i = 0; i < 3; i++) {
+            Job job = new Job();
+            job.setName(i < 2 ? "first" : "second");
+            job.setArguments(new HashMap<>(Map.of("index", i)));
+            job.setArgumentsHash(String.valueOf(i));
+            jobRepository.save(job);
+        }
+
+        String cursor = given()
+                .queryParam("limit", 2)
+                .when()
+                .get("/jobs")
+                .then()
+                .statusCode(200)
+                .body(
+                        ".", hasSize(2),
+                        "[0].name", equalTo("second"),
+                        "[0].arguments", equalTo(null),
+                        "[1].name", equalTo("first")
+                )
+                .extract().header(JobController.NEXT_CURSOR_HEADER);
+
+        given()
+                .queryParam("limit", 2)
+                .queryParam("cursor", cursor)
+                .queryParam("include", "arguments")
+                .when()
+                .get("/jobs")
+                .then()
+                .statusCode(200)
+                .header(JobController.NEXT_CURSOR_HEADER, nullValue())
+                .body(
+                        ".", hasSize(1),
+                        "[0].arguments.index", equalTo(0)
                 );
+
+        given()
+                .queryParam("name", "first")
+                .queryParam("state", "READY")
+                .when()
+                .get("/jobs")
+                .then()
+                .statusCode(200)
+                .body("name", everyItem(equalTo("first")), ".", hasSize(2));
+
+        given()
+                .queryParam("limit", JobService.MAX_PAGE_LIMIT + 1)
+                .when()
+                .get("/jobs")
+                .then()
+                .statusCode(400);
+
+        String export = given()
+                .queryParam("name", "first")
+                .when()
+                .get("/jobs/export")
+                .then()
+                .statusCode(200)
+                .contentType("application/x-ndjson")
+                .extract().asString();
+        Assertions.assertEquals(2, export.lines().count());
+    }
+
+    @Test
+    void givenRunningJob_whenSubscribedToItsEvents_thenStreamStatesUntilItIsDone() {
+        jobExecutor.addJobProcessor(CustomJobProcessor.SLOW);
+
+        Integer jobId = given()
+                .body(new JobExecutionOptions(CustomJobProcessor.SLOW.name(), DEFAULT_HASH_MAP))
+                .contentType(ContentType.JSON)
+                .when()
+                .post("/jobs")
+                .then()
+                .statusCode(200)
+                .extract().path("job.id");
+
+        String events = given()
+                .accept("text/event-stream")
+                .when()
+                .get("/jobs/" + jobId + "/events")
+                .then()
+                .statusCode(200)
+                .contentType(containsString("text/event-stream"))
+                .extract().asString();
+
+        List<String> data = events.lines().filter(line -> line.startsWith("data:")).toList();
+        Assertions.assertFalse(data.isEmpty());
+        Assertions.assertTrue(data.getLast().contains("\"state\":\"COMPLETED\""), events);
+        Assertions.assertTrue(data.getLast().contains("\"id\":" + jobId), events);
+        CustomJobProcessor.SLOW.waitForCompletionOrFail();
+
+        given()
+                .accept("text/event-stream")
+                .when()
+                .get("/jobs/" + (jobId + 1000) + "/events")
+                .then()
+                .statusCode(404);
+    }
+
+    @Test
+    void givenCooperativeJob_whenStopped_thenReturnsEarlyWithReportedProgress() throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch finished = new CountDownLatch(1);
+        JobProcessor cooperativeProcessor = new JobProcessor() {
+            @Override
+            public String getName() {
+                return "cooperative_processor";
+            }
+
+            @Override
+            public void execute(HashMap<String, Object> arguments) {
+                throw new IllegalStateException("runs only with a job context");
+            }
+
+            @Override
+            public void execute(HashMap<String, Object> arguments, JobContext context) {
+                started.countDown();
+                long total = 100_000;
+                for (long done = 0; done < total && !context.isCancelled(); done++) {
+                    context.reportProgress(done, total);
+                    LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+                }
+                finished.countDown();
+            }
+        };
+        jobExecutor.addJobProcessor(cooperativeProcessor);
+        try {
+            Integer jobId = given()
+                    .body(new JobExecutionOptions(cooperativeProcessor.getName(), DEFAULT_HASH_MAP))
+                    .contentType(ContentType.JSON)
+                    .when()
+                    .post("/jobs")
+                    .then()
+                    .statusCode(200)
+                    .extract().path("job.id");
+            Assertions.assertTrue(started.await(1, TimeUnit.SECONDS), "processor did not start");
+
+            given()
+                    .body(new JobUpdate(true))
+                    .contentType(ContentType.JSON)
+                    .when()
+                    .patch("/jobs/" + jobId)
+                    .then()
+                    .statusCode(204);
+            Assertions.assertTrue(finished.await(1, TimeUnit.SECONDS), "processor did not see the cancellation");
+
+            awaitState(jobId, "STOPPED");
+            given()
+                    .contentType(ContentType.JSON)
+                    .when()
+                    .get("/jobs/" + jobId)
+                    .then()
+                    .statusCode(200)
+                    .body(
+                            "state", equalTo("STOPPED"),
+                            "progressDone", greaterThan(0),
+                            "progressTotal", equalTo(100_000)
+                    );
+        } finally {
+            jobExecutor.removeJobProcessor(cooperativeProcessor);
+        }
+    }
+
+    @Test
+    void givenHangingJob_whenItExceedsItsTimeout_thenInterruptAndFailIt() throws InterruptedException {
+        CountDownLatch interrupted = new CountDownLatch(1);
+        JobProcessor hangingProcessor = new JobProcessor() {
+            @Override
+            public String getName() {
+                return "hanging_processor";
+            }
+
+            @Override
+            public void execute(HashMap<String, Object> arguments) {
+                try {
+                    Thread.sleep(Duration.ofMinutes(1));
+                } catch (InterruptedException e) {
+                    interrupted.countDown();
+                    throw new RuntimeException(e);
+                }
+            }
+        };
+        jobExecutor.addJobProcessor(hangingProcessor);
+        long timedOutBefore = given().get("/jobs/stats").then().extract().<Number>path("timedOutCount").longValue();
+
+        Integer jobId = given()
+                .body(new JobExecutionOptions(hangingProcessor.getName(), DEFAULT_HASH_MAP, JobPriority.NORMAL, 200L))
+                .contentType(ContentType.JSON)
+                .when()
+                .post("/jobs")
+                .then()
+                .statusCode(200)
+                .body("job.timeoutMs", equalTo(200))
+                .extract().path("job.id");
+
+        Assertions.assertTrue(interrupted.await(2, TimeUnit.SECONDS), "processor was not interrupted");
+        Thread.sleep(200);
+
+        given()
+                .contentType(ContentType.JSON)
+                .when()
+                .get("/jobs/" + jobId)
+                .then()
+                .statusCode(200)
+                .body(
+                        "state", equalTo("FAILED"),
+                        "error", equalTo("java.util.concurrent.TimeoutException: Job timed out after PT0.2S")
+                );
+        given()
+                .when()
+                .get("/jobs/{id}/errors", jobId)
+                .then()
+                .statusCode(200)
+                .body(
+                        "[0].exceptionType", equalTo("java.util.concurrent.TimeoutException"),
+                        "[0].stackTrace", containsString("java.lang.Thread.sleep")
+                );
+        given()
+                .when()
+                .get("/jobs/stats")
+                .then()
+                .statusCode(200)
+                .body("timedOutCount", equalTo((int) timedOutBefore + 1));
+        given()
+                .when()
+                .get("/actuator/prometheus")
+                .then()
+                .statusCode(200)
+                .body(containsString("jobs_timed_out_total{application=\"commandrunner\",processor=\"hanging_processor\"} 1.0"));
+        jobExecutor.removeJobProcessor(hangingProcessor);
+    }
+
+    @Test
+    void givenJobWithRetriesIgnoringInterrupts_whenItTimesOut_thenFailItWithoutRetry() throws InterruptedException {
+        AtomicInteger attempts = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch returned = new CountDownLatch(1);
+        JobProcessor stubbornProcessor = new JobProcessor() {
+            @Override
+            public String getName() {
+                return "stubborn_processor";
+            }
+
+            @Override
+            public void execute(HashMap<String, Object> arguments) {
+                attempts.incrementAndGet();
+                boolean released = false;
+                while (!released) {
+                    try {
+                        released = release.await(5, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        // Keeps running like a processor stuck in a call that ignores interrupts
+                    }
+                }
+                returned.countDown();
+            }
+        };
+        jobExecutor.addJobProcessor(stubbornProcessor);
+        try {
+            Integer jobId = given()
+                    .body(new JobExecutionOptions(stubbornProcessor.getName(), DEFAULT_HASH_MAP, JobPriority.NORMAL, 200L, 2))
+                    .contentType(ContentType.JSON)
+                    .when()
+                    .post("/jobs")
+                    .then()
+                    .statusCode(200)
+                    .extract().path("job.id");
+
+            // Longer than the initial backoff, a retry would have started by now
+            Thread.sleep(1_500);
+
+            given()
+                    .contentType(ContentType.JSON)
+                    .when()
+                    .get("/jobs/" + jobId)
+                    .then()
+                    .statusCode(200)
+                    .body(
+                            "state", equalTo("FAILED"),
+                            "nextAttemptAt", equalTo(null),
+                            "error", containsString("TimeoutException")
+                    );
+            Assertions.assertEquals(1, attempts.get());
+        } finally {
+            release.countDown();
+            Assertions.assertTrue(returned.await(2, TimeUnit.SECONDS), "processor did not return");
+            jobExecutor.removeJobProcessor(stubbornProcessor);
+        }
+    }
+
+    @Test
+    void givenJobWithRetries_whenFirstAttemptFails_thenRetryItAfterBackoff() throws InterruptedException {
+        AtomicInteger attempts = new AtomicInteger();
+        CountDownLatch succeeded = new CountDownLatch(1);
+        JobProcessor flakyProcessor = new JobProcessor() {
+            @Override
+            public String getName() {
+                return "flaky_processor";
+            }
+
+            @Override
+            public void execute(HashMap<String, Object> arguments) {
+                if (attempts.incrementAndGet() == 1) {
+                    throw new RuntimeException("transient failure");
+                }
+                succeeded.countDown();
+            }
+        };
+        jobExecutor.addJobProcessor(flakyProcessor);
+
+        Integer jobId = given()
+                .body(new JobExecutionOptions(flakyProcessor.getName(), DEFAULT_HASH_MAP, JobPriority.NORMAL, null, 2))
+                .contentType(ContentType.JSON)
+                .when()
+                .post("/jobs")
+                .then()
+                .statusCode(200)
+                .body("job.retryLimit", equalTo(2))
+                .extract().path("job.id");
+
+        Assertions.assertTrue(succeeded.await(3, TimeUnit.SECONDS), "job was not retried");
+        Thread.sleep(200);
+
+        given()
+                .contentType(ContentType.JSON)
+                .when()
+                .get("/jobs/" + jobId)
+                .then()
+                .statusCode(200)
+                .body(
+                        "state", equalTo("COMPLETED"),
+                        "retryCount", equalTo(1),
+                        "nextAttemptAt", equalTo(null),
+                        "error", containsString("transient failure")
+                );
+        Assertions.assertEquals(2, attempts.get());
+        jobExecutor.removeJobProcessor(flakyProcessor);
+    }
+
+    @Test
+    void givenJobWithRetries_whenEveryAttemptFails_thenFailAfterRetryLimit() throws InterruptedException {
+        CountDownLatch attempts = new CountDownLatch(2);
+        JobProcessor brokenProcessor = new JobProcessor() {
+            @Override
+            public String getName() {
+                return "broken_processor";
+            }
+
+            @Override
+            public void execute(HashMap<String, Object> arguments) {
+                attempts.countDown();
+                throw new RuntimeException("permanent failure");
+            }
+        };
+        jobExecutor.addJobProcessor(brokenProcessor);
+
+        Integer jobId = given()
+                .body(new JobExecutionOptions(brokenProcessor.getName(), DEFAULT_HASH_MAP, JobPriority.NORMAL, null, 1))
+                .contentType(ContentType.JSON)
+                .when()
+                .post("/jobs")
+                .then()
+                .statusCode(200)
+                .extract().path("job.id");
+
+        given()
+                .contentType(ContentType.JSON)
+                .when()
+                .get("/jobs/" + jobId)
+                .then()
+                .statusCode(200)
+                .body("state", oneOf("READY", "RUNNING"));
+
+        Assertions.assertTrue(attempts.await(3, TimeUnit.SECONDS), "job was not retried");
+        Thread.sleep(200);
+
+        given()
+                .contentType(ContentType.JSON)
+                .when()
+                .get("/jobs/" + jobId)
+                .then()
+                .statusCode(200)
+                .body(
+                        "state", equalTo("FAILED"),
+                        "retryCount", equalTo(1),
+                        "error", containsString("permanent failure")
+                );
+        jobExecutor.removeJobProcessor(brokenProcessor);
+    }
+
+    @Test
+    void givenProcessorAddedAtRuntime_whenSubmittedWithOtherTuningArguments_thenDedupeByItsArguments() {
+        JobProcessor tunedProcessor = new JobProcessor() {
+            @Override
+            public String getName() {
+                return "tuned_processor";
+            }
+
+            @Override
+            public HashMap<String, Object> dedupeArguments(HashMap<String, Object> arguments) {
+                return new HashMap<>(Map.of("age", arguments.get("age")));
+            }
+
+            @Override
+            public void execute(HashMap<String, Object> arguments) {
+            }
+        };
+        jobExecutor.addJobProcessor(tunedProcessor);
+
+        try {
+            List<Integer> jobIds = List.of(1, 2).stream()
+                    .map(tuning -> given()
+                            .body(new JobExecutionOptions(tunedProcessor.getName(), new HashMap<>(Map.of("age", 32, "tuning", tuning))))
+                            .contentType(ContentType.JSON)
+                            .when()
+                            .post("/jobs")
+                            .then()
+                            .statusCode(200)
+                            .extract().<Integer>path("job.id"))
+                    .toList();
+
+            Assertions.assertEquals(jobIds.getFirst(), jobIds.getLast());
+        } finally {
+            jobExecutor.removeJobProcessor(tunedProcessor);
+        }
+    }
+
+    /**
+     * The final state is written after the processor returned, polls until it is.
+     */
+    private void awaitState(Integer jobId, String expected) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!jobRepository.findStateById(jobId.longValue()).map(expected::equals).orElse(false)) {
+            if (System.nanoTime() - deadline > 0) {
+                Assertions.fail("Job " + jobId + " did not reach " + expected);
+            }
+            Thread.sleep(20);
+        }
     }
 
     // TODO: queuing jobs?
@@ -0,0 +1,71 @@
+package com.doppelganger113.commandrunner;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.DoubleSummaryStatistics;
+import java.util.Random;
+
+class PersonColumnsTest {
+
+    @Test
+    void givenMoreRowsThanCapacity_whenAdded_thenGrowAndKeepRows() {
+        PersonColumns columns = new PersonColumns(1);
+
+        for (int i = 0; i < 5_000; i++) {
+            columns.add(i, i / 2f, i * 2f);
+        }
+        columns.trimToSize();
+
+        Assertions.assertEquals(5_000, columns.size());
+        Assertions.assertEquals(new Person(4_999, 2_499.5f, 9_998f), columns.get(4_999));
+        Assertions.assertThrows(IndexOutOfBoundsException.class, () -> columns.get(5_000));
+    }
+
+    @Test
+    void givenSizeBeyondTwoThirdsOfMaxInt_whenGrown_thenCapAtMaxCapacity() {
+        Assertions.assertEquals(1024, PersonColumns.newCapacity(10));
+        Assertions.assertEquals(3_000_000, PersonColumns.newCapacity(2_000_000));
+        Assertions.assertEquals(Integer.MAX_VALUE - 8, PersonColumns.newCapacity(1_500_000_000));
+    }
+
+    @Test
+    void givenRandomRows_whenAggregated_thenMatchSummaryStatistics() {
+        PersonColumns columns = new PersonColumns();
+        DoubleSummaryStatistics expected = new DoubleSummaryStatistics();
+        Random random = new Random(42);
+        // Not a multiple of the unrolled loop so the remainder is aggregated too
+        for (int i = 0; i < 10_003; i++) {
+            float height = 50 + random.nextFloat() * 30;
+            columns.add(i, height, 0);
+            expected.accept(height);
+        }
+
+        PersonColumns.Stats stats = columns.heightStats();
+
+        Assertions.assertEquals(10_003, stats.count());
+        Assertions.assertEquals((float) expected.getMin(), stats.min());
+        Assertions.assertEquals((float) expected.getMax(), stats.max());
+        Assertions.assertEquals(expected.getAverage(), stats.mean(), 1e-9);
+    }
+
+    @Test
+    void givenRows_whenHistogram_thenCountValuesInRangeWithMaxInLastBucket() {
+        PersonColumns columns = new PersonColumns();
+        for (float weight : new float[]{99f, 100f, 124.9f, 125f, 150f, 199.9f, 200f, 201f}) {
+            columns.add(0, 0, weight);
+        }
+
+        Assertions.assertArrayEquals(new int[]{2, 1, 1, 2}, columns.weightHistogram(100, 200, 4));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> columns.weightHistogram(100, 100, 4));
+    }
+
+    @Test
+    void givenNoRows_whenAggregated_thenReturnNaN() {
+        PersonColumns.Stats stats = new PersonColumns().weightStats();
+
+        Assertions.assertEquals(0, stats.count());
+        Assertions.assertTrue(Float.isNaN(stats.min()));
+        Assertions.assertTrue(Double.isNaN(stats.mean()));
+    }
+}
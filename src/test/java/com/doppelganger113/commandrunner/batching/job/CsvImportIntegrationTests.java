@@ -0,0 +1,214 @@
+package com.doppelganger113.commandrunner.batching.job;
+
+import com.doppelganger113.commandrunner.batching.job.dto.JobExecutionDescription;
+import com.doppelganger113.commandrunner.batching.job.dto.JobExecutionOptions;
+import com.doppelganger113.commandrunner.batching.job.dto.JobExecutionResponse;
+import com.doppelganger113.commandrunner.batching.job.processors.CsvImportProcessor;
+import org.junit.jupiter.api.*;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE)
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_CLASS)
+class CsvImportIntegrationTests {
+
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>(
+            "postgres:16"
+    ).withReuse(true);
+
+    static Path importDirectory;
+
+    static String checksum;
+
+    @Autowired
+    private JobService jobService;
+
+    @Autowired
+    private JobRepository jobRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private JobDedupeCache jobDedupeCache;
+
+    @DynamicPropertySource
+    static void configureProperties(DynamicPropertyRegistry registry) throws IOException {
+        importDirectory = Files.createTempDirectory("csv-import");
+        try (InputStream fixture = Objects.requireNonNull(CsvImportIntegrationTests.class.getResourceAsStream("/hw_200.csv"))) {
+            Files.copy(fixture, importDirectory.resolve("hw_200.csv"));
+        }
+        checksum = sha256(importDirectory.resolve("hw_200.csv"));
+
+        registry.add("spring.datasource.url", postgres::getJdbcUrl);
+        registry.add("spring.datasource.username", postgres::getUsername);
+        registry.add("spring.datasource.password", postgres::getPassword);
+        registry.add("jobs.csv-import.directory", importDirectory::toString);
+    }
+
+    @BeforeAll
+    static void beforeAll() {
+        postgres.start();
+    }
+
+    @AfterAll
+    static void afterAll() {
+        postgres.stop();
+    }
+
+    @BeforeEach
+    @AfterEach
+    void deleteJobs() {
+        jdbcTemplate.update("DELETE FROM jobs");
+        jdbcTemplate.update("DELETE FROM persons");
+        jobDedupeCache.invalidateAll();
+    }
+
+    @Test
+    void givenBinaryFormat_whenImported_thenCopyAllRowsInBatches() {
+        Job job = submit(Map.of("path", "hw_200.csv", "checksum", checksum, "format", "BINARY", "batchSize", 64));
+
+        awaitState(job.getId(), JobState.COMPLETED);
+        assertRowsOf(job.getId());
+    }
+
+    @Test
+    void givenCsvFormat_whenImported_thenCopyAllRows() {
+        Job job = submit(Map.of("path", "hw_200.csv", "checksum", checksum, "format", "CSV"));
+
+        awaitState(job.getId(), JobState.COMPLETED);
+        assertRowsOf(job.getId());
+    }
+
+    @Test
+    void givenSameFileAndChecksum_whenSubmittedAgain_thenReturnExistingImport() {
+        Job job = submit(Map.of("path", "hw_200.csv", "checksum", checksum));
+        awaitState(job.getId(), JobState.COMPLETED);
+
+        JobExecutionResponse response = jobService.executeJob(new JobExecutionOptions(
+                CsvImportProcessor.NAME, new HashMap<>(Map.of("path", "hw_200.csv", "checksum", checksum))
+        ));
+
+        Assertions.assertEquals(job.getId(), response.job().getId());
+        Assertions.assertEquals(JobExecutionDescription.COMPLETED, response.description());
+        Assertions.assertEquals(200, countRows());
+    }
+
+    @Test
+    void givenOtherFormatAndBatchSize_whenSubmittedAgain_thenReturnExistingImport() {
+        Job job = submit(Map.of("path", "hw_200.csv", "checksum", checksum, "format", "BINARY", "batchSize", 64));
+        awaitState(job.getId(), JobState.COMPLETED);
+
+        JobExecutionResponse response = jobService.executeJob(new JobExecutionOptions(
+                CsvImportProcessor.NAME,
+                new HashMap<>(Map.of("path", "hw_200.csv", "checksum", checksum, "format", "CSV", "batchSize", 10))
+        ));
+
+        Assertions.assertEquals(job.getId(), response.job().getId());
+        Assertions.assertEquals(200, countRows());
+    }
+
+    @Test
+    void givenMalformedRowAfterCommittedBatches_whenImported_thenFailAndDeleteTheRows() throws IOException {
+        StringBuilder csv = new StringBuilder("Index,Height,Weight\n");
+        for (int i = 1; i <= 100; i++) {
+            csv.append(i).append(",65.5,112.25\n");
+        }
+        csv.append("101,,112.25\n");
+        Path file = Files.writeString(importDirectory.resolve("malformed.csv"), csv);
+        Job job = submit(Map.of("path", "malformed.csv", "checksum", sha256(file), "batchSize", 10));
+
+        awaitState(job.getId(), JobState.FAILED);
+        Assertions.assertTrue(jobRepository.findById(job.getId()).orElseThrow().getError().contains("line 102"));
+        Assertions.assertEquals(0, countRows());
+    }
+
+    @Test
+    void givenWrongChecksum_whenImported_thenFailWithoutLoadingRows() {
+        Job job = submit(Map.of("path", "hw_200.csv", "checksum", "0".repeat(64)));
+
+        awaitState(job.getId(), JobState.FAILED);
+        Assertions.assertTrue(jobRepository.findById(job.getId()).orElseThrow().getError().contains("Checksum of"));
+        Assertions.assertEquals(0, countRows());
+    }
+
+    @Test
+    void givenPathOutsideOfDirectory_whenImported_thenFail() throws IOException {
+        Path outside = Files.createTempFile("outside", ".csv");
+        Job job = submit(Map.of("path", outside.toString(), "checksum", checksum));
+
+        awaitState(job.getId(), JobState.FAILED);
+        Assertions.assertTrue(jobRepository.findById(job.getId()).orElseThrow().getError().contains("is not inside"));
+    }
+
+    private Job submit(Map<String, Object> arguments) {
+        JobExecutionResponse response = jobService.executeJob(
+                new JobExecutionOptions(CsvImportProcessor.NAME, new HashMap<>(arguments))
+        );
+        Assertions.assertEquals(JobExecutionDescription.CREATED, response.description());
+        return response.job();
+    }
+
+    private void assertRowsOf(Long jobId) {
+        Assertions.assertEquals(200, countRows());
+        Map<String, Object> first = jdbcTemplate.queryForMap(
+                "SELECT job_id, height, weight FROM persons WHERE person_index = 1"
+        );
+        Assertions.assertEquals(jobId, first.get("job_id"));
+        Assertions.assertEquals(65.78f, first.get("height"));
+        Assertions.assertEquals(112.99f, first.get("weight"));
+        Assertions.assertEquals(200L, jdbcTemplate.queryForObject("SELECT MAX(person_index) FROM persons", Long.class));
+    }
+
+    private int countRows() {
+        return Objects.requireNonNull(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM persons", Integer.class));
+    }
+
+    private void awaitState(Long jobId, JobState expected) {
+        Supplier<JobState> state = () -> jobRepository.findStateById(jobId).map(JobState::valueOf).orElse(null);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (state.get() != expected) {
+            if (System.nanoTime() - deadline > 0) {
+                Assertions.fail("Job " + jobId + " did not reach " + expected + " but is " + state.get());
+            }
+            sleep();
+        }
+    }
+
+    private static void sleep() {
+        try {
+            Thread.sleep(50);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static String sha256(Path file) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(Files.readAllBytes(file)));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.doppelganger113.commandrunner.batching.job;
+
+import org.junit.jupiter.api.*;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.jdbc.JdbcConnectionDetails;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import org.testcontainers.containers.PostgreSQLContainer;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Connection details come from a {@link JdbcConnectionDetails} bean like with docker compose, there is no
+ * {@code spring.datasource.url}.
+ */
+@SpringBootTest(
+        webEnvironment = SpringBootTest.WebEnvironment.NONE,
+        properties = "jobs.schedules.enabled=true"
+)
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_CLASS)
+class JdbcConnectionDetailsIntegrationTests {
+
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>(
+            "postgres:16"
+    ).withReuse(true);
+
+    @TestConfiguration
+    static class ConnectionDetailsConfiguration {
+
+        @Bean
+        JdbcConnectionDetails jdbcConnectionDetails() {
+            return new JdbcConnectionDetails() {
+                @Override
+                public String getUsername() {
+                    return postgres.getUsername();
+                }
+
+                @Override
+                public String getPassword() {
+                    return postgres.getPassword();
+                }
+
+                @Override
+                public String getJdbcUrl() {
+                    return postgres.getJdbcUrl();
+                }
+            };
+        }
+    }
+
+    @Autowired
+    private Environment environment;
+
+    @Autowired
+    private JobEventBus jobEventBus;
+
+    @Autowired
+    private JobScheduleTimer jobScheduleTimer;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeAll
+    static void beforeAll() {
+        postgres.start();
+    }
+
+    @AfterAll
+    static void afterAll() {
+        postgres.stop();
+    }
+
+    @Test
+    void givenNoDatasourceUrl_whenStarted_thenJobEventListenerReceivesNotifications() throws InterruptedException {
+        Assertions.assertNull(environment.getProperty("spring.datasource.url"));
+
+        BlockingQueue<JobEvent> events = new LinkedBlockingQueue<>();
+        JobEvent probe = new JobEvent(0L, "connection_details_test", JobState.READY);
+        try (JobEventBus.Subscription ignored = jobEventBus.subscribe(event -> {
+            if (probe.name().equals(event.name())) {
+                events.add(event);
+            }
+        })) {
+            for (int attempt = 0; attempt < 50; attempt++) {
+                jdbcTemplate.queryForList(
+                        "SELECT pg_notify(?, '{\"id\":0,\"name\":\"connection_details_test\",\"state\":\"READY\"}')",
+                        JobEventListener.CHANNEL
+                );
+                if (probe.equals(events.poll(100, TimeUnit.MILLISECONDS))) {
+                    return;
+                }
+            }
+        }
+        Assertions.fail("Job event listener is not listening");
+    }
+
+    @Test
+    void givenNoDatasourceUrl_whenStarted_thenJobScheduleTimerLeads() throws InterruptedException {
+        for (int attempt = 0; attempt < 50 && !jobScheduleTimer.isLeader(); attempt++) {
+            Thread.sleep(100);
+        }
+
+        Assertions.assertTrue(jobScheduleTimer.isLeader(), "Job schedule timer is not leading");
+    }
+}
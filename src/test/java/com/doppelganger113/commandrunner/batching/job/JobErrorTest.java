@@ -0,0 +1,53 @@
+package com.doppelganger113.commandrunner.batching.job;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class JobErrorTest {
+
+    @Test
+    void givenWrappedException_whenDescribed_thenSummarizeOuterAndKeepCauseWithoutSharedFrames() {
+        RuntimeException cause = new IllegalStateException("broken");
+        RuntimeException error = new RuntimeException("job failed", cause);
+
+        JobError.Details details = JobError.Details.of(error);
+
+        Assertions.assertEquals("java.lang.RuntimeException: job failed", details.summary());
+        Assertions.assertEquals("java.lang.RuntimeException", details.exceptionType());
+        Assertions.assertEquals("job failed", details.message());
+        Assertions.assertTrue(details.stackTrace().startsWith("java.lang.RuntimeException: job failed\n\tat "));
+        Assertions.assertTrue(details.stackTrace().contains("Caused by: java.lang.IllegalStateException: broken\n"));
+        // Both were created in this method, so the cause only repeats frames of the outer trace
+        Assertions.assertTrue(details.stackTrace().matches("(?s).*Caused by: .*\n\tat .*\n\t\\.\\.\\. \\d+ more\n"));
+    }
+
+    @Test
+    void givenDeepRecursion_whenDescribed_thenCapFramesAndLength() {
+        StackOverflowError error = Assertions.assertThrows(StackOverflowError.class, JobErrorTest::recurse);
+
+        JobError.Details details = JobError.Details.of(error);
+
+        long frames = details.stackTrace().lines().filter(line -> line.startsWith("\tat ")).count();
+        Assertions.assertEquals(JobError.MAX_FRAMES, frames);
+        Assertions.assertTrue(details.stackTrace().contains("frames omitted"));
+        Assertions.assertTrue(details.stackTrace().length() <= JobError.STACK_TRACE_LENGTH);
+    }
+
+    @Test
+    void givenLongMessageAndCircularCause_whenDescribed_thenTruncateAndStop() {
+        RuntimeException first = new RuntimeException("x".repeat(5_000));
+        RuntimeException second = new RuntimeException("second", first);
+        first.initCause(second);
+
+        JobError.Details details = JobError.Details.of(first);
+
+        Assertions.assertEquals(JobError.SUMMARY_LENGTH, details.summary().length());
+        Assertions.assertTrue(details.summary().endsWith("..."));
+        Assertions.assertEquals(JobError.MESSAGE_LENGTH, details.message().length());
+        Assertions.assertTrue(details.stackTrace().contains("[CIRCULAR REFERENCE: "));
+    }
+
+    private static int recurse() {
+        return recurse() + 1;
+    }
+}
@@ -0,0 +1,62 @@
+package com.doppelganger113.commandrunner.batching.job;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+class JobEventBroadcasterTest {
+
+    private static final Duration KEEP_ALIVE = Duration.ofMillis(20);
+
+    private final JobEventBus jobEventBus = new JobEventBus();
+    private final AtomicInteger reads = new AtomicInteger();
+    private JobEventBroadcaster broadcaster;
+
+    @AfterEach
+    void afterEach() {
+        broadcaster.close();
+    }
+
+    @Test
+    void givenIdleJobStream_whenKeptAlive_thenReadTheJobOnlyAfterReconnects() throws InterruptedException {
+        broadcaster = new JobEventBroadcaster(new JobEventsProperties(true, Duration.ofSeconds(5), Duration.ofMinutes(1), KEEP_ALIVE), jobEventBus);
+
+        Assertions.assertTrue(broadcaster.subscribeToJob(1L, this::runningJob).isPresent());
+        Thread.sleep(KEEP_ALIVE.multipliedBy(10));
+        Assertions.assertEquals(1, reads.get());
+
+        jobEventBus.publishReconnect();
+        awaitReads(2);
+        Thread.sleep(KEEP_ALIVE.multipliedBy(10));
+        Assertions.assertEquals(2, reads.get());
+    }
+
+    @Test
+    void givenEventsDisabled_whenKeptAlive_thenReadTheJobOnEveryKeepAlive() throws InterruptedException {
+        broadcaster = new JobEventBroadcaster(new JobEventsProperties(false, Duration.ofSeconds(5), Duration.ofMinutes(1), KEEP_ALIVE), jobEventBus);
+
+        Assertions.assertTrue(broadcaster.subscribeToJob(1L, this::runningJob).isPresent());
+
+        awaitReads(3);
+    }
+
+    private Optional<JobEvent> runningJob() {
+        reads.incrementAndGet();
+        return Optional.of(new JobEvent(1L, "job", JobState.RUNNING));
+    }
+
+    private void awaitReads(int expected) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(2);
+        while (reads.get() < expected) {
+            if (System.nanoTime() - deadline > 0) {
+                Assertions.fail("job was read " + reads.get() + " times instead of " + expected);
+            }
+            Thread.sleep(KEEP_ALIVE);
+        }
+    }
+}
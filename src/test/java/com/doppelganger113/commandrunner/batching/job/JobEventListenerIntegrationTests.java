@@ -0,0 +1,108 @@
+package com.doppelganger113.commandrunner.batching.job;
+
+import org.junit.jupiter.api.*;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE)
+class JobEventListenerIntegrationTests {
+
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>(
+            "postgres:16"
+    ).withReuse(true);
+
+    @Autowired
+    private JobEventBus jobEventBus;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private final BlockingQueue<JobEvent> events = new LinkedBlockingQueue<>();
+    private JobEventBus.Subscription subscription;
+
+    @DynamicPropertySource
+    static void configureProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgres::getJdbcUrl);
+        registry.add("spring.datasource.username", postgres::getUsername);
+        registry.add("spring.datasource.password", postgres::getPassword);
+    }
+
+    @BeforeAll
+    static void beforeAll() {
+        postgres.start();
+    }
+
+    @AfterAll
+    static void afterAll() {
+        postgres.stop();
+    }
+
+    @BeforeEach
+    void beforeEach() throws InterruptedException {
+        subscription = jobEventBus.subscribe(event -> {
+            if ("event_test".equals(event.name())) {
+                events.add(event);
+            }
+        });
+        awaitListening();
+    }
+
+    @AfterEach
+    void afterEach() {
+        subscription.close();
+        jdbcTemplate.update("DELETE FROM jobs WHERE name = 'event_test'");
+    }
+
+    @Test
+    void givenNewJob_whenItChangesState_thenPublishEventPerCommittedChange() throws InterruptedException {
+        Long jobId = jdbcTemplate.queryForObject(
+                "INSERT INTO jobs (name, arguments, arguments_hash) VALUES ('event_test', '{}', 'hash') RETURNING id",
+                Long.class
+        );
+        assertNextEvent(new JobEvent(jobId, "event_test", JobState.READY));
+
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.update("UPDATE jobs SET state = 'RUNNING' WHERE id = ?", jobId);
+            jdbcTemplate.update("UPDATE jobs SET updated_at = NOW() WHERE id = ?", jobId);
+            Assertions.assertTrue(events.isEmpty(), "events are published on commit");
+        });
+        assertNextEvent(new JobEvent(jobId, "event_test", JobState.RUNNING));
+
+        Assertions.assertNull(events.poll(200, TimeUnit.MILLISECONDS), "updates without state change are silent");
+    }
+
+    /**
+     * The listener connects in the background after startup, probes until one arrives.
+     */
+    private void awaitListening() throws InterruptedException {
+        JobEvent probe = new JobEvent(0L, "event_test", JobState.READY);
+        for (int attempt = 0; attempt < 50; attempt++) {
+            jdbcTemplate.queryForList(
+                    "SELECT pg_notify(?, '{\"id\":0,\"name\":\"event_test\",\"state\":\"READY\"}')",
+                    JobEventListener.CHANNEL
+            );
+            JobEvent event = events.poll(100, TimeUnit.MILLISECONDS);
+            if (probe.equals(event)) {
+                events.clear();
+                return;
+            }
+        }
+        Assertions.fail("Job event listener is not listening");
+    }
+
+    private void assertNextEvent(JobEvent expected) throws InterruptedException {
+        Assertions.assertEquals(expected, events.poll(5, TimeUnit.SECONDS));
+    }
+}
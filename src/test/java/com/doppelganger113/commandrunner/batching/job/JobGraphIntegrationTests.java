@@ -0,0 +1,311 @@
+package com.doppelganger113.commandrunner.batching.job;
+
+import com.doppelganger113.commandrunner.batching.job.dto.JobExecutionResponse;
+import com.doppelganger113.commandrunner.batching.job.dto.JobGraphNode;
+import com.doppelganger113.commandrunner.batching.job.dto.JobGraphOptions;
+import com.doppelganger113.commandrunner.batching.job.processors.JobContext;
+import com.doppelganger113.commandrunner.batching.job.processors.JobProcessor;
+import org.junit.jupiter.api.*;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.web.server.ResponseStatusException;
+import org.testcontainers.containers.PostgreSQLContainer;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE)
+class JobGraphIntegrationTests {
+
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>(
+            "postgres:16"
+    ).withReuse(true);
+
+    @Autowired
+    private JobService jobService;
+
+    @Autowired
+    private JobExecutor jobExecutor;
+
+    @Autowired
+    private JobRepository jobRepository;
+
+    @Autowired
+    private JobPersistenceService jobPersistenceService;
+
+    @Autowired
+    private JobGraphRepository jobGraphRepository;
+
+    @Autowired
+    private JobJdbcRepository jobJdbcRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final List<String> started = new CopyOnWriteArrayList<>();
+    private final AtomicInteger running = new AtomicInteger();
+    private final AtomicInteger maxRunning = new AtomicInteger();
+
+    /**
+     * Records the order children start in and how many run at the same time, fails when told to.
+     */
+    private final JobProcessor stepProcessor = new JobProcessor() {
+        @Override
+        public String getName() {
+            return "graph_step";
+        }
+
+        @Override
+        public void execute(HashMap<String, Object> arguments) {
+            started.add((String) arguments.get("step"));
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            try {
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(50));
+                if (Boolean.TRUE.equals(arguments.get("fail"))) {
+                    throw new RuntimeException("step failed");
+                }
+            } finally {
+                running.decrementAndGet();
+            }
+        }
+    };
+
+    @DynamicPropertySource
+    static void configureProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgres::getJdbcUrl);
+        registry.add("spring.datasource.username", postgres::getUsername);
+        registry.add("spring.datasource.password", postgres::getPassword);
+    }
+
+    @BeforeAll
+    static void beforeAll() {
+        postgres.start();
+    }
+
+    @AfterAll
+    static void afterAll() {
+        postgres.stop();
+    }
+
+    @BeforeEach
+    void beforeEach() {
+        jdbcTemplate.update("DELETE FROM jobs");
+        jobExecutor.addJobProcessor(stepProcessor);
+    }
+
+    @AfterEach
+    void afterEach() {
+        jobExecutor.removeJobProcessor(stepProcessor);
+        jdbcTemplate.update("DELETE FROM jobs");
+    }
+
+    @Test
+    void givenDiamondGraph_whenExecuted_thenRunChildrenInDependencyOrderAndCompleteParent() {
+        JobExecutionResponse response = jobService.executeJobGraph(new JobGraphOptions(
+                null,
+                new HashMap<>(Map.of("graph", "diamond")),
+                2,
+                List.of(
+                        step("d", List.of("b", "c")),
+                        step("b", List.of("a")),
+                        step("c", List.of("a")),
+                        step("a", List.of())
+                )
+        ));
+        Long parentId = response.job().getId();
+        Assertions.assertEquals(JobState.WAITING, response.job().getState());
+
+        awaitState(parentId, JobState.COMPLETED);
+        Assertions.assertEquals("a", started.getFirst());
+        Assertions.assertEquals("d", started.getLast());
+        Assertions.assertEquals(4, started.size());
+        Assertions.assertTrue(maxRunning.get() <= 2, "fan-out exceeded: " + maxRunning.get());
+
+        List<Job> children = jobService.findChildJobs(parentId);
+        Assertions.assertEquals(4, children.size());
+        Assertions.assertTrue(children.stream().allMatch(child -> child.getState() == JobState.COMPLETED));
+        Job parent = jobRepository.findById(parentId).orElseThrow();
+        Assertions.assertEquals(4, parent.getProgressDone());
+        Assertions.assertEquals(4, parent.getProgressTotal());
+    }
+
+    @Test
+    void givenFanOutOfOne_whenIndependentChildrenAreExecuted_thenRunOneAtATime() {
+        JobExecutionResponse response = jobService.executeJobGraph(new JobGraphOptions(
+                null,
+                new HashMap<>(Map.of("graph", "fan-out")),
+                1,
+                List.of(step("a", List.of()), step("b", List.of()), step("c", List.of()))
+        ));
+
+        awaitState(response.job().getId(), JobState.COMPLETED);
+        Assertions.assertEquals(List.of("a", "b", "c"), started);
+        Assertions.assertEquals(1, maxRunning.get());
+    }
+
+    @Test
+    void givenFailingChild_whenExecuted_thenFailParentAndStopDependents() {
+        HashMap<String, Object> failingArguments = new HashMap<>(Map.of("step", "a", "fail", true));
+        JobExecutionResponse response = jobService.executeJobGraph(new JobGraphOptions(
+                null,
+                new HashMap<>(Map.of("graph", "failing")),
+                null,
+                List.of(
+                        new JobGraphNode("a", stepProcessor.getName(), failingArguments, List.of()),
+                        step("b", List.of("a"))
+                )
+        ));
+        Long parentId = response.job().getId();
+
+        awaitState(parentId, JobState.FAILED);
+        List<Job> children = jobService.findChildJobs(parentId);
+        Assertions.assertEquals(JobState.FAILED, children.get(0).getState());
+        Assertions.assertEquals(JobState.STOPPED, children.get(1).getState());
+        Assertions.assertEquals(List.of("a"), started);
+    }
+
+    @Test
+    void givenRunningGraph_whenParentIsStopped_thenCancelItsChildren() throws InterruptedException {
+        CountDownLatch childStarted = new CountDownLatch(1);
+        JobProcessor cooperativeProcessor = new JobProcessor() {
+            @Override
+            public String getName() {
+                return "graph_cooperative";
+            }
+
+            @Override
+            public void execute(HashMap<String, Object> arguments) {
+                throw new IllegalStateException("runs only with a job context");
+            }
+
+            @Override
+            public void execute(HashMap<String, Object> arguments, JobContext context) {
+                childStarted.countDown();
+                while (!context.isCancelled()) {
+                    LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(5));
+                }
+            }
+        };
+        jobExecutor.addJobProcessor(cooperativeProcessor);
+
+        JobExecutionResponse response = jobService.executeJobGraph(new JobGraphOptions(
+                null,
+                new HashMap<>(Map.of("graph", "stopped")),
+                null,
+                List.of(
+                        new JobGraphNode("a", cooperativeProcessor.getName(), new HashMap<>(), List.of()),
+                        step("b", List.of("a"))
+                )
+        ));
+        Long parentId = response.job().getId();
+        Assertions.assertTrue(childStarted.await(5, TimeUnit.SECONDS));
+
+        jobService.stopJob(parentId);
+
+        List<Long> childIds = jobService.findChildJobs(parentId).stream().map(Job::getId).toList();
+        awaitState(childIds.get(0), JobState.STOPPED);
+        Assertions.assertEquals(JobState.STOPPED, findState(parentId));
+        Assertions.assertEquals(JobState.STOPPED, findState(childIds.get(1)));
+        Assertions.assertTrue(started.isEmpty());
+        jobExecutor.removeJobProcessor(cooperativeProcessor);
+    }
+
+    @Test
+    void givenReleasedChildren_whenNotDispatchedYet_thenStartupRecoveryFindsThem() {
+        Long parentId = jobPersistenceService.createJobGraph(new JobGraphOptions(
+                null,
+                new HashMap<>(Map.of("graph", "released")),
+                null,
+                List.of(step("a", List.of()), step("b", List.of("a")))
+        )).job().getId();
+
+        List<Job> released = jobGraphRepository.releaseChildren(parentId, null);
+
+        Assertions.assertEquals(1, released.size());
+        Assertions.assertEquals(
+                List.of(released.getFirst().getId()),
+                jobJdbcRepository.findPendingRetries().stream().map(Job::getId).toList()
+        );
+    }
+
+    @Test
+    void givenIdenticalGraphs_whenSubmittedConcurrently_thenAllResolveToOneGraph() throws Exception {
+        int submissions = 8;
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(submissions);
+        try {
+            List<Future<Long>> parentIds = new ArrayList<>();
+            for (int i = 0; i < submissions; i++) {
+                parentIds.add(executor.submit(() -> {
+                    start.await();
+                    return jobService.executeJobGraph(new JobGraphOptions(
+                            null,
+                            new HashMap<>(Map.of("graph", "concurrent")),
+                            null,
+                            List.of(step("a", List.of()))
+                    )).job().getId();
+                }));
+            }
+            start.countDown();
+
+            Set<Long> distinct = new HashSet<>();
+            for (Future<Long> parentId : parentIds) {
+                distinct.add(parentId.get(10, TimeUnit.SECONDS));
+            }
+            Assertions.assertEquals(1, distinct.size());
+            awaitState(distinct.iterator().next(), JobState.COMPLETED);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void givenCyclicDependencies_whenSubmitted_thenReject() {
+        ResponseStatusException exception = Assertions.assertThrows(
+                ResponseStatusException.class,
+                () -> jobService.executeJobGraph(new JobGraphOptions(
+                        null,
+                        new HashMap<>(Map.of("graph", "cyclic")),
+                        null,
+                        List.of(step("a", List.of("c")), step("b", List.of("a")), step("c", List.of("b")))
+                ))
+        );
+        Assertions.assertEquals(400, exception.getStatusCode().value());
+        Assertions.assertEquals(0, jdbcTemplate.queryForObject("SELECT count(*) FROM jobs", Integer.class));
+    }
+
+    private JobGraphNode step(String key, List<String> dependsOn) {
+        return new JobGraphNode(key, stepProcessor.getName(), new HashMap<>(Map.of("step", key)), dependsOn);
+    }
+
+    private JobState findState(Long jobId) {
+        return jobRepository.findStateById(jobId).map(JobState::valueOf).orElse(null);
+    }
+
+    private void awaitState(Long jobId, JobState expected) {
+        Supplier<JobState> state = () -> findState(jobId);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (state.get() != expected) {
+            if (System.nanoTime() - deadline > 0) {
+                Assertions.fail("Job " + jobId + " did not reach " + expected + " but is " + state.get());
+            }
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(50));
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.doppelganger113.commandrunner.batching.job;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+
+/**
+ * Checks that the query shapes used by the application are served by an index. Sequential scans are disabled for
+ * the session, so the planner only picks one when no index can answer the query.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE)
+class JobIndexesIntegrationTests {
+
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>(
+            "postgres:16"
+    ).withReuse(true);
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @DynamicPropertySource
+    static void configureProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgres::getJdbcUrl);
+        registry.add("spring.datasource.username", postgres::getUsername);
+        registry.add("spring.datasource.password", postgres::getPassword);
+    }
+
+    @BeforeAll
+    static void beforeAll() {
+        postgres.start();
+    }
+
+    @AfterAll
+    static void afterAll() {
+        postgres.stop();
+    }
+
+    @Test
+    void givenActiveJobLookup_whenExplained_thenUsePartialIndex() {
+        String plan = explain(JobRepository.FIND_ACTIVE_BY_NAME.replaceAll("\\?\\d+", "?"), "job");
+
+        assertNoSeqScan(plan);
+        Assertions.assertTrue(plan.contains("jobs_active_name_created_at_idx"), plan);
+    }
+
+    @Test
+    void givenActiveJobsOfNamesLookup_whenExplained_thenUsePartialIndex() {
+        String plan = explain(JobJdbcRepository.FIND_ACTIVE_BY_NAMES, "{first,second}");
+
+        assertNoSeqScan(plan);
+        Assertions.assertTrue(plan.contains("jobs_active_name_created_at_idx"), plan);
+    }
+
+    @Test
+    void givenChildJobsLookup_whenExplained_thenUseParentIndex() {
+        String plan = explain("SELECT * FROM jobs WHERE parent_job_id = ?", 1);
+
+        assertNoSeqScan(plan);
+        Assertions.assertTrue(plan.contains("jobs_parent_name_arg_hash_idx"), plan);
+    }
+
+    @Test
+    void givenStateAndCreationRangeFilter_whenExplained_thenUseStateIndex() {
+        String plan = explain(
+                "SELECT count(*) FROM jobs WHERE state = ? AND created_at >= ? AND created_at < ?",
+                "FAILED",
+                Timestamp.valueOf(LocalDateTime.now().minusDays(1)),
+                Timestamp.valueOf(LocalDateTime.now())
+        );
+
+        assertNoSeqScan(plan);
+        Assertions.assertTrue(plan.contains("jobs_state_created_at_idx"), plan);
+    }
+
+    @Test
+    void givenPendingRetriesLookup_whenExplained_thenUseNextAttemptIndex() {
+        String plan = explain(JobJdbcRepository.FIND_PENDING_RETRIES);
+
+        assertNoSeqScan(plan);
+        Assertions.assertTrue(plan.contains("jobs_next_attempt_at_idx"), plan);
+    }
+
+    private String explain(String sql, Object... args) {
+        return transactionTemplate.execute(status -> {
+            jdbcTemplate.execute("SET LOCAL enable_seqscan = off");
+            return String.join("\n", jdbcTemplate.queryForList("EXPLAIN " + sql, String.class, args));
+        });
+    }
+
+    private static void assertNoSeqScan(String plan) {
+        Assertions.assertFalse(plan.contains("Seq Scan"), plan);
+    }
+}
@@ -0,0 +1,165 @@
+package com.doppelganger113.commandrunner.batching.job;
+
+import com.doppelganger113.commandrunner.batching.job.dto.JobExecutionOptions;
+import com.doppelganger113.commandrunner.batching.job.dto.JobExecutionResponse;
+import org.junit.jupiter.api.*;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+@SpringBootTest(
+        webEnvironment = SpringBootTest.WebEnvironment.NONE,
+        properties = {
+                "jobs.queue.mode=DISTRIBUTED",
+                "jobs.queue.poll-interval=1m",
+                "jobs.queue.heartbeat-interval=100ms",
+                "jobs.queue.lease-duration=1s"
+        }
+)
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_CLASS)
+class JobQueueIntegrationTests {
+
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>(
+            "postgres:16"
+    ).withReuse(true);
+
+    @Autowired
+    private JobService jobService;
+
+    @Autowired
+    private JobRepository jobRepository;
+
+    @Autowired
+    private JobJdbcRepository jobJdbcRepository;
+
+    @Autowired
+    private JobQueueWorker jobQueueWorker;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @DynamicPropertySource
+    static void configureProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgres::getJdbcUrl);
+        registry.add("spring.datasource.username", postgres::getUsername);
+        registry.add("spring.datasource.password", postgres::getPassword);
+    }
+
+    @BeforeAll
+    static void beforeAll() {
+        postgres.start();
+    }
+
+    @AfterAll
+    static void afterAll() {
+        postgres.stop();
+    }
+
+    @BeforeEach
+    @AfterEach
+    void deleteJobs() {
+        jdbcTemplate.update("DELETE FROM jobs");
+    }
+
+    /**
+     * The poll interval is longer than the test timeout, so claims only happen when job events wake the worker up.
+     */
+    @Test
+    void givenDistributedMode_whenJobIsSubmitted_thenWorkerClaimsAndCompletesIt() {
+        JobExecutionResponse response = jobService.executeJob(
+                new JobExecutionOptions("empty", new HashMap<>(Map.of("age", 32)))
+        );
+        Assertions.assertEquals(JobState.READY, response.job().getState());
+
+        awaitState(response.job().getId(), JobState.COMPLETED);
+        Assertions.assertEquals(jobQueueWorker.getNodeId(), findLeaseOwner(response.job().getId()));
+    }
+
+    @Test
+    void givenRunningJobOfDeadNode_whenLeaseExpires_thenJobIsReclaimedAndCompleted() {
+        Long jobId = jdbcTemplate.queryForObject(
+                "INSERT INTO jobs (name, arguments, arguments_hash, state, started_at, lease_owner, lease_expires_at) " +
+                        "VALUES ('empty', '{}', 'dead-node', 'RUNNING', NOW(), 'dead-node', NOW() - INTERVAL '1 second') " +
+                        "RETURNING id",
+                Long.class
+        );
+
+        awaitState(jobId, JobState.COMPLETED);
+        Assertions.assertEquals(jobQueueWorker.getNodeId(), findLeaseOwner(jobId));
+    }
+
+    @Test
+    void givenConcurrentClaims_whenRowsAreLocked_thenSkipThemInsteadOfWaiting() throws Exception {
+        // Jobs without a processor on this node are never claimed by the worker itself
+        for (int i = 0; i < 4; i++) {
+            jdbcTemplate.update("INSERT INTO jobs (name, arguments, arguments_hash) VALUES ('other_node_job', '{}', ?)", "hash-" + i);
+        }
+        List<String> names = List.of("other_node_job");
+        CountDownLatch firstClaimed = new CountDownLatch(1);
+        CountDownLatch secondClaimed = new CountDownLatch(1);
+
+        CompletableFuture<List<Job>> first = CompletableFuture.supplyAsync(() -> transactionTemplate.execute(status -> {
+            List<Job> jobs = jobJdbcRepository.claimReady("first", Duration.ofMinutes(1), names, 2);
+            firstClaimed.countDown();
+            await(secondClaimed);
+            return jobs;
+        }));
+        await(firstClaimed);
+        List<Job> second = jobJdbcRepository.claimReady("second", Duration.ofMinutes(1), names, 4);
+        secondClaimed.countDown();
+
+        List<Long> firstIds = first.get(5, TimeUnit.SECONDS).stream().map(Job::getId).toList();
+        List<Long> secondIds = second.stream().map(Job::getId).toList();
+        Assertions.assertEquals(2, firstIds.size());
+        Assertions.assertEquals(2, secondIds.size());
+        Assertions.assertTrue(secondIds.stream().noneMatch(firstIds::contains));
+    }
+
+    private String findLeaseOwner(Long jobId) {
+        return jdbcTemplate.queryForObject("SELECT lease_owner FROM jobs WHERE id = ?", String.class, jobId);
+    }
+
+    private void awaitState(Long jobId, JobState expected) {
+        Supplier<JobState> state = () -> jobRepository.findStateById(jobId).map(JobState::valueOf).orElse(null);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (state.get() != expected) {
+            if (System.nanoTime() - deadline > 0) {
+                Assertions.fail("Job " + jobId + " did not reach " + expected + " but is " + state.get());
+            }
+            sleep();
+        }
+    }
+
+    private static void sleep() {
+        try {
+            Thread.sleep(50);
+        } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            Assertions.assertTrue(latch.await(5, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package com.doppelganger113.commandrunner.batching.job;
+
+import com.doppelganger113.commandrunner.batching.job.dto.JobScheduleOptions;
+import com.doppelganger113.commandrunner.batching.job.processors.JobProcessor;
+import org.junit.jupiter.api.*;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.web.server.ResponseStatusException;
+import org.testcontainers.containers.PostgreSQLContainer;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+@SpringBootTest(
+        webEnvironment = SpringBootTest.WebEnvironment.NONE,
+        properties = "jobs.schedules.enabled=true"
+)
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_CLASS)
+class JobScheduleIntegrationTests {
+
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>(
+            "postgres:16"
+    ).withReuse(true);
+
+    @Autowired
+    private JobScheduleService jobScheduleService;
+
+    @Autowired
+    private JobScheduleTimer jobScheduleTimer;
+
+    @Autowired
+    private JobExecutor jobExecutor;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final List<String> ticks = new CopyOnWriteArrayList<>();
+
+    private final JobProcessor tickProcessor = new JobProcessor() {
+        @Override
+        public String getName() {
+            return "schedule_tick";
+        }
+
+        @Override
+        public void execute(HashMap<String, Object> arguments) {
+            ticks.add((String) arguments.get("tick"));
+        }
+    };
+
+    @DynamicPropertySource
+    static void configureProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgres::getJdbcUrl);
+        registry.add("spring.datasource.username", postgres::getUsername);
+        registry.add("spring.datasource.password", postgres::getPassword);
+    }
+
+    @BeforeAll
+    static void beforeAll() {
+        postgres.start();
+    }
+
+    @AfterAll
+    static void afterAll() {
+        postgres.stop();
+    }
+
+    @BeforeEach
+    void beforeEach() {
+        deleteSchedulesAndJobs();
+        jobExecutor.addJobProcessor(tickProcessor);
+    }
+
+    @AfterEach
+    void afterEach() {
+        deleteSchedulesAndJobs();
+        jobExecutor.removeJobProcessor(tickProcessor);
+    }
+
+    @Test
+    void givenFixedRateSchedule_whenTicksAreDue_thenSubmitJobPerTickUntilDeleted() {
+        JobSchedule schedule = jobScheduleService.createSchedule(new JobScheduleOptions(
+                tickProcessor.getName(),
+                null,
+                200L,
+                new HashMap<>(Map.of("tick", JobScheduleService.FIRE_TIME_PLACEHOLDER))
+        ));
+
+        awaitTicks(2);
+        Assertions.assertEquals(ticks.size(), ticks.stream().distinct().count(), "tick fired twice: " + ticks);
+        Assertions.assertEquals(schedule.nextFireAt().toString(), ticks.getFirst());
+
+        jobScheduleService.deleteSchedule(schedule.id());
+        LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(300));
+        int fired = ticks.size();
+        LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(500));
+        Assertions.assertEquals(fired, ticks.size());
+    }
+
+    @Test
+    void givenLeadingTimer_whenAnotherSessionTakesTheLeaderLock_thenFail() {
+        awaitLeader();
+        Boolean locked = jdbcTemplate.queryForObject(
+                "SELECT pg_try_advisory_lock(hashtext('job_schedule_timer'))",
+                Boolean.class
+        );
+        Assertions.assertEquals(Boolean.FALSE, locked);
+    }
+
+    @Test
+    void givenArgumentsWithoutFireTime_whenScheduleIsCreated_thenReject() {
+        ResponseStatusException exception = Assertions.assertThrows(
+                ResponseStatusException.class,
+                () -> jobScheduleService.createSchedule(new JobScheduleOptions(
+                        tickProcessor.getName(),
+                        "0 * * * * *",
+                        null,
+                        new HashMap<>(Map.of("tick", "static"))
+                ))
+        );
+        Assertions.assertEquals(400, exception.getStatusCode().value());
+        Assertions.assertTrue(jobScheduleService.findAll().isEmpty());
+    }
+
+    private void deleteSchedulesAndJobs() {
+        jdbcTemplate.update("DELETE FROM job_schedules");
+        jdbcTemplate.update("DELETE FROM jobs");
+    }
+
+    private void awaitTicks(int count) {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (ticks.size() < count) {
+            if (System.nanoTime() - deadline > 0) {
+                Assertions.fail("Expected " + count + " ticks but got " + ticks);
+            }
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(20));
+        }
+    }
+
+    private void awaitLeader() {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!jobScheduleTimer.isLeader()) {
+            if (System.nanoTime() - deadline > 0) {
+                Assertions.fail("Job schedule timer did not take the leader lock");
+            }
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(20));
+        }
+    }
+}
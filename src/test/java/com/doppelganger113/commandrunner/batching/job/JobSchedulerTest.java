@@ -0,0 +1,100 @@
+package com.doppelganger113.commandrunner.batching.job;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+class JobSchedulerTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final JobMetrics jobMetrics = new JobMetrics(meterRegistry);
+    private JobScheduler jobScheduler;
+
+    @AfterEach
+    void afterEach() throws InterruptedException {
+        jobScheduler.close();
+    }
+
+    @Test
+    void givenFullQueue_whenReserving_thenReject() {
+        jobScheduler = new JobScheduler(new JobSchedulerProperties(1, 2, 1, Map.of()), jobMetrics);
+
+        var reservation = jobScheduler.reserve(2);
+        Assertions.assertTrue(reservation.isPresent());
+        Assertions.assertTrue(jobScheduler.reserve(1).isEmpty());
+
+        reservation.get().close();
+        Assertions.assertTrue(jobScheduler.reserve(1).isPresent());
+    }
+
+    @Test
+    void givenQueuedJobs_whenSlotFrees_thenRunHigherPriorityFirst() throws InterruptedException {
+        jobScheduler = new JobScheduler(new JobSchedulerProperties(1, 10, 1, Map.of()), jobMetrics);
+        CountDownLatch blocker = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(3);
+        List<String> order = new CopyOnWriteArrayList<>();
+
+        try (var reservation = jobScheduler.reserve(3).orElseThrow()) {
+            jobScheduler.submit(reservation, "processor", JobPriority.NORMAL, () -> {
+                await(blocker);
+                done.countDown();
+            });
+            jobScheduler.submit(reservation, "processor", JobPriority.LOW, () -> {
+                order.add("low");
+                done.countDown();
+            });
+            jobScheduler.submit(reservation, "processor", JobPriority.HIGH, () -> {
+                order.add("high");
+                done.countDown();
+            });
+        }
+        blocker.countDown();
+
+        Assertions.assertTrue(done.await(5, TimeUnit.SECONDS));
+        Assertions.assertEquals(List.of("high", "low"), order);
+    }
+
+    @Test
+    void givenSaturatedProcessor_whenOtherProcessorIsQueuedBehind_thenRunOtherProcessor() throws InterruptedException {
+        jobScheduler = new JobScheduler(new JobSchedulerProperties(4, 10, 4, Map.of("slow", 1)), jobMetrics);
+        CountDownLatch blocker = new CountDownLatch(1);
+        CountDownLatch fastDone = new CountDownLatch(1);
+        AtomicInteger slowRunning = new AtomicInteger();
+        AtomicInteger maxSlowRunning = new AtomicInteger();
+
+        try (var reservation = jobScheduler.reserve(3).orElseThrow()) {
+            for (int i = 0; i < 2; i++) {
+                jobScheduler.submit(reservation, "slow", JobPriority.HIGH, () -> {
+                    maxSlowRunning.accumulateAndGet(slowRunning.incrementAndGet(), Math::max);
+                    await(blocker);
+                    slowRunning.decrementAndGet();
+                });
+            }
+            jobScheduler.submit(reservation, "fast", JobPriority.LOW, fastDone::countDown);
+        }
+
+        Assertions.assertTrue(fastDone.await(5, TimeUnit.SECONDS));
+        Assertions.assertEquals(1, maxSlowRunning.get());
+        Assertions.assertEquals(1, jobScheduler.getQueueDepth());
+        Assertions.assertEquals(1, meterRegistry.get("jobs.queue.depth").tag("processor", "slow").gauge().value());
+        Assertions.assertEquals(1, meterRegistry.get("jobs.active").tag("processor", "slow").gauge().value());
+        Assertions.assertEquals(1, meterRegistry.get("jobs.queue.wait").tag("processor", "fast").timer().count());
+        blocker.countDown();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
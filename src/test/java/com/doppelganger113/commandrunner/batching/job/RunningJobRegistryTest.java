@@ -0,0 +1,53 @@
+package com.doppelganger113.commandrunner.batching.job;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.time.Duration;
+import java.util.Map;
+
+class RunningJobRegistryTest {
+
+    private final JobJdbcRepository jobJdbcRepository = Mockito.mock(JobJdbcRepository.class);
+    private final JobEventBus jobEventBus = new JobEventBus();
+    private RunningJobRegistry registry;
+
+    @BeforeEach
+    void beforeEach() {
+        registry = new RunningJobRegistry(jobJdbcRepository, new JobProgressProperties(Duration.ofHours(1)), jobEventBus);
+    }
+
+    @AfterEach
+    void afterEach() throws InterruptedException {
+        registry.close();
+    }
+
+    @Test
+    void givenFrequentProgressReports_whenFlushed_thenWriteOnlyLatestProgressOnce() {
+        RunningJob runningJob = registry.register(1L);
+        for (int done = 1; done <= 1000; done++) {
+            runningJob.reportProgress(done, 1000);
+        }
+
+        registry.flush();
+        registry.flush();
+
+        Mockito.verify(jobJdbcRepository).updateProgress(Map.of(1L, new RunningJob.Progress(1000, 1000)));
+        Mockito.verify(jobJdbcRepository).updateProgress(Map.of());
+    }
+
+    @Test
+    void givenRunningJob_whenStoppingEventArrives_thenCancelIt() {
+        RunningJob runningJob = registry.register(1L);
+        RunningJob otherJob = registry.register(2L);
+
+        jobEventBus.publish(new JobEvent(1L, "job", JobState.STOPPING));
+
+        Assertions.assertTrue(runningJob.isCancelled());
+        Assertions.assertFalse(otherJob.isCancelled());
+        Assertions.assertFalse(registry.cancel(3L));
+    }
+}
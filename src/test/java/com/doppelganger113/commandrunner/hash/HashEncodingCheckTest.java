@@ -0,0 +1,38 @@
+package com.doppelganger113.commandrunner.hash;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+class HashEncodingCheckTest {
+
+    private final JdbcTemplate jdbcTemplate = Mockito.mock(JdbcTemplate.class);
+
+    @Test
+    void givenLegacyEncoding_whenRehashMigrationRan_thenRefuseToStart() {
+        Mockito.when(jdbcTemplate.queryForObject(HashEncodingCheck.HAS_SCHEMA_HISTORY, Boolean.class)).thenReturn(true);
+        Mockito.when(jdbcTemplate.queryForObject(HashEncodingCheck.REHASHED, Boolean.class)).thenReturn(true);
+
+        Assertions.assertThrows(
+                IllegalStateException.class,
+                () -> new HashEncodingCheck(new ShaHash(ShaHash.Encoding.LEGACY), jdbcTemplate)
+        );
+    }
+
+    @Test
+    void givenLegacyEncoding_whenNoMigrationsRan_thenStart() {
+        Mockito.when(jdbcTemplate.queryForObject(HashEncodingCheck.HAS_SCHEMA_HISTORY, Boolean.class)).thenReturn(false);
+
+        new HashEncodingCheck(new ShaHash(ShaHash.Encoding.LEGACY), jdbcTemplate);
+
+        Mockito.verify(jdbcTemplate, Mockito.never()).queryForObject(HashEncodingCheck.REHASHED, Boolean.class);
+    }
+
+    @Test
+    void givenCanonicalEncoding_whenStarted_thenSkipTheCheck() {
+        new HashEncodingCheck(new ShaHash(ShaHash.Encoding.CANONICAL), jdbcTemplate);
+
+        Mockito.verifyNoInteractions(jdbcTemplate);
+    }
+}
@@ -8,7 +8,18 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.ValueSource;
 
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.IntStream;
 
 class ShaHashTest {
 
@@ -27,12 +38,88 @@ class ShaHashTest {
 
         Assertions.assertEquals(
                 "d8987bfd10bd8057a6fb31a4378d527f91fbfcf60d7ddb421cf2ef23215381ec",
+                shaHash.hash(map, ShaHash.Encoding.LEGACY)
+        );
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "{\"name\":\"John\", \"ids\": [1, 2.0], \"nested\": {\"success\": true, \"items\": [{\"a\": 1, \"b\": 2}]}}",
+            "{\"nested\": {\"items\": [{\"b\": 2.00, \"a\": 1}], \"success\": true}, \"ids\": [1.0, null, 2], \"name\":\"John\"}",
+            "{\"nested\": {\"items\": [{\"b\": 2, \"c\": null, \"a\": 1e0}], \"success\": true, \"empty\": null}, \"ids\": [1, 2], \"name\":\"John\"}",
+    })
+    void testCanonicalHashToIgnoreOrderingNullsAndNumberFormatAtEveryDepth(String jsonValue) throws JsonProcessingException {
+        HashMap<String, Object> map = objectMapper.readValue(jsonValue, new TypeReference<>() {
+        });
+
+        Assertions.assertEquals(
+                "77c2567c8dceb0fa98a74d998bfb93c06f3b126b88702108d4dcc3821c981724",
                 shaHash.hash(map)
         );
     }
 
+    @Test
+    void testCanonicalHashToDistinguishDifferentValues() {
+        HashMap<String, Object> number = new HashMap<>(Map.of("value", 1));
+        HashMap<String, Object> string = new HashMap<>(Map.of("value", "1"));
+        HashMap<String, Object> decimal = new HashMap<>(Map.of("value", new BigDecimal("1.5")));
+        HashMap<String, Object> otherDecimal = new HashMap<>(Map.of("value", 1.50));
+
+        Assertions.assertNotEquals(shaHash.hash(number), shaHash.hash(string));
+        Assertions.assertNotEquals(shaHash.hash(number), shaHash.hash(decimal));
+        Assertions.assertEquals(shaHash.hash(decimal), shaHash.hash(otherDecimal));
+    }
+
+    @Test
+    void testCanonicalHashToTreatOnlyNullValuesAsEmpty() {
+        HashMap<String, Object> map = new HashMap<>();
+        map.put("empty", null);
+
+        Assertions.assertEquals("", shaHash.hash(map));
+    }
+
     @Test
     void testHashToHandleNull() {
         Assertions.assertEquals("", shaHash.hash(null));
     }
-}
\ No newline at end of file
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "{\"name\":\"Jöhn 😀\", \"list\": [1, null, {\"b\": null, \"a\": 2.5}], \"n\": -9223372036854775808}",
+            "{\"deep\": {\"z\": {\"y\": null, \"x\": [true, false]}, \"a\": 1}, \"big\": 12345678901234}",
+            "{\"only\": null}",
+    })
+    void testHashToMatchPreviousStringBasedHash(String jsonValue) throws Exception {
+        HashMap<String, Object> map = objectMapper.readValue(jsonValue, new TypeReference<>() {
+        });
+
+        Assertions.assertEquals(stringBasedHash(map), shaHash.hash(map, ShaHash.Encoding.LEGACY));
+    }
+
+    @Test
+    void testHashToBeStableUnderConcurrentUse() throws InterruptedException, ExecutionException {
+        HashMap<String, Object> map = new HashMap<>();
+        map.put("age", 32);
+        String expected = shaHash.hash(map);
+
+        try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<String>> results = IntStream.range(0, 10_000)
+                    .mapToObj(i -> executor.submit(() -> shaHash.hash(map)))
+                    .toList();
+            for (Future<String> result : results) {
+                Assertions.assertEquals(expected, result.get());
+            }
+        }
+    }
+
+    private static String stringBasedHash(HashMap<String, Object> map) throws NoSuchAlgorithmException {
+        var sortedMap = new TreeMap<>(ShaHash.excludeNullValues(map));
+        byte[] hash = MessageDigest.getInstance("SHA3-256")
+                .digest(sortedMap.toString().getBytes(StandardCharsets.UTF_8));
+        StringBuilder builder = new StringBuilder();
+        for (byte b : hash) {
+            builder.append(String.format("%02x", b));
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,162 @@
+package com.doppelganger113.commandrunner.sftp;
+
+import org.apache.sshd.common.config.keys.PublicKeyEntry;
+import org.apache.sshd.common.session.Session;
+import org.apache.sshd.common.session.SessionListener;
+import org.apache.sshd.common.file.virtualfs.VirtualFileSystemFactory;
+import org.apache.sshd.server.SshServer;
+import org.apache.sshd.server.keyprovider.SimpleGeneratorHostKeyProvider;
+import org.apache.sshd.sftp.server.SftpSubsystemFactory;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.KeyPair;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+class SftpSessionServiceTest {
+
+    @TempDir
+    static Path root;
+
+    static SshServer server;
+
+    static Path knownHosts;
+
+    static final AtomicInteger openedSessions = new AtomicInteger();
+
+    private SftpSessionService service;
+
+    @BeforeAll
+    static void startServer() throws Exception {
+        Files.createDirectories(root.resolve("upload/nested"));
+        Files.writeString(root.resolve("upload/a.csv"), "1, 65.78, 112.99\n");
+        Files.writeString(root.resolve("upload/b.csv"), "2, 71.52, 136.49\n");
+
+        server = SshServer.setUpDefaultServer();
+        server.setHost("localhost");
+        server.setPort(0);
+        server.setKeyPairProvider(new SimpleGeneratorHostKeyProvider(root.resolve("host.key")));
+        server.setPasswordAuthenticator((username, password, session) -> "foo".equals(username) && "pass".equals(password));
+        server.setSubsystemFactories(List.of(new SftpSubsystemFactory()));
+        server.setFileSystemFactory(new VirtualFileSystemFactory(root));
+        server.addSessionListener(new SessionListener() {
+            @Override
+            public void sessionCreated(Session session) {
+                openedSessions.incrementAndGet();
+            }
+        });
+        server.start();
+
+        KeyPair hostKey = server.getKeyPairProvider().loadKeys(null).iterator().next();
+        knownHosts = Files.writeString(
+                Files.createTempFile(root, "known_hosts", ""),
+                "[localhost]:" + server.getPort() + " " + PublicKeyEntry.toString(hostKey.getPublic()) + "\n"
+        );
+    }
+
+    @AfterAll
+    static void stopServer() throws IOException {
+        server.stop(true);
+    }
+
+    @BeforeEach
+    void setUp() {
+        openedSessions.set(0);
+        service = new SftpSessionService(properties("pass", knownHosts), poolProperties(2));
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.close();
+    }
+
+    @Test
+    void givenRepeatedListings_whenFilesAreListed_thenReuseOneSession() {
+        for (int i = 0; i < 10; i++) {
+            List<String> files = service.getFiles("upload");
+
+            Assertions.assertEquals(2, files.size());
+            Assertions.assertTrue(files.stream().anyMatch(file -> file.endsWith("a.csv")));
+        }
+
+        Assertions.assertEquals(1, openedSessions.get());
+    }
+
+    @Test
+    void givenConcurrentListings_whenFilesAreListed_thenEachThreadGetsItsOwnChannelWithinMaxSessions() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<List<String>>> listings = executor.invokeAll(
+                    Collections.nCopies(40, () -> service.getFiles("upload"))
+            );
+            for (Future<List<String>> listing : listings) {
+                Assertions.assertEquals(2, listing.get(10, TimeUnit.SECONDS).size());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        Assertions.assertTrue(openedSessions.get() <= 2, "opened " + openedSessions.get() + " sessions");
+    }
+
+    @Test
+    void givenSessionsClosedByServer_whenFilesAreListed_thenReplaceTheBrokenSession() throws Exception {
+        Assertions.assertEquals(2, service.getFiles("upload").size());
+
+        for (var session : server.getActiveSessions()) {
+            session.close(true);
+        }
+
+        Assertions.assertEquals(2, service.getFiles("upload").size());
+        Assertions.assertEquals(2, openedSessions.get());
+    }
+
+    @Test
+    void givenFailingOperation_whenSessionIsConnected_thenReturnItToThePool() {
+        Assertions.assertThrows(RuntimeException.class, () -> service.getFiles("missing"));
+
+        Assertions.assertEquals(2, service.getFiles("upload").size());
+        Assertions.assertEquals(1, openedSessions.get());
+    }
+
+    @Test
+    void givenUnknownHostKey_whenStrictHostKeyChecking_thenRejectTheServer() throws IOException {
+        Path emptyKnownHosts = Files.createTempFile(root, "empty_known_hosts", "");
+        SftpSessionService strict = new SftpSessionService(properties("pass", emptyKnownHosts), poolProperties(2));
+        try {
+            Assertions.assertThrows(RuntimeException.class, () -> strict.getFiles("upload"));
+        } finally {
+            strict.close();
+        }
+    }
+
+    @Test
+    void givenWrongPassword_whenFilesAreListed_thenFail() {
+        SftpSessionService wrongPassword = new SftpSessionService(properties("wrong", knownHosts), poolProperties(2));
+        try {
+            Assertions.assertThrows(RuntimeException.class, () -> wrongPassword.getFiles("upload"));
+        } finally {
+            wrongPassword.close();
+        }
+    }
+
+    private static SftpProperties properties(String password, Path knownHosts) {
+        return new SftpProperties(
+                "localhost", server.getPort(), "foo", password, knownHosts, true,
+                Duration.ofSeconds(5), Duration.ofSeconds(30)
+        );
+    }
+
+    private static SftpPoolProperties poolProperties(int maxSessionsPerKey) {
+        return new SftpPoolProperties(
+                maxSessionsPerKey, 8, Duration.ofSeconds(5), Duration.ofMinutes(5), Duration.ofMinutes(1)
+        );
+    }
+}